@@ -0,0 +1,77 @@
+package net.quasardb.qdb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+import org.openjdk.jmh.profile.GCProfiler;
+
+import net.quasardb.qdb.*;
+
+/**
+ * Measures the allocations of the calls returning primitives; run with the gc profiler
+ * and compare gc.alloc.rate.norm between releases:
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="QdbIntegerBenchmark -prof gc" -Dqdb.uri=qdb://127.0.0.1:2836
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class QdbIntegerBenchmark {
+
+    static final String URI = System.getProperty("qdb.uri", "qdb://127.0.0.1:2836");
+
+    QdbCluster cluster;
+    QdbInteger integer;
+
+    @Setup
+    public void setup() throws Exception {
+        this.cluster = new QdbCluster(URI);
+        this.integer = cluster.integer("jmh.integer." + System.nanoTime());
+        this.integer.put(0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.integer.remove();
+        this.cluster.close();
+    }
+
+    @Benchmark
+    public long get() {
+        return integer.get();
+    }
+
+    @Benchmark
+    public long add() {
+        return integer.add(1);
+    }
+
+    @Benchmark
+    public long expiryTimeMillis() {
+        return integer.expiryTimeMillis();
+    }
+
+    @Benchmark
+    public QdbEntry entry() {
+        return cluster.entry(integer.alias());
+    }
+
+    @Benchmark
+    public QdbNode node() {
+        return integer.node();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(QdbIntegerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,172 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Runs the asynchronous operations of a cluster.
+ *
+ * Native calls block the thread that runs them, so operations are queued on a bounded
+ * set of worker threads instead of the caller's thread. The queue is bounded too: once it
+ * is full, new operations fail with a RejectedExecutionException instead of piling up.
+ * Operations that are still queued when their deadline expires are never sent. Operations
+ * already running when it expires still complete, and the buffers or channels they return
+ * are closed, since the caller has already been handed a TimeoutException.
+ */
+public final class QdbAsyncExecutor implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    public static final long NO_TIMEOUT = 0;
+
+    // The executor whose worker is running on the current thread, if any.
+    private static final ThreadLocal<QdbAsyncExecutor> current = new ThreadLocal<QdbAsyncExecutor>();
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService deadlines;
+    private final long timeoutMillis;
+
+    /**
+     * Creates an executor.
+     *
+     * @param threads The number of worker threads, usually the size of the session pool.
+     * @param queueCapacity The maximum number of operations waiting for a worker.
+     * @param timeoutMillis The deadline of each operation, in milliseconds, or NO_TIMEOUT.
+     * @throws InvalidArgumentException If threads or queueCapacity is lower than 1, or timeoutMillis is negative.
+     */
+    public QdbAsyncExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        if (threads < 1)
+            throw new InvalidArgumentException("Executor needs at least one thread");
+        if (queueCapacity < 1)
+            throw new InvalidArgumentException("Executor queue capacity must be at least 1");
+        if (timeoutMillis < 0)
+            throw new InvalidArgumentException("Timeout cannot be negative");
+
+        this.workers = new ThreadPoolExecutor(threads, threads,
+                                              60, TimeUnit.SECONDS,
+                                              new ArrayBlockingQueue<Runnable>(queueCapacity),
+                                              new DaemonThreadFactory("qdb-async", this));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.deadlines = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("qdb-deadline"));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Creates an executor with one thread per session of a pool and no deadline.
+     *
+     * @param pool The pool the operations will run on.
+     * @return A new executor.
+     */
+    public static QdbAsyncExecutor forPool(QdbSessionPool pool) {
+        return new QdbAsyncExecutor(pool.size(), DEFAULT_QUEUE_CAPACITY, NO_TIMEOUT);
+    }
+
+    /**
+     * Schedules an operation, using the default deadline of this executor.
+     *
+     * @param operation The blocking operation to run.
+     * @return A future completed with the result of the operation, or with the exception it threw.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return submit(operation, timeoutMillis);
+    }
+
+    /**
+     * Schedules an operation with a specific deadline.
+     *
+     * @param operation The blocking operation to run.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or NO_TIMEOUT.
+     * @return A future completed with the result of the operation, or with the exception it threw.
+     *         It completes with a TimeoutException if the deadline expires first.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation, long timeoutMillis) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+
+        try {
+            workers.execute(() -> {
+                    if (future.isDone())
+                        return; // <- expired or cancelled while queued
+
+                    try {
+                        T result = operation.get();
+                        if (!future.complete(result))
+                            discard(result); // <- expired while running, nobody will close it
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+                    future.completeExceptionally(new TimeoutException("Operation did not complete within " + timeoutMillis + "ms"));
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> deadline.cancel(false));
+        }
+
+        return future;
+    }
+
+    /**
+     * Gets the number of operations waiting for a worker thread.
+     *
+     * @return The number of queued operations.
+     */
+    public int queued() {
+        return workers.getQueue().size();
+    }
+
+    // Checks if the current thread is a worker of this executor, which must not block
+    // waiting for other operations of the same executor.
+    boolean isWorkerThread() {
+        return current.get() == this;
+    }
+
+    /**
+     * Stops accepting operations. Operations already queued still run, and complete
+     * exceptionally if the cluster they use has been closed in the meantime.
+     */
+    public void close() {
+        workers.shutdown();
+        deadlines.shutdownNow();
+    }
+
+    private static void discard(Object result) {
+        if (result instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable)result).close();
+            } catch (Exception e) {
+                // <- the result is dropped either way
+            }
+        }
+    }
+
+    static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final QdbAsyncExecutor owner; // <- the executor the threads are workers of, or null
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this(prefix, null);
+        }
+
+        DaemonThreadFactory(String prefix, QdbAsyncExecutor owner) {
+            this.prefix = prefix;
+            this.owner = owner;
+        }
+
+        public Thread newThread(Runnable r) {
+            Runnable body = owner == null ? r : () -> {
+                current.set(owner);
+                r.run();
+            };
+            Thread thread = new Thread(body, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
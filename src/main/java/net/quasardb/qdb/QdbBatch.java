@@ -1,7 +1,16 @@
 package net.quasardb.qdb;
 
 import java.lang.AutoCloseable;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import net.quasardb.qdb.jni.*;
 import net.quasardb.qdb.exception.*;
 
@@ -9,22 +18,77 @@ import net.quasardb.qdb.exception.*;
  * A batch containing a list of operation.
  *
  * Batches are used to reduce the number of requests by performing several operations in one request.
+ *
+ * Operations are stored in flat arrays, one slot per operation, which are kept between runs.
+ * A batch can therefore be used as a template: call reset() after run(), replace the contents
+ * of some operations with setContent(), and run it again without allocating new operations.
+ *
+ * The native batch itself cannot be reused: it owns the results of its run, and the native
+ * API only frees them by deleting it. Each run therefore deletes the native batch of the
+ * previous run and initializes a new one, on the same session when possible. What a batch
+ * saves across runs is the Java side: slots, futures, references and pooled buffers.
+ *
+ * The result of every operation is read back, even when some of them fail: the error of
+ * each failed operation is kept by its future, and run() throws the first one once all
+ * results have been read.
+ *
+ * Only blob operations are sent in the native batch: the native API has no batch function
+ * for the others. Integer, tag and entry operations are executed one by one when the batch
+ * runs, in the order they were added, on the session of the batch, so each of them costs
+ * a round trip. runPartitioned() still executes them in parallel across nodes.
  */
 public final class QdbBatch implements AutoCloseable {
-    private final Session session;
-    private LinkedList<QdbBatchOperation> operations; // <- to keep O(1) insertion time
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final QdbSessionPool pool;
+    private Session session; // <- the session the native batch lives on, once run
+    private boolean closed;
     private boolean hasRun;
     private int successCount;
-    private long batch;
+    private long batch; // <- pins its session, until deleted
+    private int count;
+    private int nativeCount; // <- operations sent in the native batch, in the last run
+
+    // Number of operations before the first failed one in the last run, or -1 if
+    // the run failed before any result was read.
+    int readCount;
+
+    // Operation slots, indexed by the position of the operation in the batch.
+    QdbBatchOperation[] operations;
+    String[] aliases;
+    ByteBuffer[] contents;
+    ByteBuffer[] comparands;
+    String[] tags;
+    long[] values;
+    long[] expiryTimes;
+    Object[] results;
+    int[] errors;
+    RuntimeException[] failures; // <- raised while reading the result, or null
+
+    // Node-partitioned execution: one child batch per node, and where each operation went.
+    private Map<String, Integer> owners;
+    private List<String> nodes;
+    private List<QdbBatch> partitions;
+    private int[] partitionOf;
+    private int[] positionIn;
+
+    // Pooled buffers owned by the batch, released by clear() and close().
+    private List<ByteBuffer> leases;
+
+    // Pooled buffers holding decompressed results, released with the native batch.
+    private List<ByteBuffer> decodedLeases;
+
+    // Scratch reference reused by every read of the batch.
+    final Reference<ByteBuffer> content = new Reference<ByteBuffer>();
 
     // Protected constructor. Call  QdbCluster.createBatch() to create a batch.
-    protected QdbBatch(Session session) {
-        this.session = session;
-        operations = new LinkedList<QdbBatchOperation>();
+    protected QdbBatch(QdbSessionPool pool) {
+        this.pool = pool;
+        allocateSlots(INITIAL_CAPACITY);
     }
 
     public Session session() {
-        return this.session;
+        return this.session != null ? this.session : pool.primary();
     }
 
     /**
@@ -47,31 +111,324 @@ public final class QdbBatch implements AutoCloseable {
         return new QdbBatchBlob(this, alias);
     }
 
+    /**
+     * Add operations common to all entries to the batch.
+     *
+     * @param alias The alias of the entry you want to add operations for.
+     * @return A handle to a virtual entry on with to perform the operation.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called.
+     */
+    public QdbBatchEntry entry(String alias) {
+        throwIfClosed();
+        throwIfHasRun();
+        return new QdbBatchEntry(this, alias);
+    }
+
+    /**
+     * Add integer operations to the batch.
+     *
+     * For example:
+     * {@code
+     * QdbFuture<Long> result = myBatch.integer("myCounter").add(1);
+     * }
+     *
+     * @param alias The alias of the integer you want to add operations for.
+     * @return A handle to a virtual integer on with to perform the operation.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called.
+     */
+    public QdbBatchInteger integer(String alias) {
+        throwIfClosed();
+        throwIfHasRun();
+        return new QdbBatchInteger(this, alias);
+    }
+
+    /**
+     * Add tag operations to the batch.
+     *
+     * @param alias The alias of the tag you want to add operations for.
+     * @return A handle to a virtual tag on with to perform the operation.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called.
+     */
+    public QdbBatchTag tag(String alias) {
+        throwIfClosed();
+        throwIfHasRun();
+        return new QdbBatchTag(this, alias);
+    }
+
+    /**
+     * Gets a direct buffer from the buffer pool of the cluster, to hold the content of an
+     * operation of this batch. The buffer is released to the pool by clear() and close().
+     *
+     * @param size The number of bytes needed.
+     * @return A cleared direct buffer, whose limit is the requested size.
+     * @throws BatchClosedException If close() has been called.
+     * @see QdbBufferPool#acquire(int)
+     */
+    public ByteBuffer allocate(int size) {
+        throwIfClosed();
+        if (leases == null)
+            leases = new ArrayList<ByteBuffer>();
+
+        ByteBuffer buffer = pool.buffers().acquire(size);
+        leases.add(buffer);
+        return buffer;
+    }
+
+    // Returns the parts copied back to back into a buffer owned by the batch, like allocate().
+    ByteBuffer gather(ByteBuffer[] parts) {
+        ByteBuffer gathered = pool.buffers().gather(parts);
+        if (leases == null)
+            leases = new ArrayList<ByteBuffer>();
+        leases.add(gathered);
+        return gathered;
+    }
+
+    // Returns a content read from the native batch, decompressed into a pooled buffer if the
+    // cluster compresses contents.
+    ByteBuffer decoded(ByteBuffer stored) {
+        QdbCompression compression = pool.compression();
+        if (compression == null || !QdbCompression.isEncoded(stored))
+            return stored;
+
+        ByteBuffer decoded = compression.decode(stored, pool.buffers());
+        if (decodedLeases == null)
+            decodedLeases = new ArrayList<ByteBuffer>();
+        decodedLeases.add(decoded);
+        return decoded;
+    }
+
+    // Returns content compressed, if the cluster compresses contents, and direct:
+    // either content itself or a copy leased with allocate().
+    ByteBuffer stage(String alias, ByteBuffer content) {
+        QdbCompression compression = pool.compression();
+        if (compression != null && content != null) {
+            ByteBuffer encoded = compression.encode(alias, content, pool.buffers());
+            if (leases == null)
+                leases = new ArrayList<ByteBuffer>();
+            leases.add(encoded);
+            return encoded;
+        }
+
+        if (content == null || content.isDirect())
+            return content;
+
+        ByteBuffer direct = allocate(content.remaining());
+        direct.put(content.duplicate());
+        direct.flip();
+        return direct;
+    }
+
     /**
      * Executes all operations in the batch.
      *
-     * A batch can only be run once.
+     * A batch can only be run once, unless reset() is called.
      * Once a batch is run, most method will throw a BatchAlreadyRunException.
      *
+     * Every operation is executed and its result read, even if some fail. The futures
+     * of the failed operations then throw their own error.
+     *
      * @throws BatchClosedException If close() has been called.
      * @throws BatchAlreadyRunException If the run() has been called.
+     * @throws RuntimeException The error of the first failed operation, once all results have been read.
      */
     public void run() {
+        Session session = encode();
+        send(session);
+        decode(session);
+
+        // batch is deleted in close(), so as to keep buffers alive
+    }
+
+    /**
+     * Executes all operations in the batch, grouped by the node that owns their alias.
+     *
+     * Each group is sent as its own native batch, on its own session of the pool, and the
+     * groups run in parallel on threads owned by the pool, at most one per session, and never
+     * on its executor, so this method can be called from an asynchronous operation: a batch
+     * spanning the whole cluster takes as long as its slowest node rather than the sum of all
+     * nodes. Results are available through the same futures as with run().
+     *
+     * The owner of each alias is looked up once and remembered for the next runs of the
+     * batch; the aliases not seen yet are looked up together, in parallel over the sessions
+     * of the pool. A stale owner only affects how operations are grouped, not their result.
+     *
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called.
+     */
+    public void runPartitioned() {
         throwIfClosed();
         throwIfHasRun();
 
-        if (operations.size() > 0) {
-            batch = create_batch(session, operations.size());
-            write_operations_to_batch(session.handle(), batch, operations);
-            successCount = qdb.run_batch(session.handle(), batch, operations.size());
-            read_operations_from_batch(session.handle(), batch, operations);
+        if (count > 0) {
+            int partitionCount = partition();
+
+            // Every node but the one of the first operation runs on a thread of its own,
+            // the calling thread runs the remaining one itself.
+            QdbBatch local = partitions.get(partitionOf[0]);
+            List<CompletableFuture<Void>> pending = new ArrayList<CompletableFuture<Void>>(partitionCount);
+            for (int p = 0; p < partitionCount; ++p) {
+                QdbBatch partition = partitions.get(p);
+                if (partition == local || partition.count == 0)
+                    continue;
 
-            // batch is deleted in close(), so as to keep buffers alive
+                pending.add(CompletableFuture.runAsync(partition::run, pool.partitionThreads()));
+            }
+
+            RuntimeException error = null;
+            try {
+                local.run();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            for (CompletableFuture<Void> f : pending) {
+                try {
+                    f.join();
+                } catch (CompletionException e) {
+                    if (error == null)
+                        error = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+                }
+            }
+
+            merge_partitions(this, partitionCount);
+            if (readCount < 0)
+                throw error; // <- some results were not read back
+
+            hasRun = true;
+            if (readCount < count)
+                throw failures[readCount];
+            return;
         }
 
         hasRun = true;
     }
 
+    /**
+     * Prepares the batch to run again with the same operations.
+     *
+     * The results of the previous run are discarded: buffers returned by its futures
+     * must not be used anymore. The futures of the operations remain valid, and hold
+     * the results of the next run.
+     *
+     * @throws BatchClosedException If close() has been called.
+     */
+    public void reset() {
+        throwIfClosed();
+        Arrays.fill(results, 0, count, null);
+        Arrays.fill(errors, 0, count, 0);
+        Arrays.fill(failures, 0, count, null);
+        successCount = 0;
+        readCount = 0;
+        hasRun = false;
+    }
+
+    /**
+     * Removes all operations from the batch, keeping its slots for the next operations.
+     *
+     * Futures of the removed operations, and buffers returned by allocate(), must not be used anymore.
+     * Results of the last run stay readable until the next run, which frees its native batch.
+     *
+     * @throws BatchClosedException If close() has been called.
+     */
+    public void clear() {
+        throwIfClosed();
+        Arrays.fill(aliases, 0, count, null);
+        Arrays.fill(contents, 0, count, null);
+        Arrays.fill(comparands, 0, count, null);
+        Arrays.fill(tags, 0, count, null);
+        reset();
+        count = 0;
+        releaseLeases();
+    }
+
+    // Gets the error raised while reading the result of an operation, if any.
+    RuntimeException failure(int index) {
+        return failures[index];
+    }
+
+    /**
+     * Gets the position of an operation in the batch, to replace its arguments before running the batch again.
+     *
+     * @param future The future returned when the operation was added.
+     * @return The index to pass to setContent() and the like.
+     * @throws BatchClosedException If close() has been called.
+     * @throws InvalidArgumentException If the future does not belong to an operation of this batch.
+     */
+    public int indexOf(QdbFuture<?> future) {
+        throwIfClosed();
+        if (!(future instanceof QdbBatchFuture) || !((QdbBatchFuture<?>)future).belongsTo(this))
+            throw new InvalidArgumentException("Future does not belong to this batch");
+        return ((QdbBatchFuture<?>)future).index();
+    }
+
+    /**
+     * Replaces the content sent by an operation, for instance a blob put or update.
+     * Heap buffers are copied into a buffer leased with allocate().
+     *
+     * @param index The index of the operation, as returned by indexOf().
+     * @param content The new content.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called, and reset() has not.
+     * @throws InvalidArgumentException If the index is out of range.
+     */
+    public void setContent(int index, ByteBuffer content) {
+        throwIfClosed();
+        throwIfHasRun();
+        throwIfOutOfRange(index);
+        contents[index] = stage(aliases[index], content);
+    }
+
+    /**
+     * Replaces the comparand sent by a compare-and-swap operation.
+     *
+     * @param index The index of the operation, as returned by indexOf().
+     * @param comparand The new comparand.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called, and reset() has not.
+     * @throws InvalidArgumentException If the index is out of range.
+     */
+    public void setComparand(int index, ByteBuffer comparand) {
+        throwIfClosed();
+        throwIfHasRun();
+        throwIfOutOfRange(index);
+        comparands[index] = stage(aliases[index], comparand);
+    }
+
+    /**
+     * Replaces the value sent by an integer operation, for instance the delta of an add.
+     *
+     * @param index The index of the operation, as returned by indexOf().
+     * @param value The new value.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called, and reset() has not.
+     * @throws InvalidArgumentException If the index is out of range.
+     */
+    public void setValue(int index, long value) {
+        throwIfClosed();
+        throwIfHasRun();
+        throwIfOutOfRange(index);
+        values[index] = value;
+    }
+
+    /**
+     * Replaces the expiry time sent by an operation.
+     *
+     * @param index The index of the operation, as returned by indexOf().
+     * @param expiryTime The new expiry time.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the run() has been called, and reset() has not.
+     * @throws InvalidArgumentException If the index is out of range.
+     */
+    public void setExpiryTime(int index, QdbExpiryTime expiryTime) {
+        throwIfClosed();
+        throwIfHasRun();
+        throwIfOutOfRange(index);
+        expiryTimes[index] = expiryTime.toMillisSinceEpoch();
+    }
+
     /**
      * If you forgot to call close() we have you covered.
      */
@@ -87,11 +444,22 @@ public final class QdbBatch implements AutoCloseable {
      * Once this method has been called, most other methods will throw BatchClosedException.
      */
     public void close() {
-        if (batch != 0) {
-            delete_batch(session, batch);
-            batch = 0;
+        deleteBatch();
+        if (partitions != null) {
+            for (QdbBatch partition : partitions) {
+                partition.close();
+            }
+            partitions = null;
         }
+        releaseLeases();
+        closed = true;
         operations = null;
+        aliases = null;
+        contents = null;
+        comparands = null;
+        tags = null;
+        results = null;
+        failures = null;
     }
 
     /**
@@ -104,7 +472,7 @@ public final class QdbBatch implements AutoCloseable {
     public boolean success() {
         throwIfClosed();
         throwIfNotRun();
-        return operations.size() == successCount;
+        return count == successCount;
     }
 
     /**
@@ -115,7 +483,7 @@ public final class QdbBatch implements AutoCloseable {
      */
     public int operationCount() {
         throwIfClosed();
-        return hasRun ? (int)operations.size() : operations.size();
+        return count;
     }
 
     /**
@@ -137,13 +505,83 @@ public final class QdbBatch implements AutoCloseable {
      * @return true if batch has been closed, false if not
      */
     public boolean isClosed() {
-        return operations == null;
+        return closed;
     }
 
-    protected void addOperation(QdbBatchOperation op) {
+    protected int addOperation(QdbBatchOperation op, String alias, ByteBuffer content, ByteBuffer comparand, long expiryTime) {
+        int index = nextSlot(op, alias);
+        contents[index] = stage(alias, content);
+        comparands[index] = stage(alias, comparand);
+        expiryTimes[index] = expiryTime;
+        return index;
+    }
+
+    protected int addOperation(QdbBatchOperation op, String alias, long value, long expiryTime) {
+        int index = nextSlot(op, alias);
+        values[index] = value;
+        expiryTimes[index] = expiryTime;
+        return index;
+    }
+
+    protected int addOperation(QdbBatchOperation op, String alias, String tag) {
+        int index = nextSlot(op, alias);
+        tags[index] = tag;
+        return index;
+    }
+
+    // The three stages of run(), which QdbBatchPipeline runs on different threads.
+    // The session returned by encode() stays leased until decode() or a failing stage,
+    // and is null when the batch is empty.
+    Session encode() {
         throwIfClosed();
         throwIfHasRun();
-        operations.addLast(op);
+
+        if (count == 0)
+            return null;
+
+        readCount = -1;
+        nativeCount = 0;
+        for (int i = 0; i < count; ++i) {
+            if (operations[i].isNative())
+                ++nativeCount;
+        }
+
+        Session session = bind();
+        try {
+            write_operations_to_batch(this, batch, count);
+        } catch (RuntimeException e) {
+            pool.failed(session, e);
+            pool.release(session);
+            throw e;
+        }
+        return session;
+    }
+
+    void send(Session session) {
+        if (session == null)
+            return;
+
+        try {
+            successCount = nativeCount > 0 ? qdb.run_batch(session.handle(), batch, nativeCount) : 0;
+        } catch (RuntimeException e) {
+            pool.failed(session, e);
+            pool.release(session);
+            throw e;
+        }
+    }
+
+    void decode(Session session) {
+        if (session != null) {
+            try {
+                read_operations_from_batch(this, session.handle(), batch, count);
+            } finally {
+                pool.release(session);
+            }
+        }
+
+        hasRun = true;
+        if (readCount >= 0 && readCount < count)
+            throw failures[readCount];
     }
 
     protected boolean hasRun() {
@@ -151,6 +589,201 @@ public final class QdbBatch implements AutoCloseable {
         return hasRun;
     }
 
+    // Leases a session and initializes a native batch on it for the current native operations,
+    // if any. The native batch of the previous run holds the results of that run, and was
+    // initialized for its operation count: it is freed first, on its own session, which
+    // stays open until then even if it has been evicted. The same session is used again
+    // unless it has been evicted.
+    private Session bind() {
+        Session previous = session;
+        boolean reuse = previous != null && pool.acquire(previous);
+        deleteBatch();
+
+        session = reuse ? previous : pool.acquire();
+        if (nativeCount == 0)
+            return session;
+
+        try {
+            batch = create_batch(session, nativeCount);
+        } catch (RuntimeException e) {
+            pool.failed(session, e);
+            pool.release(session);
+            throw e;
+        }
+        pool.pin(session);
+        return session;
+    }
+
+    private void deleteBatch() {
+        if (decodedLeases != null) {
+            for (ByteBuffer buffer : decodedLeases) {
+                pool.buffers().release(buffer);
+            }
+            decodedLeases.clear();
+        }
+        if (batch == 0)
+            return;
+
+        if (!session.isClosed())
+            delete_batch(session, batch); // <- otherwise freed with the session, by QdbCluster.close()
+        batch = 0;
+        pool.unpin(session);
+    }
+
+    private void releaseLeases() {
+        if (leases == null)
+            return;
+
+        for (ByteBuffer buffer : leases) {
+            pool.buffers().release(buffer);
+        }
+        leases.clear();
+    }
+
+    // Copies an operation of another batch, with its arguments, into this batch.
+    private int copyOperation(QdbBatch source, int i) {
+        int index = nextSlot(source.operations[i], source.aliases[i]);
+        contents[index] = source.contents[i];
+        comparands[index] = source.comparands[i];
+        tags[index] = source.tags[i];
+        values[index] = source.values[i];
+        expiryTimes[index] = source.expiryTimes[i];
+        return index;
+    }
+
+    // Spreads the operations over one child batch per owning node.
+    // Returns the number of child batches in use.
+    private int partition() {
+        if (owners == null) {
+            owners = new HashMap<String, Integer>();
+            nodes = new ArrayList<String>();
+            partitions = new ArrayList<QdbBatch>();
+        }
+        if (partitionOf == null || partitionOf.length < count) {
+            partitionOf = new int[operations.length];
+            positionIn = new int[operations.length];
+        }
+        for (QdbBatch partition : partitions) {
+            partition.clear();
+        }
+
+        Set<String> unseen = new LinkedHashSet<String>();
+        for (int i = 0; i < count; ++i) {
+            if (!owners.containsKey(aliases[i]))
+                unseen.add(aliases[i]);
+        }
+        List<String> unknown = new ArrayList<String>(unseen);
+        String[] locations = locate(unknown);
+        for (int i = 0; i < locations.length; ++i) {
+            int p = nodes.indexOf(locations[i]);
+            if (p < 0) {
+                p = nodes.size();
+                nodes.add(locations[i]);
+                partitions.add(new QdbBatch(pool));
+            }
+            owners.put(unknown.get(i), p);
+        }
+
+        for (int i = 0; i < count; ++i) {
+            int p = owners.get(aliases[i]);
+            partitionOf[i] = p;
+            positionIn[i] = partitions.get(p).copyOperation(this, i);
+        }
+
+        // Nodes that own nothing in this run keep an empty child batch, which is skipped.
+        return partitions.size();
+    }
+
+    // Looks up the node of each alias, as host:port. The aliases are split over the sessions
+    // of the pool, and each share is looked up on its own thread with a single session.
+    private String[] locate(List<String> aliases) {
+        String[] locations = new String[aliases.size()];
+        int shares = Math.min(aliases.size(), pool.size());
+        if (shares <= 1) {
+            locate(aliases, locations, 0, 1);
+            return locations;
+        }
+
+        List<CompletableFuture<Void>> pending = new ArrayList<CompletableFuture<Void>>(shares - 1);
+        for (int share = 1; share < shares; ++share) {
+            int first = share;
+            pending.add(CompletableFuture.runAsync(() -> locate(aliases, locations, first, shares), pool.partitionThreads()));
+        }
+        locate(aliases, locations, 0, shares);
+        for (CompletableFuture<Void> f : pending) {
+            try {
+                f.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+            }
+        }
+        return locations;
+    }
+
+    // Looks up the aliases first, first + step, first + 2 * step... on one session.
+    private void locate(List<String> aliases, String[] locations, int first, int step) {
+        if (first >= aliases.size())
+            return;
+
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            for (int i = first; i < aliases.size(); i += step) {
+                qdb.get_location(session.handle(), aliases.get(i), references.stringValue, references.intValue);
+                locations[i] = references.takeString() + ":" + references.takeInt();
+            }
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    private int nextSlot(QdbBatchOperation op, String alias) {
+        throwIfClosed();
+        throwIfHasRun();
+
+        if (count == operations.length)
+            allocateSlots(count * 2);
+
+        int index = count++;
+        operations[index] = op;
+        aliases[index] = alias;
+        contents[index] = null;
+        comparands[index] = null;
+        tags[index] = null;
+        values[index] = 0;
+        expiryTimes[index] = 0;
+        failures[index] = null;
+        return index;
+    }
+
+    private void allocateSlots(int capacity) {
+        if (operations == null) {
+            operations = new QdbBatchOperation[capacity];
+            aliases = new String[capacity];
+            contents = new ByteBuffer[capacity];
+            comparands = new ByteBuffer[capacity];
+            tags = new String[capacity];
+            values = new long[capacity];
+            expiryTimes = new long[capacity];
+            results = new Object[capacity];
+            errors = new int[capacity];
+            failures = new RuntimeException[capacity];
+        } else {
+            operations = Arrays.copyOf(operations, capacity);
+            aliases = Arrays.copyOf(aliases, capacity);
+            contents = Arrays.copyOf(contents, capacity);
+            comparands = Arrays.copyOf(comparands, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+            values = Arrays.copyOf(values, capacity);
+            expiryTimes = Arrays.copyOf(expiryTimes, capacity);
+            results = Arrays.copyOf(results, capacity);
+            errors = Arrays.copyOf(errors, capacity);
+            failures = Arrays.copyOf(failures, capacity);
+        }
+    }
+
     private void throwIfClosed() {
         if (isClosed())
             throw new BatchClosedException("Batch is already closed");
@@ -166,6 +799,11 @@ public final class QdbBatch implements AutoCloseable {
             throw new BatchNotRunException("Batch did not run");
     }
 
+    private void throwIfOutOfRange(int index) {
+        if (index < 0 || index >= count)
+            throw new InvalidArgumentException("No operation at index " + index);
+    }
+
     private static long create_batch(Session session, int count) {
         Reference<Long> batch = new Reference<Long>();
         qdb.init_operations(session.handle(), count, batch);
@@ -176,21 +814,59 @@ public final class QdbBatch implements AutoCloseable {
         qdb.delete_batch(session.handle(), batch);
     }
 
-    private static void write_operations_to_batch(long handle,
+    private static void write_operations_to_batch(QdbBatch slots,
                                                   long batch,
-                                                  Iterable<QdbBatchOperation> operations) {
-        int index = 0;
-        for (QdbBatchOperation op : operations) {
-            op.write(handle, batch, index++);
+                                                  int count) {
+        int position = 0;
+        for (int index = 0; index < count; ++index) {
+            QdbBatchOperation op = slots.operations[index];
+            op.write(slots, batch, position, index);
+            if (op.isNative())
+                ++position;
+        }
+    }
+
+    private static void merge_partitions(QdbBatch slots, int partitionCount) {
+        slots.successCount = 0;
+        for (int p = 0; p < partitionCount; ++p) {
+            QdbBatch partition = slots.partitions.get(p);
+            if (partition.hasRun)
+                slots.successCount += partition.successCount;
+        }
+
+        slots.readCount = slots.count;
+        for (int i = 0; i < slots.count; ++i) {
+            QdbBatch partition = slots.partitions.get(slots.partitionOf[i]);
+            int j = slots.positionIn[i];
+            slots.results[i] = partition.results[j];
+            slots.errors[i] = partition.errors[j];
+            slots.failures[i] = partition.failures[j];
+            if (!partition.hasRun)
+                slots.readCount = -1;
+            else if (slots.failures[i] != null && slots.readCount >= 0)
+                slots.readCount = Math.min(slots.readCount, i);
         }
     }
 
-    private static void read_operations_from_batch(long handle,
+    private static void read_operations_from_batch(QdbBatch slots,
+                                                   long handle,
                                                    long batch,
-                                                   Iterable<QdbBatchOperation> operations) {
-        int index = 0;
-        for (QdbBatchOperation op : operations) {
-            op.read(handle, batch, index++);
+                                                   int count) {
+        slots.readCount = count;
+        int position = 0;
+        for (int index = 0; index < count; ++index) {
+            QdbBatchOperation op = slots.operations[index];
+            try {
+                op.read(slots, handle, batch, position, index);
+                if (!op.isNative())
+                    ++slots.successCount; // <- executed by read(), not counted by run_batch
+            } catch (RuntimeException e) {
+                // run_batch executed every operation: the next results are still there
+                slots.failures[index] = e;
+                slots.readCount = Math.min(slots.readCount, index);
+            }
+            if (op.isNative())
+                ++position;
         }
     }
 }
@@ -5,8 +5,87 @@ import net.quasardb.qdb.jni.*;
 
 /**
  * Add blob operations in a batch.
+ *
+ * When the cluster compresses contents, results are decompressed into buffers owned by the
+ * batch. A compareAndSwap() cannot read the blob first within a batch: its comparand is
+ * compressed like a content and compared as stored, so it only matches contents written
+ * with the same codec and threshold.
  */
 public final class QdbBatchBlob extends QdbBatchEntry {
+    private static final QdbBatchOperation COMPARE_AND_SWAP = new QdbBatchOperation() {
+            @Override
+            public void write(QdbBatch slots, long batch, int position, int index) {
+                qdb.batch_write_blob_compare_and_swap(batch, position, slots.aliases[index], slots.contents[index], slots.comparands[index], slots.expiryTimes[index]);
+            }
+
+            @Override
+            public void read(QdbBatch slots, long handle, long batch, int position, int index) {
+                slots.content.value = null;
+                slots.errors[index] = qdb.batch_read_blob_compare_and_swap(handle, batch, position, slots.aliases[index], slots.content);
+                slots.results[index] = slots.decoded(slots.content.value);
+            }
+        };
+
+    private static final QdbBatchOperation GET = new QdbBatchOperation() {
+            @Override
+            public void write(QdbBatch slots, long batch, int position, int index) {
+                qdb.batch_write_blob_get(batch, position, slots.aliases[index]);
+            }
+
+            @Override
+            public void read(QdbBatch slots, long handle, long batch, int position, int index) {
+                slots.content.value = null;
+                slots.errors[index] = qdb.batch_read_blob_get(handle, batch, position, slots.aliases[index], slots.content);
+                slots.results[index] = slots.decoded(slots.content.value);
+            }
+        };
+
+    private static final QdbBatchOperation GET_AND_UPDATE = new QdbBatchOperation() {
+            @Override
+            public void write(QdbBatch slots, long batch, int position, int index) {
+                qdb.batch_write_blob_get_and_update(batch, position, slots.aliases[index], slots.contents[index], slots.expiryTimes[index]);
+            }
+
+            @Override
+            public void read(QdbBatch slots, long handle, long batch, int position, int index) {
+                slots.content.value = null;
+                slots.errors[index] = qdb.batch_read_blob_get_and_update(handle, batch, position, slots.aliases[index], slots.content);
+                slots.results[index] = slots.decoded(slots.content.value);
+            }
+        };
+
+    private static final QdbBatchOperation PUT = new QdbBatchOperation() {
+            @Override
+            public void write(QdbBatch slots, long batch, int position, int index) {
+                qdb.batch_write_blob_put(batch, position, slots.aliases[index], slots.contents[index], slots.expiryTimes[index]);
+            }
+
+            @Override
+            public void read(QdbBatch slots, long handle, long batch, int position, int index) {
+                slots.errors[index] = qdb.batch_read_blob_put(handle, batch, position, slots.aliases[index]);
+                slots.results[index] = null;
+            }
+        };
+
+    private static final QdbBatchOperation UPDATE = new QdbBatchOperation() {
+            @Override
+            public void write(QdbBatch slots, long batch, int position, int index) {
+                qdb.batch_write_blob_update(batch, position, slots.aliases[index], slots.contents[index], slots.expiryTimes[index]);
+            }
+
+            @Override
+            public void read(QdbBatch slots, long handle, long batch, int position, int index) {
+                slots.errors[index] = qdb.batch_read_blob_update(handle, batch, position, slots.aliases[index]);
+                slots.results[index] = null;
+            }
+        };
+
+    // Adds a "get" operation without a future, for callers that read the slots of the batch.
+    // Returns the index of the operation.
+    static int addGet(QdbBatch batch, String alias) {
+        return batch.addOperation(GET, alias, null, null, 0);
+    }
+
     // Protected constructor. Call QdbCluster.blob() to get an instance.
     protected QdbBatchBlob(QdbBatch batch, String alias) {
         super(batch, alias);
@@ -36,22 +115,8 @@ public final class QdbBatchBlob extends QdbBatchEntry {
     public QdbFuture<ByteBuffer> compareAndSwap(ByteBuffer newContent, ByteBuffer comparand, QdbExpiryTime expiryTime) {
         assertNotAlreadyRun();
 
-        QdbBatchOperation op = new QdbBatchOperation() {
-            @Override
-            public void write(long handle, long batch, int index) {
-                qdb.batch_write_blob_compare_and_swap(batch, index, alias, newContent, comparand, expiryTime.toMillisSinceEpoch());
-            }
-
-            @Override
-            public void read(long handle, long batch, int index) {
-                Reference<ByteBuffer> originalContent = new Reference<ByteBuffer>();
-                error = qdb.batch_read_blob_compare_and_swap(handle, batch, index, alias, originalContent);
-                result = originalContent.value;
-            }
-        };
-        batch.addOperation(op);
-
-        return new QdbBatchFuture<ByteBuffer>(batch, op);
+        int index = batch.addOperation(COMPARE_AND_SWAP, alias, newContent, comparand, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<ByteBuffer>(batch, index);
     }
 
     /**
@@ -63,22 +128,8 @@ public final class QdbBatchBlob extends QdbBatchEntry {
     public QdbFuture<ByteBuffer> get() {
         assertNotAlreadyRun();
 
-        QdbBatchOperation op = new QdbBatchOperation() {
-            @Override
-            public void write(long handle, long batch, int index) {
-                qdb.batch_write_blob_get(batch, index, alias);
-            }
-
-            @Override
-            public void read(long handle, long batch, int index) {
-                Reference<ByteBuffer> content = new Reference<ByteBuffer>();
-                error = qdb.batch_read_blob_get(handle, batch, index, alias, content);
-                result = content.value;
-            }
-        };
-        batch.addOperation(op);
-
-        return new QdbBatchFuture<ByteBuffer>(batch, op);
+        int index = batch.addOperation(GET, alias, null, null, 0);
+        return new QdbBatchFuture<ByteBuffer>(batch, index);
     }
 
     /**
@@ -103,22 +154,8 @@ public final class QdbBatchBlob extends QdbBatchEntry {
     public QdbFuture<ByteBuffer> getAndUpdate(ByteBuffer content, QdbExpiryTime expiryTime) {
         assertNotAlreadyRun();
 
-        QdbBatchOperation op = new QdbBatchOperation() {
-            @Override
-            public void write(long handle, long batch, int index) {
-                qdb.batch_write_blob_get_and_update(batch, index, alias, content, expiryTime.toMillisSinceEpoch());
-            }
-
-            @Override
-            public void read(long handle, long batch, int index) {
-                Reference<ByteBuffer> content = new Reference<ByteBuffer>();
-                error = qdb.batch_read_blob_get_and_update(handle, batch, index, alias, content);
-                result = content.value;
-            }
-        };
-        batch.addOperation(op);
-
-        return new QdbBatchFuture<ByteBuffer>(batch, op);
+        int index = batch.addOperation(GET_AND_UPDATE, alias, content, null, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<ByteBuffer>(batch, index);
     }
 
     /**
@@ -143,22 +180,8 @@ public final class QdbBatchBlob extends QdbBatchEntry {
     public QdbFuture<Void> put(ByteBuffer content, QdbExpiryTime expiryTime) {
         assertNotAlreadyRun();
 
-        QdbBatchOperation op = new QdbBatchOperation() {
-            @Override
-            public void write(long handle, long batch, int index) {
-                qdb.batch_write_blob_put(batch, index, alias, content, expiryTime.toMillisSinceEpoch());
-            }
-
-            @Override
-            public void read(long handle, long batch, int index) {
-                Reference<ByteBuffer> content = new Reference<ByteBuffer>();
-                error = qdb.batch_read_blob_put(handle, batch, index, alias);
-                result = null;
-            }
-        };
-        batch.addOperation(op);
-
-        return new QdbBatchFuture<Void>(batch, op);
+        int index = batch.addOperation(PUT, alias, content, null, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<Void>(batch, index);
     }
 
     /**
@@ -183,21 +206,153 @@ public final class QdbBatchBlob extends QdbBatchEntry {
     public QdbFuture<Void> update(ByteBuffer content, QdbExpiryTime expiryTime) {
         assertNotAlreadyRun();
 
-        QdbBatchOperation op = new QdbBatchOperation() {
-            @Override
-            public void write(long handle, long batch, int index) {
-                qdb.batch_write_blob_update(batch, index, alias, content, expiryTime.toMillisSinceEpoch());
-            }
+        int index = batch.addOperation(UPDATE, alias, content, null, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<Void>(batch, index);
+    }
 
-            @Override
-            public void read(long handle, long batch, int index) {
-                Reference<ByteBuffer> content = new Reference<ByteBuffer>();
-                error = qdb.batch_read_blob_update(handle, batch, index, alias);
-                result = null;
-            }
-        };
-        batch.addOperation(op);
+    /**
+     * Adds a "compareAndSwap" operation to the batch, copying the arrays into buffers owned by the batch.
+     *
+     * @param newContent The content to be updated to the server in case of match.
+     * @param comparand The content to be compared to.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#compareAndSwap(byte[], byte[])
+     */
+    public QdbFuture<ByteBuffer> compareAndSwap(byte[] newContent, byte[] comparand) {
+        return this.compareAndSwap(ByteBuffer.wrap(newContent), ByteBuffer.wrap(comparand));
+    }
+
+    /**
+     * Adds a "compareAndSwap" operation to the batch, copying the arrays into buffers owned by the batch.
+     *
+     * @param newContent The content to be updated to the server, in case of match.
+     * @param comparand The content to be compared to.
+     * @param expiryTime The new expiry time of the blob, in case of match
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#compareAndSwap(byte[], byte[], QdbExpiryTime)
+     */
+    public QdbFuture<ByteBuffer> compareAndSwap(byte[] newContent, byte[] comparand, QdbExpiryTime expiryTime) {
+        return this.compareAndSwap(ByteBuffer.wrap(newContent), ByteBuffer.wrap(comparand), expiryTime);
+    }
+
+    /**
+     * Adds a "getAndUpdate" operation to the batch, copying the array into a buffer owned by the batch.
+     *
+     * @param content The content of the blob to be set, before being replaced.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#getAndUpdate(byte[])
+     */
+    public QdbFuture<ByteBuffer> getAndUpdate(byte[] content) {
+        return this.getAndUpdate(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Adds a "getAndUpdate" operation to the batch, copying the array into a buffer owned by the batch.
+     *
+     * @param content The content of the blob to be set, before being replaced.
+     * @param expiryTime The new expiry time of the blob.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#getAndUpdate(byte[], QdbExpiryTime)
+     */
+    public QdbFuture<ByteBuffer> getAndUpdate(byte[] content, QdbExpiryTime expiryTime) {
+        return this.getAndUpdate(ByteBuffer.wrap(content), expiryTime);
+    }
+
+    /**
+     * Adds a "put" operation to the batch, copying the array into a buffer owned by the batch.
+     *
+     * @param content The content of the blob to be created.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#put(byte[])
+     */
+    public QdbFuture<Void> put(byte[] content) {
+        return this.put(ByteBuffer.wrap(content));
+    }
 
-        return new QdbBatchFuture<Void>(batch, op);
+    /**
+     * Adds a "put" operation to the batch, copying the array into a buffer owned by the batch.
+     *
+     * @param content The content of the blob to be created.
+     * @param expiryTime The expiry time of the blob.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#put(byte[], QdbExpiryTime)
+     */
+    public QdbFuture<Void> put(byte[] content, QdbExpiryTime expiryTime) {
+        return this.put(ByteBuffer.wrap(content), expiryTime);
+    }
+
+    /**
+     * Adds an "update" operation to the batch, copying the array into a buffer owned by the batch.
+     *
+     * @param content The content of the blob to be set.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#update(byte[])
+     */
+    public QdbFuture<Void> update(byte[] content) {
+        return this.update(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Adds an "update" operation to the batch, copying the array into a buffer owned by the batch.
+     *
+     * @param content The content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#update(byte[], QdbExpiryTime)
+     */
+    public QdbFuture<Void> update(byte[] content, QdbExpiryTime expiryTime) {
+        return this.update(ByteBuffer.wrap(content), expiryTime);
+    }
+
+    /**
+     * Adds a "put" operation to the batch, gathering several parts into one content in a
+     * buffer owned by the batch. A single part is added as is, like put(ByteBuffer).
+     *
+     * @param parts The parts of the content of the blob to be created, in order.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#put(ByteBuffer...)
+     */
+    public QdbFuture<Void> put(ByteBuffer... parts) {
+        return this.put(parts, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Adds a "put" operation to the batch, gathering several parts into one content in a
+     * buffer owned by the batch. A single part is added as is, like put(ByteBuffer).
+     *
+     * @param parts The parts of the content of the blob to be created, in order.
+     * @param expiryTime The expiry time of the blob.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#put(ByteBuffer[], QdbExpiryTime)
+     */
+    public QdbFuture<Void> put(ByteBuffer[] parts, QdbExpiryTime expiryTime) {
+        assertNotAlreadyRun();
+        return this.put(parts.length == 1 ? parts[0] : batch.gather(parts), expiryTime);
+    }
+
+    /**
+     * Adds an "update" operation to the batch, gathering several parts into one content in a
+     * buffer owned by the batch. A single part is added as is, like update(ByteBuffer).
+     *
+     * @param parts The parts of the content of the blob to be set, in order.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#update(ByteBuffer...)
+     */
+    public QdbFuture<Void> update(ByteBuffer... parts) {
+        return this.update(parts, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Adds an "update" operation to the batch, gathering several parts into one content in a
+     * buffer owned by the batch. A single part is added as is, like update(ByteBuffer).
+     *
+     * @param parts The parts of the content of the blob to be set, in order.
+     * @param expiryTime The new expiry time of the blob.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbBlob#update(ByteBuffer[], QdbExpiryTime)
+     */
+    public QdbFuture<Void> update(ByteBuffer[] parts, QdbExpiryTime expiryTime) {
+        assertNotAlreadyRun();
+        return this.update(parts.length == 1 ? parts[0] : batch.gather(parts), expiryTime);
     }
 }
@@ -0,0 +1,377 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Groups concurrent single-entry operations into batches.
+ *
+ * Operations submitted from any thread are collected for at most maxDelayMillis, or until
+ * maxBatchSize operations are waiting, and then sent together as one QdbBatch. Every caller
+ * gets a future holding its own result or its own error. Batches are kept and reused by the
+ * next dispatches.
+ *
+ * Blob operations share one native batch. The native API has no batch function for integer
+ * and remove operations: they are executed one by one on the session of the batch, so
+ * grouping them saves the dispatch, not the round trips.
+ *
+ * Call close() to send the operations that are still waiting.
+ */
+public final class QdbBatchCoalescer implements AutoCloseable {
+    private final QdbSessionPool pool;
+    private final long maxDelayMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService timer;
+
+    private final Object lock = new Object();
+    private List<Request<?>> pending;
+    private final ArrayDeque<QdbBatch> idle = new ArrayDeque<QdbBatch>(); // <- batches between dispatches
+    private boolean closed;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong largestBatchSize = new AtomicLong();
+
+    // Protected constructor. Call QdbCluster.createCoalescer() to get an instance.
+    protected QdbBatchCoalescer(QdbSessionPool pool, long maxDelayMillis, int maxBatchSize) {
+        if (maxDelayMillis < 0)
+            throw new InvalidArgumentException("Maximum delay cannot be negative");
+        if (maxBatchSize < 1)
+            throw new InvalidArgumentException("Maximum batch size must be at least 1");
+
+        this.pool = pool;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.timer = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread thread = new Thread(r, "qdb-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.pending = new ArrayList<Request<?>>(maxBatchSize);
+    }
+
+    /**
+     * Reads the content of a blob.
+     *
+     * @param alias The alias of the blob.
+     * @return A future completed with a copy of the content of the blob, in a buffer leased
+     *         from the buffer pool of the cluster. Call close() on it to return it to the pool.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbBlob#get()
+     */
+    public CompletableFuture<Buffer> getBlob(String alias) {
+        return submit(new Request<Buffer>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.blob(alias).get();
+                }
+
+                Buffer convert(Object result) {
+                    // Results of blob reads live in the batch, which is reused by the next dispatch.
+                    return result == null ? null : QdbPooledBuffer.copyOf(pool, (ByteBuffer)result);
+                }
+            });
+    }
+
+    /**
+     * Creates a blob. Fails if the blob already exists.
+     *
+     * @param alias The alias of the blob.
+     * @param content The content of the blob to be created.
+     * @return A future completed once the blob has been created.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbBlob#put(ByteBuffer)
+     */
+    public CompletableFuture<Void> putBlob(String alias, ByteBuffer content) {
+        return submit(new Request<Void>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.blob(alias).put(content);
+                }
+            });
+    }
+
+    /**
+     * Replaces the content of a blob.
+     *
+     * @param alias The alias of the blob.
+     * @param content The content of the blob to be set.
+     * @return A future completed once the blob has been updated.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbBlob#update(ByteBuffer)
+     */
+    public CompletableFuture<Void> updateBlob(String alias, ByteBuffer content) {
+        return submit(new Request<Void>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.blob(alias).update(content);
+                }
+            });
+    }
+
+    /**
+     * Reads the value of an integer.
+     *
+     * @param alias The alias of the integer.
+     * @return A future completed with the current value.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbInteger#get()
+     */
+    public CompletableFuture<Long> getInteger(String alias) {
+        return submit(new Request<Long>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.integer(alias).get();
+                }
+            });
+    }
+
+    /**
+     * Atomically adds a value to an integer.
+     *
+     * @param alias The alias of the integer.
+     * @param delta The increment to add to the current value.
+     * @return A future completed with the resulting value.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbInteger#add(long)
+     */
+    public CompletableFuture<Long> addInteger(String alias, long delta) {
+        return submit(new Request<Long>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.integer(alias).add(delta);
+                }
+            });
+    }
+
+    /**
+     * Updates an integer or creates it if it does not exist.
+     *
+     * @param alias The alias of the integer.
+     * @param newValue The new value of the integer.
+     * @return A future completed with true if the integer was created, or false it it was updated.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbInteger#update(long)
+     */
+    public CompletableFuture<Boolean> updateInteger(String alias, long newValue) {
+        return submit(new Request<Boolean>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.integer(alias).update(newValue);
+                }
+            });
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param alias The alias of the entry.
+     * @return A future completed once the entry has been removed.
+     * @throws ClusterClosedException If close() has been called.
+     * @see QdbEntry#remove()
+     */
+    public CompletableFuture<Void> remove(String alias) {
+        return submit(new Request<Void>() {
+                QdbFuture<?> enqueue(QdbBatch batch) {
+                    return batch.entry(alias).remove();
+                }
+            });
+    }
+
+    /**
+     * Gets the number of batches sent so far.
+     *
+     * @return The number of batches.
+     */
+    public long batchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Gets the number of operations sent so far.
+     *
+     * @return The number of operations.
+     */
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets the average number of operations per batch sent so far.
+     *
+     * @return The average batch size, or 0 if no batch has been sent.
+     */
+    public double averageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0 : (double)requestCount.get() / batches;
+    }
+
+    /**
+     * Gets the largest number of operations sent in a single batch so far.
+     *
+     * @return The largest batch size.
+     */
+    public long largestBatchSize() {
+        return largestBatchSize.get();
+    }
+
+    /**
+     * Sends the operations that are waiting, and stops accepting new ones.
+     */
+    public void close() {
+        List<Request<?>> requests;
+        List<QdbBatch> batches;
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            requests = pending;
+            pending = null;
+            batches = new ArrayList<QdbBatch>(idle);
+            idle.clear();
+        }
+
+        timer.shutdownNow();
+        for (QdbBatch batch : batches) {
+            batch.close();
+        }
+        if (!requests.isEmpty())
+            dispatch(requests);
+    }
+
+    private <T> CompletableFuture<T> submit(Request<T> request) {
+        List<Request<?>> full = null;
+
+        synchronized (lock) {
+            if (closed)
+                throw new ClusterClosedException("Coalescer is already closed");
+
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new ArrayList<Request<?>>(maxBatchSize);
+            } else if (pending.size() == 1) {
+                List<Request<?>> window = pending;
+                timer.schedule(() -> flush(window), maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null)
+            dispatchAsync(full);
+
+        return request.future;
+    }
+
+    // Sends the window opened by the timer, unless it has been sent because it got full.
+    private void flush(List<Request<?>> window) {
+        synchronized (lock) {
+            if (pending != window || window.isEmpty())
+                return;
+            pending = new ArrayList<Request<?>>(maxBatchSize);
+        }
+
+        dispatchAsync(window);
+    }
+
+    // Native calls block, so batches run on the executor rather than on the caller or the timer.
+    private void dispatchAsync(List<Request<?>> requests) {
+        pool.executor().submit(() -> {
+                dispatch(requests);
+                return null;
+            }, QdbAsyncExecutor.NO_TIMEOUT)
+            .whenComplete((result, error) -> {
+                    if (error != null)
+                        fail(requests, 0, error);
+                });
+    }
+
+    // Sends the requests as one batch. Every operation is executed and read back, so each
+    // request completes with its own result or error, and none is sent twice.
+    private void dispatch(List<Request<?>> requests) {
+        batchCount.incrementAndGet();
+        requestCount.addAndGet(requests.size());
+        largestBatchSize.accumulateAndGet(requests.size(), Math::max);
+
+        QdbBatch batch = take();
+        try {
+            for (Request<?> request : requests) {
+                request.slot = request.enqueue(batch);
+            }
+
+            try {
+                batch.run();
+            } catch (RuntimeException e) {
+                if (batch.readCount < 0) {
+                    // Nothing was read back: the whole batch failed.
+                    fail(requests, 0, e);
+                    return;
+                }
+                // <- the failed operations hold their own error
+            }
+
+            for (Request<?> request : requests) {
+                request.complete();
+            }
+        } catch (RuntimeException e) {
+            fail(requests, 0, e);
+        } finally {
+            recycle(batch);
+        }
+    }
+
+    // Gets an idle batch, or a new one if every batch is running.
+    private QdbBatch take() {
+        synchronized (lock) {
+            QdbBatch batch = idle.poll();
+            if (batch != null)
+                return batch;
+        }
+        return new QdbBatch(pool);
+    }
+
+    // Clears a batch for the next dispatch, or closes it if the coalescer has been closed.
+    private void recycle(QdbBatch batch) {
+        try {
+            batch.clear();
+        } catch (RuntimeException e) {
+            batch.close();
+            return;
+        }
+
+        synchronized (lock) {
+            if (!closed) {
+                idle.push(batch);
+                return;
+            }
+        }
+        batch.close();
+    }
+
+    // Fails the requests from offset onwards. Requests that already completed are left alone.
+    private static void fail(List<Request<?>> requests, int offset, Throwable error) {
+        for (int i = offset; i < requests.size(); ++i) {
+            requests.get(i).future.completeExceptionally(error);
+        }
+    }
+
+    private abstract static class Request<T> {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        QdbFuture<?> slot;
+
+        abstract QdbFuture<?> enqueue(QdbBatch batch);
+
+        // The future returned by enqueue() holds a T, unless convert() is overridden.
+        @SuppressWarnings("unchecked")
+        T convert(Object result) {
+            return (T)result;
+        }
+
+        void complete() {
+            try {
+                future.complete(convert(slot.get()));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
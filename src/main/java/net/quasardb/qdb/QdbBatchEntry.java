@@ -5,16 +5,108 @@ import net.quasardb.qdb.exception.BatchAlreadyRunException;
 
 /**
  * Add operations in a batch.
+ *
+ * The native API has no batch function for these operations: they are executed one by one
+ * with their single-entry function when the batch runs, each with its own round trip.
  */
 public class QdbBatchEntry {
     protected final QdbBatch batch;
     protected final String alias;
 
+    private static final QdbBatchOperation REMOVE = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                slots.errors[index] = qdb.remove(handle, slots.aliases[index]);
+                slots.results[index] = null;
+            }
+        };
+
+    static final QdbBatchOperation ATTACH_TAG = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                int err = qdb.attach_tag(handle, slots.aliases[index], slots.tags[index]);
+                slots.errors[index] = err;
+                slots.results[index] = err != qdb_error.tag_already_set;
+            }
+        };
+
+    static final QdbBatchOperation DETACH_TAG = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                int err = qdb.detach_tag(handle, slots.aliases[index], slots.tags[index]);
+                slots.errors[index] = err;
+                slots.results[index] = err != qdb_error.tag_not_set;
+            }
+        };
+
+    private static final QdbBatchOperation EXPIRES_AT = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                slots.errors[index] = qdb.expires_at(handle, slots.aliases[index], slots.expiryTimes[index]);
+                slots.results[index] = null;
+            }
+        };
+
     protected QdbBatchEntry(QdbBatch batch, String alias) {
         this.batch = batch;
         this.alias = alias;
     }
 
+    /**
+     * Adds an "attachTag" operation to the batch: "Attaches a tag to the entry. The tag is created if it does not exist."
+     *
+     * @param tag The alias of the tag to attach.
+     * @return A future that will contain true if the tag has been attached, false if it was already attached.
+     * @see QdbEntry#attachTag(String)
+     */
+    public QdbFuture<Boolean> attachTag(String tag) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(ATTACH_TAG, alias, tag);
+        return new QdbBatchFuture<Boolean>(batch, index);
+    }
+
+    /**
+     * Adds a "detachTag" operation to the batch: "Detaches a tag from the entry."
+     *
+     * @param tag The alias of the tag to detach.
+     * @return A future that will contain true if the tag has been detached, false if the tag was not attached.
+     * @see QdbEntry#detachTag(String)
+     */
+    public QdbFuture<Boolean> detachTag(String tag) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(DETACH_TAG, alias, tag);
+        return new QdbBatchFuture<Boolean>(batch, index);
+    }
+
+    /**
+     * Adds an "expiresAt" operation to the batch: "Sets the expiry time of an existing entry."
+     *
+     * @param expiryTime The new expiry time of the entry.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbExpirableEntry#expiryTime(QdbExpiryTime)
+     */
+    public QdbFuture<Void> expiresAt(QdbExpiryTime expiryTime) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(EXPIRES_AT, alias, 0, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<Void>(batch, index);
+    }
+
+    /**
+     * Adds a "remove" operation to the batch: "Removes the entry from the database."
+     *
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbEntry#remove()
+     */
+    public QdbFuture<Void> remove() {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(REMOVE, alias, null, null, 0);
+        return new QdbBatchFuture<Void>(batch, index);
+    }
+
     protected void assertNotAlreadyRun() {
         if (batch.hasRun())
             throw new BatchAlreadyRunException("Batch already ran before");
@@ -5,22 +5,46 @@ import net.quasardb.qdb.exception.*;
 
 public final class QdbBatchFuture<T> implements QdbFuture<T> {
     private final QdbBatch batch;
-    private final QdbBatchOperation op;
+    private final int index;
 
-    protected QdbBatchFuture(QdbBatch batch, QdbBatchOperation op) {
+    protected QdbBatchFuture(QdbBatch batch, int index) {
         this.batch = batch;
-        this.op = op;
+        this.index = index;
     }
 
+    /**
+     * Gets the result of the operation.
+     *
+     * @return The result of the operation.
+     * @throws BatchNotRunException If the batch has not been run.
+     * @throws RuntimeException The error raised by the operation, if it failed.
+     */
     public final T get() {
         if (!batch.hasRun())
             throw new BatchNotRunException("Batch did not run");
-        return (T)op.result;
+        RuntimeException failure = batch.failure(index);
+        if (failure != null)
+            throw failure;
+        return (T)batch.results[index];
     }
 
     public boolean success() {
         if (!batch.hasRun())
             throw new BatchNotRunException("Batch did not run");
-        return qdb_error.severity(op.error) == qdb_err_severity.info;
+        return batch.failure(index) == null && qdb_error.severity(batch.errors[index]) == qdb_err_severity.info;
+    }
+
+    boolean belongsTo(QdbBatch batch) {
+        return this.batch == batch;
+    }
+
+    /**
+     * Gets the position of the operation in the batch.
+     *
+     * @return The index to pass to QdbBatch.setContent() and the like.
+     * @see QdbBatch#indexOf(QdbFuture)
+     */
+    public int index() {
+        return index;
     }
 }
@@ -0,0 +1,131 @@
+package net.quasardb.qdb;
+
+import net.quasardb.qdb.jni.*;
+
+/**
+ * Add integer operations in a batch.
+ *
+ * The native API has no batch function for integers: these operations are executed one by
+ * one with their single-entry function when the batch runs, in the order they were added,
+ * each with its own round trip.
+ */
+public final class QdbBatchInteger extends QdbBatchEntry {
+    private static final QdbBatchOperation ADD = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                QdbReferences references = QdbReferences.get();
+                slots.errors[index] = qdb.int_add(handle, slots.aliases[index], slots.values[index], references.longValue);
+                slots.results[index] = references.takeLong();
+            }
+        };
+
+    private static final QdbBatchOperation GET = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                QdbReferences references = QdbReferences.get();
+                slots.errors[index] = qdb.int_get(handle, slots.aliases[index], references.longValue);
+                slots.results[index] = references.takeLong();
+            }
+        };
+
+    private static final QdbBatchOperation PUT = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                slots.errors[index] = qdb.int_put(handle, slots.aliases[index], slots.values[index], slots.expiryTimes[index]);
+                slots.results[index] = null;
+            }
+        };
+
+    private static final QdbBatchOperation UPDATE = new QdbBatchOperation.Direct() {
+            @Override
+            public void execute(QdbBatch slots, long handle, int index) {
+                int err = qdb.int_update(handle, slots.aliases[index], slots.values[index], slots.expiryTimes[index]);
+                slots.errors[index] = err;
+                slots.results[index] = err == qdb_error.ok_created;
+            }
+        };
+
+    // Protected constructor. Call QdbBatch.integer() to get an instance.
+    protected QdbBatchInteger(QdbBatch batch, String alias) {
+        super(batch, alias);
+    }
+
+    /**
+     * Adds an "add" operation to the batch: "Atomically adds the given value to the current value."
+     *
+     * @param delta The increment to add to the current value.
+     * @return A future that will contain the resulting value after the batch is run.
+     * @see QdbInteger#add(long)
+     */
+    public QdbFuture<Long> add(long delta) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(ADD, alias, delta, 0);
+        return new QdbBatchFuture<Long>(batch, index);
+    }
+
+    /**
+     * Adds a "get" operation to the batch: "Reads the current value of the integer."
+     *
+     * @return A future that will contain the value of the integer after the batch is run.
+     * @see QdbInteger#get()
+     */
+    public QdbFuture<Long> get() {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(GET, alias, 0, 0);
+        return new QdbBatchFuture<Long>(batch, index);
+    }
+
+    /**
+     * Adds a "put" operation to the batch: "Creates a new integer. Errors if the integer already exists."
+     *
+     * @param initialValue The value of the new integer.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbInteger#put(long)
+     */
+    public QdbFuture<Void> put(long initialValue) {
+        return this.put(initialValue, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Adds a "put" operation to the batch: "Creates a new integer. Errors if the integer already exists."
+     *
+     * @param initialValue The value of the new integer.
+     * @param expiryTime The expiry time of the entry.
+     * @return A future that will contain the result of the operation after the batch is run.
+     * @see QdbInteger#put(long, QdbExpiryTime)
+     */
+    public QdbFuture<Void> put(long initialValue, QdbExpiryTime expiryTime) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(PUT, alias, initialValue, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<Void>(batch, index);
+    }
+
+    /**
+     * Adds an "update" operation to the batch: "Updates an existing integer or creates one if it does not exist."
+     *
+     * @param newValue The new value of the integer.
+     * @return A future that will contain true if the integer was created, or false it it was updated.
+     * @see QdbInteger#update(long)
+     */
+    public QdbFuture<Boolean> update(long newValue) {
+        return this.update(newValue, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Adds an "update" operation to the batch: "Updates an existing integer or creates one if it does not exist."
+     *
+     * @param newValue The new value of the integer.
+     * @param expiryTime The expiry time of the entry.
+     * @return A future that will contain true if the integer was created, or false it it was updated.
+     * @see QdbInteger#update(long, QdbExpiryTime)
+     */
+    public QdbFuture<Boolean> update(long newValue, QdbExpiryTime expiryTime) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(UPDATE, alias, newValue, expiryTime.toMillisSinceEpoch());
+        return new QdbBatchFuture<Boolean>(batch, index);
+    }
+}
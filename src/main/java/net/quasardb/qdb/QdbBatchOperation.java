@@ -1,8 +1,38 @@
 package net.quasardb.qdb;
 
+// The kind of an operation in a batch. Implementations are stateless and shared:
+// the arguments and the result of each operation live in the slots of the batch.
+//
+// index is the slot of the operation in the batch, position its place in the native
+// batch: operations that are not native are left out of the native batch.
 abstract class QdbBatchOperation {
-    public abstract void write(long handle, long batch, int index);
-    public abstract void read(long handle, long batch, int index);
-    public Object result;
-    public int error;
+    public abstract void write(QdbBatch slots, long batch, int position, int index);
+    public abstract void read(QdbBatch slots, long handle, long batch, int position, int index);
+
+    // Whether the operation is sent in the native batch. Only blobs have batch functions in
+    // the native API: other operations are Direct, and make their own request.
+    boolean isNative() {
+        return true;
+    }
+
+    // An operation without a batch function, executed with its single-entry function on the
+    // session of the batch, once the native batch has run. Operations of this kind execute in
+    // the order they were added to the batch, but each one costs a round trip.
+    abstract static class Direct extends QdbBatchOperation {
+        public abstract void execute(QdbBatch slots, long handle, int index);
+
+        @Override
+        public final void write(QdbBatch slots, long batch, int position, int index) {
+        }
+
+        @Override
+        public final void read(QdbBatch slots, long handle, long batch, int position, int index) {
+            execute(slots, handle, index);
+        }
+
+        @Override
+        final boolean isNative() {
+            return false;
+        }
+    }
 }
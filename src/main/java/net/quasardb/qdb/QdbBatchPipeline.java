@@ -0,0 +1,150 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.util.concurrent.*;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Runs a sequence of batches with their stages overlapped.
+ *
+ * QdbBatch.run() encodes the operations, sends them and decodes the results one after the
+ * other. A pipeline splits these stages: the caller encodes batch N+1 while a sender thread
+ * waits for batch N on the wire and a reader thread decodes the results of batch N-1.
+ *
+ * The pipeline owns a ring of depth batches. next() hands out the oldest one, cleared, once
+ * its previous run has completed; its results stay valid until it runs again. The batches
+ * of the ring keep their slots and futures, but like any QdbBatch, each run initializes a
+ * new native batch and deletes the previous one.
+ * For example:
+ * {@code
+ * try (QdbBatchPipeline pipeline = cluster.createBatchPipeline(3)) {
+ *     for (List<String> chunk : chunks) {
+ *         QdbBatch batch = pipeline.next();
+ *         for (String alias : chunk)
+ *             batch.blob(alias).get();
+ *         pipeline.submit(batch).thenAccept(this::consume);
+ *     }
+ * }
+ * }
+ */
+public final class QdbBatchPipeline implements AutoCloseable {
+    private final QdbBatch[] ring;
+    private final CompletableFuture<?>[] runs;
+    private final ExecutorService sender;
+    private final ExecutorService reader;
+    private int next;
+    private boolean closed;
+
+    // Protected constructor. Call QdbCluster.createBatchPipeline() to get an instance.
+    protected QdbBatchPipeline(QdbSessionPool pool, int depth) {
+        if (depth < 2)
+            throw new InvalidArgumentException("Pipeline depth must be at least 2");
+
+        this.ring = new QdbBatch[depth];
+        this.runs = new CompletableFuture<?>[depth];
+        for (int i = 0; i < depth; ++i) {
+            ring[i] = new QdbBatch(pool);
+        }
+        this.sender = Executors.newSingleThreadExecutor(daemon("qdb-pipeline-send"));
+        this.reader = Executors.newSingleThreadExecutor(daemon("qdb-pipeline-read"));
+    }
+
+    /**
+     * Gets the next batch of the ring, cleared. Blocks until its previous run has completed.
+     *
+     * @return An empty batch, to fill then pass to submit().
+     * @throws BatchClosedException If close() has been called.
+     */
+    public QdbBatch next() {
+        throwIfClosed();
+
+        int slot = next;
+        next = (next + 1) % ring.length;
+
+        await(runs[slot]);
+        runs[slot] = null;
+        ring[slot].clear();
+        return ring[slot];
+    }
+
+    /**
+     * Encodes a batch on the calling thread, then queues it to be sent and decoded.
+     * Batches are sent and decoded in the order they are submitted.
+     *
+     * @param batch A batch returned by next().
+     * @return A future completed with the batch once its results can be read, or with the exception raised by its run.
+     * @throws BatchClosedException If close() has been called.
+     * @throws BatchAlreadyRunException If the batch has been submitted since next() returned it.
+     * @throws InvalidArgumentException If the batch does not come from this pipeline.
+     */
+    public CompletableFuture<QdbBatch> submit(QdbBatch batch) {
+        throwIfClosed();
+
+        int slot = slotOf(batch);
+        if (runs[slot] != null)
+            throw new BatchAlreadyRunException("Batch has already been submitted");
+
+        Session session = batch.encode();
+
+        CompletableFuture<QdbBatch> run = CompletableFuture
+            .runAsync(() -> batch.send(session), sender)
+            .thenApplyAsync((ignored) -> {
+                    batch.decode(session);
+                    return batch;
+                }, reader);
+
+        runs[slot] = run;
+        return run;
+    }
+
+    /**
+     * Waits for the batches in flight, then releases the native batches of the ring.
+     */
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        for (CompletableFuture<?> run : runs) {
+            await(run);
+        }
+        sender.shutdown();
+        reader.shutdown();
+        for (QdbBatch batch : ring) {
+            batch.close();
+        }
+    }
+
+    private int slotOf(QdbBatch batch) {
+        for (int i = 0; i < ring.length; ++i) {
+            if (ring[i] == batch)
+                return i;
+        }
+        throw new InvalidArgumentException("Batch does not belong to this pipeline");
+    }
+
+    // Waits for a run, whose failure has already been reported through its future.
+    private static void await(CompletableFuture<?> run) {
+        if (run == null)
+            return;
+
+        try {
+            run.join();
+        } catch (CompletionException | CancellationException e) {
+            // <- reported to the caller of submit()
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return (r) -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void throwIfClosed() {
+        if (closed)
+            throw new BatchClosedException("Pipeline is already closed");
+    }
+}
@@ -0,0 +1,193 @@
+package net.quasardb.qdb;
+
+import java.util.concurrent.TimeUnit;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Adjusts the size of batches at runtime, toward a target latency.
+ *
+ * The sizer follows an additive-increase, multiplicative-decrease rule: each batch that
+ * completes within the target latency raises the limits by a fixed step; a batch that is
+ * too slow, or fails because a node cannot be reached, halves them. Operations that fail on
+ * their own, for instance because their alias already exists or does not exist, say nothing
+ * about congestion and are ignored. A timeout shows up as a batch slower than the target.
+ * The limits therefore settle just under the size the cluster can absorb within the target,
+ * and follow changes in payload size and load.
+ *
+ * When several batches are in flight, those started before a decrease were sized with the
+ * old limits: their outcome is ignored, so one congestion event halves the limits once.
+ *
+ * Fill batches until isFull() returns true, then run them with run(), or report their
+ * outcome with record() when they are run elsewhere. A sizer can be shared between threads.
+ */
+public final class QdbBatchSizer {
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final long targetNanos;
+    private final int minOperations;
+    private final int maxOperations;
+    private final int operationStep;
+    private final long minBytes;
+    private final long maxBytes;
+    private final long byteStep;
+
+    private int operationLimit;
+    private long byteLimit;
+    private double averageNanos;
+    private long batches;
+    private long decreases;
+    private long lastDecreaseNanos = Long.MIN_VALUE; // <- System.nanoTime() of the last decrease
+
+    /**
+     * Creates a sizer.
+     *
+     * @param targetLatencyMillis The latency each batch should stay under, in milliseconds.
+     * @param minOperations The lowest operation count per batch.
+     * @param maxOperations The highest operation count per batch.
+     * @param minBytes The lowest payload size per batch, in bytes.
+     * @param maxBytes The highest payload size per batch, in bytes.
+     * @throws InvalidArgumentException If a limit is lower than 1, or a minimum is higher than its maximum.
+     */
+    public QdbBatchSizer(long targetLatencyMillis, int minOperations, int maxOperations, long minBytes, long maxBytes) {
+        if (targetLatencyMillis < 1)
+            throw new InvalidArgumentException("Target latency must be at least 1ms");
+        if (minOperations < 1 || minOperations > maxOperations)
+            throw new InvalidArgumentException("Operation limits must satisfy 1 <= min <= max");
+        if (minBytes < 1 || minBytes > maxBytes)
+            throw new InvalidArgumentException("Byte limits must satisfy 1 <= min <= max");
+
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.minOperations = minOperations;
+        this.maxOperations = maxOperations;
+        this.operationStep = Math.max(1, (maxOperations - minOperations) / 64);
+        this.minBytes = minBytes;
+        this.maxBytes = maxBytes;
+        this.byteStep = Math.max(1, (maxBytes - minBytes) / 64);
+        this.operationLimit = minOperations;
+        this.byteLimit = minBytes;
+    }
+
+    /**
+     * Gets the current operation count per batch.
+     *
+     * @return The number of operations a batch should hold.
+     */
+    public synchronized int operationLimit() {
+        return operationLimit;
+    }
+
+    /**
+     * Gets the current payload size per batch.
+     *
+     * @return The number of bytes the contents of a batch should add up to.
+     */
+    public synchronized long byteLimit() {
+        return byteLimit;
+    }
+
+    /**
+     * Checks if a batch has reached either limit.
+     *
+     * @param operations The number of operations in the batch.
+     * @param bytes The size of the contents of the batch, in bytes.
+     * @return true if the batch should be run before adding more operations.
+     */
+    public synchronized boolean isFull(int operations, long bytes) {
+        return operations >= operationLimit || bytes >= byteLimit;
+    }
+
+    /**
+     * Runs a batch and records its outcome.
+     *
+     * @param batch The batch to run.
+     * @throws BatchClosedException If close() has been called on the batch.
+     * @throws BatchAlreadyRunException If the run() has been called on the batch.
+     */
+    public void run(QdbBatch batch) {
+        long start = System.nanoTime();
+        try {
+            batch.run();
+        } catch (RuntimeException e) {
+            if (batch.readCount >= 0)
+                record(batch, System.nanoTime() - start); // <- operations failed on their own
+            else
+                record(System.nanoTime() - start, !QdbSessionPool.isTransportError(e));
+            throw e;
+        }
+        record(batch, System.nanoTime() - start);
+    }
+
+    /**
+     * Records the outcome of a batch that has been run.
+     *
+     * @param batch The batch, after run().
+     * @param elapsedNanos How long the run took, in nanoseconds.
+     * @throws BatchClosedException If close() has been called on the batch.
+     * @throws BatchNotRunException If run() has not been called on the batch.
+     */
+    public void record(QdbBatch batch, long elapsedNanos) {
+        boolean reachable = true;
+        if (batch.successCount() != batch.operationCount()) {
+            for (int i = 0; i < batch.operationCount() && reachable; ++i) {
+                RuntimeException failure = batch.failure(i);
+                reachable = failure == null || !QdbSessionPool.isTransportError(failure);
+            }
+        }
+        record(elapsedNanos, reachable);
+    }
+
+    /**
+     * Records the outcome of a batch.
+     *
+     * @param elapsedNanos How long the run took, in nanoseconds.
+     * @param success false if the batch, or one of its operations, failed because a node could not be reached.
+     */
+    public synchronized void record(long elapsedNanos, boolean success) {
+        batches++;
+        averageNanos = batches == 1
+            ? elapsedNanos
+            : averageNanos + SMOOTHING * (elapsedNanos - averageNanos);
+
+        long now = System.nanoTime();
+        if (lastDecreaseNanos != Long.MIN_VALUE && now - elapsedNanos - lastDecreaseNanos < 0)
+            return; // <- started before the last decrease, with the old limits
+
+        if (!success || elapsedNanos > targetNanos) {
+            lastDecreaseNanos = now;
+            decreases++;
+            operationLimit = Math.max(minOperations, (int)(operationLimit * DECREASE_FACTOR));
+            byteLimit = Math.max(minBytes, (long)(byteLimit * DECREASE_FACTOR));
+        } else {
+            operationLimit = Math.min(maxOperations, operationLimit + operationStep);
+            byteLimit = Math.min(maxBytes, byteLimit + byteStep);
+        }
+    }
+
+    /**
+     * Gets the smoothed latency of the recorded batches.
+     *
+     * @return The average latency, in milliseconds.
+     */
+    public synchronized double averageLatencyMillis() {
+        return averageNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Gets the number of batches recorded so far.
+     *
+     * @return The number of batches.
+     */
+    public synchronized long batchCount() {
+        return batches;
+    }
+
+    /**
+     * Gets the number of times the limits have been decreased.
+     *
+     * @return The number of decreases.
+     */
+    public synchronized long decreaseCount() {
+        return decreases;
+    }
+}
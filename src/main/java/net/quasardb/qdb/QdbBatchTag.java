@@ -0,0 +1,39 @@
+package net.quasardb.qdb;
+
+/**
+ * Add tag operations in a batch.
+ */
+public final class QdbBatchTag extends QdbBatchEntry {
+    // Protected constructor. Call QdbBatch.tag() to get an instance.
+    protected QdbBatchTag(QdbBatch batch, String alias) {
+        super(batch, alias);
+    }
+
+    /**
+     * Adds an "attachEntry" operation to the batch: "Attaches the tag to an entry. The tag is created if it does not exist."
+     *
+     * @param entry The alias of the entry to attach.
+     * @return A future that will contain true if the tag has been attached, false if it was already attached.
+     * @see QdbTag#attachEntry(String)
+     */
+    public QdbFuture<Boolean> attachEntry(String entry) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(ATTACH_TAG, entry, alias);
+        return new QdbBatchFuture<Boolean>(batch, index);
+    }
+
+    /**
+     * Adds a "detachEntry" operation to the batch: "Detaches the tag from an entry."
+     *
+     * @param entry The alias of the entry to detach.
+     * @return A future that will contain true if the tag has been detached, false if the tag was not attached.
+     * @see QdbTag#detachEntry(String)
+     */
+    public QdbFuture<Boolean> detachEntry(String entry) {
+        assertNotAlreadyRun();
+
+        int index = batch.addOperation(DETACH_TAG, entry, alias);
+        return new QdbBatchFuture<Boolean>(batch, index);
+    }
+}
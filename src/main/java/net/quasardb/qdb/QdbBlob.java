@@ -1,6 +1,14 @@
 package net.quasardb.qdb;
 
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
 import net.quasardb.qdb.Buffer;
 import net.quasardb.qdb.jni.*;
 import net.quasardb.qdb.exception.*;
@@ -8,16 +16,29 @@ import net.quasardb.qdb.exception.*;
 /**
  * A blob in the database.
  * Blob stands for "Binary Large Object", it's an entry which store binary data.
+ *
+ * Contents can be given as direct buffers, heap buffers or arrays. Heap contents are copied
+ * into direct buffers from the buffer pool of the cluster for the duration of each call.
+ *
+ * When the cluster compresses contents, writes are compressed and reads are decompressed
+ * transparently. Decompressed contents returned as a Buffer live in a pooled direct buffer,
+ * returned to the pool when the Buffer is closed. Comparands of compareAndSwap() and
+ * removeIf() are compressed like contents and compared as stored by quasardb, in a single
+ * request: they only match contents written with the same codec and threshold, as in
+ * QdbBatchBlob.
  */
 public final class QdbBlob extends QdbExpirableEntry {
     // Protected constructor. Call QdbCluster.blob() to get an instance.
-    protected QdbBlob(Session session, String alias) {
-        super(session, alias);
+    protected QdbBlob(QdbSessionPool pool, String alias) {
+        super(pool, alias);
     }
 
     /**
      * Atomically compares the content of the blob and replaces it, if it matches.
      *
+     * When the cluster compresses contents, comparand is compressed like a content: it only
+     * matches a content written with the same codec and threshold.
+     *
      * @param newContent The content to be updated to the server in case of match.
      * @param comparand The content to be compared to.
      * @return Returns The original content if comparand doesn't match. Returns null otherwise.
@@ -27,16 +48,15 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public Buffer compareAndSwap(ByteBuffer newContent, ByteBuffer comparand) {
-        assert(newContent.isDirect());
-        assert(comparand.isDirect());
-        session.throwIfClosed();
-
         return this.compareAndSwap(newContent, comparand, QdbExpiryTime.PRESERVE_EXPIRATION);
     }
 
     /**
      * Atomically compares the content of the blob and replaces it, if it matches.
      *
+     * When the cluster compresses contents, comparand is compressed like a content: it only
+     * matches a content written with the same codec and threshold.
+     *
      * @param newContent The content to be updated to the server, in case of match.
      * @param comparand The content to be compared to.
      * @param expiryTime The new expiry time of the blob, in case of match
@@ -48,13 +68,17 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public Buffer compareAndSwap(ByteBuffer newContent, ByteBuffer comparand, QdbExpiryTime expiryTime) {
-        assert(newContent.isDirect());
-        assert(comparand.isDirect());
-        session.throwIfClosed();
-
-        Reference<ByteBuffer> originalContent = new Reference<ByteBuffer>();
-        qdb.blob_compare_and_swap(session.handle(), alias, newContent, comparand, expiryTime.toMillisSinceEpoch(), originalContent);
-        return Buffer.wrap(session, originalContent);
+        ByteBuffer directContent = stage(newContent);
+        try {
+            ByteBuffer directComparand = stage(comparand);
+            try {
+                return decode(swap(directContent, directComparand, expiryTime));
+            } finally {
+                pool.buffers().unstage(comparand, directComparand);
+            }
+        } finally {
+            pool.buffers().unstage(newContent, directContent);
+        }
     }
 
     /**
@@ -66,10 +90,168 @@ public final class QdbBlob extends QdbExpirableEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public Buffer get() {
-        session.throwIfClosed();
+        return decode(getStored());
+    }
+
+    // Reads the content as stored, compressed or not.
+    private Buffer getStored() {
         Reference<ByteBuffer> content = new Reference<ByteBuffer>();
-        qdb.blob_get(session.handle(), alias, content);
-        return Buffer.wrap(session, content);
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get(session.handle(), alias, content);
+            return pool.wrap(session, content);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+     * Read the content of the blob into a buffer of the caller.
+     *
+     * The content is copied at the position of dest, which is advanced by the length of the
+     * content, and decompressed if the cluster compresses contents. The native memory holding
+     * the content is released before this method returns.
+     *
+     * @param dest The buffer to copy the content to.
+     * @return The length of the content, in bytes.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws BufferOverflowException If the content is larger than the remaining space of dest.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public int getInto(ByteBuffer dest) {
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get(session.handle(), alias, references.content);
+            return copy(session, references.content, dest);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+     * Read the content of the blob and write it to a channel, for instance a socket or a file.
+     * The native memory holding the content is released before this method returns.
+     *
+     * @param dest The channel to write the content to.
+     * @return The length of the content, in bytes.
+     * @throws IOException If writing to the channel fails.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public int getInto(WritableByteChannel dest) throws IOException {
+        try (QdbBlobChannel content = openChannel()) {
+            return (int)content.transferTo(dest);
+        }
+    }
+
+    /**
+     * Read the content of the blob as a channel over the native memory it is fetched into,
+     * decompressed if the cluster compresses contents.
+     *
+     * @return A channel reading the content. The native memory is released at the end of the content, or when it is closed.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see QdbBlobChannel
+     */
+    public QdbBlobChannel openChannel() {
+        return new QdbBlobChannel(pool, getStored());
+    }
+
+    /**
+     * Read the content of the blob as a stream over the native memory it is fetched into,
+     * decompressed if the cluster compresses contents.
+     *
+     * @return A stream reading the content. The native memory is released at the end of the content, or when it is closed.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see QdbBlobChannel#asInputStream()
+     */
+    public InputStream openInputStream() {
+        return openChannel().asInputStream();
+    }
+
+    /**
+     * Read the content of the blob, decompressed if the cluster compresses contents, into a
+     * direct buffer leased from the buffer pool of the cluster.
+     *
+     * @return A flipped direct buffer holding the content. Release it with QdbBufferPool.release() once done.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see QdbCluster#getBufferPool()
+     */
+    public ByteBuffer getDecoded() {
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get(session.handle(), alias, references.content);
+            return decoded(session, references.content);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    // Copies a content returned in a reused out-parameter into a pooled buffer, and releases
+    // its native memory while the session is still leased, as copy() does.
+    private ByteBuffer decoded(Session session, Reference<ByteBuffer> stored) {
+        Buffer buffer = Buffer.wrap(session, stored);
+        stored.value = null;
+        try {
+            ByteBuffer content = buffer.toByteBuffer();
+            QdbCompression compression = pool.compression();
+            if (compression != null && QdbCompression.isEncoded(content))
+                return compression.decode(content, pool.buffers());
+
+            ByteBuffer copy = pool.buffers().acquire(content == null ? 0 : content.remaining());
+            if (content != null)
+                copy.put(content);
+            copy.flip();
+            return copy;
+        } finally {
+            buffer.close();
+        }
+    }
+
+    /**
+     * Atomically reads the content of the blob into a buffer of the caller, and removes the blob.
+     *
+     * @param dest The buffer to copy the content to.
+     * @return The length of the content, in bytes.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws BufferOverflowException If the content is larger than the remaining space of dest.
+     *         The blob has been removed nonetheless.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #getInto(ByteBuffer)
+     */
+    public int getAndRemoveInto(ByteBuffer dest) {
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get_and_remove(session.handle(), alias, references.content);
+            return copy(session, references.content, dest);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -82,10 +264,20 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public Buffer getAndRemove() {
-        session.throwIfClosed();
+        return decode(getAndRemoveStored());
+    }
+
+    private Buffer getAndRemoveStored() {
         Reference<ByteBuffer> content = new Reference<ByteBuffer>();
-        qdb.blob_get_and_remove(session.handle(), alias, content);
-        return Buffer.wrap(session, content);
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get_and_remove(session.handle(), alias, content);
+            return pool.wrap(session, content);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -99,8 +291,6 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public Buffer getAndUpdate(ByteBuffer content) {
-        assert(content.isDirect());
-
         return this.getAndUpdate(content, QdbExpiryTime.PRESERVE_EXPIRATION);
     }
 
@@ -117,11 +307,51 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public Buffer getAndUpdate(ByteBuffer content, QdbExpiryTime expiryTime) {
-        assert(content.isDirect());
-        session.throwIfClosed();
+        return decode(getAndUpdateStored(content, expiryTime));
+    }
+
+    private Buffer getAndUpdateStored(ByteBuffer content, QdbExpiryTime expiryTime) {
+        ByteBuffer direct = stage(content);
         Reference<ByteBuffer> originalContent = new Reference<ByteBuffer>();
-        qdb.blob_get_and_update(session.handle(), alias, content, expiryTime.toMillisSinceEpoch(), originalContent);
-        return Buffer.wrap(session, originalContent);
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get_and_update(session.handle(), alias, direct, expiryTime.toMillisSinceEpoch(), originalContent);
+            return pool.wrap(session, originalContent);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+            pool.buffers().unstage(content, direct);
+        }
+    }
+
+    /**
+     * Atomically reads the content of the blob into a buffer of the caller, and replaces it.
+     *
+     * @param content The content of the blob to be set, before being replaced.
+     * @param dest The buffer to copy the previous content to.
+     * @return The length of the previous content, in bytes.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws BufferOverflowException If the previous content is larger than the remaining space of dest.
+     *         The blob has been updated nonetheless.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #getInto(ByteBuffer)
+     */
+    public int getAndUpdateInto(ByteBuffer content, ByteBuffer dest) {
+        ByteBuffer direct = stage(content);
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.blob_get_and_update(session.handle(), alias, direct, QdbExpiryTime.PRESERVE_EXPIRATION.toMillisSinceEpoch(), references.content);
+            return copy(session, references.content, dest);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+            pool.buffers().unstage(content, direct);
+        }
     }
 
     /**
@@ -147,14 +377,24 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public void put(ByteBuffer content, QdbExpiryTime expiryTime) {
-        assert(content.isDirect());
-        session.throwIfClosed();
-        qdb.blob_put(session.handle(), alias, content, expiryTime.toMillisSinceEpoch());
+        ByteBuffer direct = stage(content);
+        Session session = pool.acquire();
+        try {
+            qdb.blob_put(session.handle(), alias, direct, expiryTime.toMillisSinceEpoch());
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+            pool.buffers().unstage(content, direct);
+        }
     }
 
     /**
      * Removes the blob if its content matches comparand.
      *
+     * When the cluster compresses contents, comparand is compressed like a content: it only
+     * matches a content written with the same codec and threshold.
+     *
      * @param comparand The content to be compared to.
      * @return true if the blob was actually removed, false if not.
      * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
@@ -163,10 +403,12 @@ public final class QdbBlob extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public boolean removeIf(ByteBuffer comparand) {
-        assert(comparand.isDirect());
-        session.throwIfClosed();
-        int err = qdb.blob_remove_if(session.handle(), alias, comparand);
-        return err != qdb_error.unmatched_content;
+        ByteBuffer direct = stage(comparand);
+        try {
+            return removeIfStored(direct);
+        } finally {
+            pool.buffers().unstage(comparand, direct);
+        }
     }
 
     /**
@@ -179,7 +421,6 @@ public final class QdbBlob extends QdbExpirableEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public boolean update(ByteBuffer content) {
-        assert(content.isDirect());
         return this.update(content, QdbExpiryTime.PRESERVE_EXPIRATION);
     }
 
@@ -195,9 +436,601 @@ public final class QdbBlob extends QdbExpirableEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public boolean update(ByteBuffer content, QdbExpiryTime expiryTime) {
-        assert(content.isDirect());
-        session.throwIfClosed();
-        int err = qdb.blob_update(session.handle(), alias, content, expiryTime.toMillisSinceEpoch());
-        return err == qdb_error.ok_created;
+        ByteBuffer direct = stage(content);
+        Session session = pool.acquire();
+        try {
+            int err = qdb.blob_update(session.handle(), alias, direct, expiryTime.toMillisSinceEpoch());
+            return err == qdb_error.ok_created;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+            pool.buffers().unstage(content, direct);
+        }
+    }
+
+    /**
+     * Create a new blob from several parts, such as a header, a body and a trailer, sent as
+     * one content. Fails if the blob already exists.
+     * The parts are gathered into a pooled direct buffer for the duration of the call.
+     *
+     * @param parts The parts of the content of the blob to be created, in order. Their positions are left unchanged.
+     * @throws AliasAlreadyExistsException If an entry matching the provided alias already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If the parts add up to more than 2GB.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public void put(ByteBuffer... parts) {
+        this.put(parts, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Create a new blob from several parts, sent as one content. Fails if the blob already exists.
+     * The parts are gathered into a pooled direct buffer for the duration of the call.
+     *
+     * @param parts The parts of the content of the blob to be created, in order. Their positions are left unchanged.
+     * @param expiryTime The expiry time of the blob.
+     * @throws AliasAlreadyExistsException If an entry matching the provided alias already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If the expiry time is in the past (with a certain tolerance), or the parts add up to more than 2GB.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public void put(ByteBuffer[] parts, QdbExpiryTime expiryTime) {
+        if (parts.length == 1) {
+            this.put(parts[0], expiryTime);
+            return;
+        }
+
+        ByteBuffer gathered = pool.buffers().gather(parts);
+        try {
+            this.put(gathered, expiryTime);
+        } finally {
+            pool.buffers().release(gathered);
+        }
+    }
+
+    /**
+     * Replaces the content of the blob with several parts, sent as one content.
+     * The parts are gathered into a pooled direct buffer for the duration of the call.
+     *
+     * @param parts The parts of the content of the blob to be set, in order. Their positions are left unchanged.
+     * @return true if the blob was created, or false it it was updated.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws InvalidArgumentException If the parts add up to more than 2GB.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public boolean update(ByteBuffer... parts) {
+        return this.update(parts, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Replaces the content of the blob with several parts, sent as one content.
+     * The parts are gathered into a pooled direct buffer for the duration of the call.
+     *
+     * @param parts The parts of the content of the blob to be set, in order. Their positions are left unchanged.
+     * @param expiryTime The new expiry time of the blob.
+     * @return true if the blob was created, or false it it was updated.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws InvalidArgumentException If the expiry time is in the past (with a certain tolerance), or the parts add up to more than 2GB.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public boolean update(ByteBuffer[] parts, QdbExpiryTime expiryTime) {
+        if (parts.length == 1)
+            return this.update(parts[0], expiryTime);
+
+        ByteBuffer gathered = pool.buffers().gather(parts);
+        try {
+            return this.update(gathered, expiryTime);
+        } finally {
+            pool.buffers().release(gathered);
+        }
+    }
+
+    /**
+     * Atomically compares the content of the blob and replaces it, if it matches.
+     * The arrays are copied into pooled direct buffers for the duration of the call.
+     *
+     * @param newContent The content to be updated to the server in case of match.
+     * @param comparand The content to be compared to.
+     * @return Returns The original content if comparand doesn't match. Returns null otherwise.
+     * @see #compareAndSwap(ByteBuffer, ByteBuffer)
+     */
+    public Buffer compareAndSwap(byte[] newContent, byte[] comparand) {
+        return this.compareAndSwap(ByteBuffer.wrap(newContent), ByteBuffer.wrap(comparand));
+    }
+
+    /**
+     * Atomically compares the content of the blob and replaces it, if it matches.
+     * The arrays are copied into pooled direct buffers for the duration of the call.
+     *
+     * @param newContent The content to be updated to the server, in case of match.
+     * @param comparand The content to be compared to.
+     * @param expiryTime The new expiry time of the blob, in case of match
+     * @return Returns The original content if comparand doesn't match. Returns null otherwise.
+     * @see #compareAndSwap(ByteBuffer, ByteBuffer, QdbExpiryTime)
+     */
+    public Buffer compareAndSwap(byte[] newContent, byte[] comparand, QdbExpiryTime expiryTime) {
+        return this.compareAndSwap(ByteBuffer.wrap(newContent), ByteBuffer.wrap(comparand), expiryTime);
+    }
+
+    /**
+     * Atomically reads and replaces (in this order) the content of blob.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param content The content of the blob to be set, before being replaced.
+     * @return A buffer representing the content of the blob, before the update.
+     * @see #getAndUpdate(ByteBuffer)
+     */
+    public Buffer getAndUpdate(byte[] content) {
+        return this.getAndUpdate(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Atomically reads and replaces (in this order) the content of blob.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param content The content of the blob to be set, before being replaced.
+     * @param expiryTime The new expiry time of the blob.
+     * @return A buffer representing the content of the blob, before the update.
+     * @see #getAndUpdate(ByteBuffer, QdbExpiryTime)
+     */
+    public Buffer getAndUpdate(byte[] content, QdbExpiryTime expiryTime) {
+        return this.getAndUpdate(ByteBuffer.wrap(content), expiryTime);
+    }
+
+    /**
+     * Create a new blob with the specified content. Fails if the blob already exists.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param content The content of the blob to be created.
+     * @see #put(ByteBuffer)
+     */
+    public void put(byte[] content) {
+        this.put(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Create a new blob with the specified content. Fails if the blob already exists.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param content The content of the blob to be created.
+     * @param expiryTime The expiry time of the blob.
+     * @see #put(ByteBuffer, QdbExpiryTime)
+     */
+    public void put(byte[] content, QdbExpiryTime expiryTime) {
+        this.put(ByteBuffer.wrap(content), expiryTime);
+    }
+
+    /**
+     * Removes the blob if its content matches comparand.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param comparand The content to be compared to.
+     * @return true if the blob was actually removed, false if not.
+     * @see #removeIf(ByteBuffer)
+     */
+    public boolean removeIf(byte[] comparand) {
+        return this.removeIf(ByteBuffer.wrap(comparand));
+    }
+
+    /**
+     * Replaces the content of the blob.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param content The content of the blob to be set.
+     * @return true if the blob was created, or false it it was updated.
+     * @see #update(ByteBuffer)
+     */
+    public boolean update(byte[] content) {
+        return this.update(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Replaces the content of the blob.
+     * The array is copied into a pooled direct buffer for the duration of the call.
+     *
+     * @param content The content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @return true if the blob was created, or false it it was updated.
+     * @see #update(ByteBuffer, QdbExpiryTime)
+     */
+    public boolean update(byte[] content, QdbExpiryTime expiryTime) {
+        return this.update(ByteBuffer.wrap(content), expiryTime);
+    }
+
+    /**
+     * Create a new blob with the content of a file. Fails if the blob already exists.
+     *
+     * The file is memory-mapped and handed to quasardb as is, without being copied into
+     * the Java heap.
+     *
+     * @param file The file holding the content of the blob to be created.
+     * @throws IOException If the file cannot be read.
+     * @throws AliasAlreadyExistsException If an entry matching the provided alias already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If the file is larger than 2GB.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #put(ByteBuffer)
+     */
+    public void putFile(Path file) throws IOException {
+        this.putFile(file, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Create a new blob with the content of a file. Fails if the blob already exists.
+     *
+     * @param file The file holding the content of the blob to be created.
+     * @param expiryTime The expiry time of the blob.
+     * @throws IOException If the file cannot be read.
+     * @throws AliasAlreadyExistsException If an entry matching the provided alias already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If the file is larger than 2GB, or the expiry time is in the past.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #putFile(Path)
+     */
+    public void putFile(Path file, QdbExpiryTime expiryTime) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.put(map(channel), expiryTime);
+        }
+    }
+
+    /**
+     * Replaces the content of the blob with the content of a file, without copying it into the Java heap.
+     *
+     * @param file The file holding the content of the blob to be set.
+     * @return true if the blob was created, or false it it was updated.
+     * @throws IOException If the file cannot be read.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws InvalidArgumentException If the file is larger than 2GB.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #putFile(Path)
+     */
+    public boolean updateFile(Path file) throws IOException {
+        return this.updateFile(file, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Replaces the content of the blob with the content of a file, without copying it into the Java heap.
+     *
+     * @param file The file holding the content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @return true if the blob was created, or false it it was updated.
+     * @throws IOException If the file cannot be read.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws InvalidArgumentException If the file is larger than 2GB, or the expiry time is in the past.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #putFile(Path)
+     */
+    public boolean updateFile(Path file, QdbExpiryTime expiryTime) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return this.update(map(channel), expiryTime);
+        }
+    }
+
+    /**
+     * Read the content of the blob into a file, which is created or truncated.
+     *
+     * The content is written straight from the native memory that holds it, which is
+     * released before this method returns.
+     *
+     * @param file The file to write the content to.
+     * @return The length of the content, in bytes.
+     * @throws IOException If the file cannot be written.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     * @see #getInto(WritableByteChannel)
+     */
+    public long getToFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            return this.getInto(channel);
+        }
+    }
+
+    /**
+     * Asynchronously compares the content of the blob and replaces it, if it matches.
+     *
+     * @param newContent The content to be updated to the server, in case of match.
+     * @param comparand The content to be compared to.
+     * @return A future completed with the original content if comparand doesn't match, null otherwise.
+     * @see #compareAndSwap(ByteBuffer, ByteBuffer)
+     */
+    public CompletableFuture<Buffer> compareAndSwapAsync(ByteBuffer newContent, ByteBuffer comparand) {
+        return compareAndSwapAsync(newContent, comparand, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Asynchronously compares the content of the blob and replaces it, if it matches.
+     *
+     * @param newContent The content to be updated to the server, in case of match.
+     * @param comparand The content to be compared to.
+     * @param expiryTime The new expiry time of the blob, in case of match
+     * @return A future completed with the original content if comparand doesn't match, null otherwise.
+     * @see #compareAndSwap(ByteBuffer, ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Buffer> compareAndSwapAsync(ByteBuffer newContent, ByteBuffer comparand, QdbExpiryTime expiryTime) {
+        return async(() -> compareAndSwap(newContent, comparand, expiryTime));
+    }
+
+    /**
+     * Asynchronously compares the content of the blob and replaces it, if it matches.
+     *
+     * @param newContent The content to be updated to the server, in case of match.
+     * @param comparand The content to be compared to.
+     * @param expiryTime The new expiry time of the blob, in case of match
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the original content if comparand doesn't match, null otherwise. It completes with a TimeoutException if the deadline expires first.
+     * @see #compareAndSwapAsync(ByteBuffer, ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Buffer> compareAndSwapAsync(ByteBuffer newContent, ByteBuffer comparand, QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> compareAndSwap(newContent, comparand, expiryTime), timeoutMillis);
+    }
+
+    /**
+     * Asynchronously reads the content of the blob.
+     *
+     * @return A future completed with the current content.
+     * @see #get()
+     */
+    public CompletableFuture<Buffer> getAsync() {
+        return async(this::get);
+    }
+
+    /**
+     * Asynchronously reads the content of the blob.
+     *
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the current content. It completes with a TimeoutException if the deadline expires first.
+     * @see #getAsync()
+     */
+    public CompletableFuture<Buffer> getAsync(long timeoutMillis) {
+        return async(this::get, timeoutMillis);
+    }
+
+    /**
+     * Asynchronously reads the content of the blob and removes it.
+     *
+     * @return A future completed with the content of the blob, before being removed.
+     * @see #getAndRemove()
+     */
+    public CompletableFuture<Buffer> getAndRemoveAsync() {
+        return async(this::getAndRemove);
+    }
+
+    /**
+     * Asynchronously reads the content of the blob and removes it.
+     *
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the content of the blob, before being removed. It completes with a TimeoutException if the deadline expires first.
+     * @see #getAndRemoveAsync()
+     */
+    public CompletableFuture<Buffer> getAndRemoveAsync(long timeoutMillis) {
+        return async(this::getAndRemove, timeoutMillis);
+    }
+
+    /**
+     * Asynchronously reads and replaces (in this order) the content of blob.
+     *
+     * @param content The content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @return A future completed with the content of the blob, before the update.
+     * @see #getAndUpdate(ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Buffer> getAndUpdateAsync(ByteBuffer content, QdbExpiryTime expiryTime) {
+        return async(() -> getAndUpdate(content, expiryTime));
+    }
+
+    /**
+     * Asynchronously reads and replaces (in this order) the content of blob.
+     *
+     * @param content The content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the content of the blob, before the update. It completes with a TimeoutException if the deadline expires first.
+     * @see #getAndUpdateAsync(ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Buffer> getAndUpdateAsync(ByteBuffer content, QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> getAndUpdate(content, expiryTime), timeoutMillis);
+    }
+
+    /**
+     * Asynchronously creates a new blob with the specified content.
+     *
+     * @param content The content of the blob to be created.
+     * @return A future completed once the blob has been created.
+     * @see #put(ByteBuffer)
+     */
+    public CompletableFuture<Void> putAsync(ByteBuffer content) {
+        return putAsync(content, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Asynchronously creates a new blob with the specified content.
+     *
+     * @param content The content of the blob to be created.
+     * @param expiryTime The expiry time of the blob.
+     * @return A future completed once the blob has been created.
+     * @see #put(ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Void> putAsync(ByteBuffer content, QdbExpiryTime expiryTime) {
+        return async(() -> {
+                put(content, expiryTime);
+                return null;
+            });
+    }
+
+    /**
+     * Asynchronously creates a new blob with the specified content.
+     *
+     * @param content The content of the blob to be created.
+     * @param expiryTime The expiry time of the blob.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed once the blob has been created. It completes with a TimeoutException if the deadline expires first.
+     * @see #putAsync(ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Void> putAsync(ByteBuffer content, QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> {
+                put(content, expiryTime);
+                return null;
+            }, timeoutMillis);
+    }
+
+    /**
+     * Asynchronously removes the blob if its content matches comparand.
+     *
+     * @param comparand The content to be compared to.
+     * @return A future completed with true if the blob was actually removed, false if not.
+     * @see #removeIf(ByteBuffer)
+     */
+    public CompletableFuture<Boolean> removeIfAsync(ByteBuffer comparand) {
+        return async(() -> removeIf(comparand));
+    }
+
+    /**
+     * Asynchronously removes the blob if its content matches comparand.
+     *
+     * @param comparand The content to be compared to.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with true if the blob was actually removed, false if not. It completes with a TimeoutException if the deadline expires first.
+     * @see #removeIfAsync(ByteBuffer)
+     */
+    public CompletableFuture<Boolean> removeIfAsync(ByteBuffer comparand, long timeoutMillis) {
+        return async(() -> removeIf(comparand), timeoutMillis);
+    }
+
+    /**
+     * Asynchronously replaces the content of the blob.
+     *
+     * @param content The content of the blob to be set.
+     * @return A future completed with true if the blob was created, or false it it was updated.
+     * @see #update(ByteBuffer)
+     */
+    public CompletableFuture<Boolean> updateAsync(ByteBuffer content) {
+        return updateAsync(content, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Asynchronously replaces the content of the blob.
+     *
+     * @param content The content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @return A future completed with true if the blob was created, or false it it was updated.
+     * @see #update(ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Boolean> updateAsync(ByteBuffer content, QdbExpiryTime expiryTime) {
+        return async(() -> update(content, expiryTime));
+    }
+
+    /**
+     * Asynchronously replaces the content of the blob.
+     *
+     * @param content The content of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with true if the blob was created, or false it it was updated. It completes with a TimeoutException if the deadline expires first.
+     * @see #updateAsync(ByteBuffer, QdbExpiryTime)
+     */
+    public CompletableFuture<Boolean> updateAsync(ByteBuffer content, QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> update(content, expiryTime), timeoutMillis);
+    }
+
+    // Sends a compare and swap with a direct comparand, as is.
+    private Buffer swap(ByteBuffer directContent, ByteBuffer directComparand, QdbExpiryTime expiryTime) {
+        Reference<ByteBuffer> originalContent = new Reference<ByteBuffer>();
+        Session session = pool.acquire();
+        try {
+            qdb.blob_compare_and_swap(session.handle(), alias, directContent, directComparand, expiryTime.toMillisSinceEpoch(), originalContent);
+            return pool.wrap(session, originalContent);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    // Sends a remove if with a direct comparand, as is.
+    private boolean removeIfStored(ByteBuffer directComparand) {
+        Session session = pool.acquire();
+        try {
+            int err = qdb.blob_remove_if(session.handle(), alias, directComparand);
+            return err != qdb_error.unmatched_content;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    // Maps a whole file; the mapping is direct, so it reaches quasardb without staging.
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new InvalidArgumentException("File is too large for a blob: " + size + " bytes");
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    // Returns content compressed, if the cluster compresses contents, and direct.
+    // Release the result with QdbBufferPool.unstage().
+    private ByteBuffer stage(ByteBuffer content) {
+        QdbCompression compression = pool.compression();
+        ByteBuffer encoded = compression != null ? compression.encode(alias, content, pool.buffers()) : null;
+        return encoded != null ? encoded : pool.buffers().stage(content);
+    }
+
+    // Returns a stored content as is, or decompressed into a pooled buffer once its
+    // native memory has been released.
+    private Buffer decode(Buffer buffer) {
+        QdbCompression compression = pool.compression();
+        if (buffer == null || compression == null)
+            return buffer;
+
+        try {
+            ByteBuffer stored = buffer.toByteBuffer();
+            if (!QdbCompression.isEncoded(stored))
+                return buffer;
+
+            Buffer decoded = new QdbPooledBuffer(pool, compression.decode(stored, pool.buffers()));
+            buffer.close();
+            return decoded;
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    // Copies a content returned in a reused out-parameter into dest, and releases its native
+    // memory while the session is still leased: unlike pool.wrap(), the session is not pinned.
+    private int copy(Session session, Reference<ByteBuffer> content, ByteBuffer dest) {
+        Buffer buffer = Buffer.wrap(session, content);
+        content.value = null;
+        return copy(buffer, dest);
+    }
+
+    // Copies a content into dest, decompressing it if needed, then releases its native memory.
+    private int copy(Buffer buffer, ByteBuffer dest) {
+        try {
+            ByteBuffer content = buffer.toByteBuffer();
+            if (content == null)
+                return 0;
+
+            QdbCompression compression = pool.compression();
+            if (compression != null)
+                return compression.decode(content, dest);
+
+            int length = content.remaining();
+            dest.put(content);
+            return length;
+        } finally {
+            buffer.close();
+        }
     }
 }
@@ -0,0 +1,241 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * The contents of many blobs, read in bulk into a single block of direct memory.
+ *
+ * Instead of one Buffer per blob, the contents are copied back to back into one direct
+ * ByteBuffer, leased from the buffer pool of the cluster, and located with a table of offsets
+ * and lengths. The gets are read straight from the slots of the batch, without a future per
+ * blob. Scanning the results only touches primitive arrays and the arena itself.
+ *
+ * Blobs that could not be read, for instance because they do not exist, have a length of -1
+ * and keep the exception that was raised for them. Compressed contents are decompressed
+ * into the arena.
+ *
+ * The arena holds a native batch between reads; call close() to release it and return the
+ * memory of the arena to the buffer pool.
+ */
+public final class QdbBlobArena implements AutoCloseable {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final QdbSessionPool pool;
+    private QdbBatch batch;
+    private ByteBuffer memory; // <- the arena, leased from the buffer pool and reused by the next read
+    private ByteBuffer data;   // <- read-only view of the bytes in use
+    private String[] aliases = new String[0];
+    private int[] offsets = new int[0];
+    private int[] lengths = new int[0];
+    private RuntimeException[] failures = new RuntimeException[0];
+    private int count;
+
+    // Protected constructor. Call QdbCluster.getAll() to get an instance.
+    protected QdbBlobArena(QdbSessionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Gets the number of blobs in the arena.
+     *
+     * @return The number of blobs.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the alias of a blob.
+     *
+     * @param index The index of the blob, between 0 and size() - 1.
+     * @return The alias of the blob.
+     */
+    public String alias(int index) {
+        throwIfOutOfRange(index);
+        return aliases[index];
+    }
+
+    /**
+     * Checks if the content of a blob has been read.
+     *
+     * @param index The index of the blob, between 0 and size() - 1.
+     * @return true if the content is in the arena, false if the blob could not be read.
+     */
+    public boolean found(int index) {
+        throwIfOutOfRange(index);
+        return lengths[index] >= 0;
+    }
+
+    /**
+     * Gets the position of the content of a blob in data().
+     *
+     * @param index The index of the blob, between 0 and size() - 1.
+     * @return The offset of the content, in bytes.
+     */
+    public int offset(int index) {
+        throwIfOutOfRange(index);
+        return offsets[index];
+    }
+
+    /**
+     * Gets the size of the content of a blob.
+     *
+     * @param index The index of the blob, between 0 and size() - 1.
+     * @return The length of the content, in bytes, or -1 if the blob could not be read.
+     */
+    public int length(int index) {
+        throwIfOutOfRange(index);
+        return lengths[index];
+    }
+
+    /**
+     * Gets the reason why a blob could not be read.
+     *
+     * @param index The index of the blob, between 0 and size() - 1.
+     * @return The exception raised for this blob, or null if it has been read.
+     */
+    public RuntimeException failure(int index) {
+        throwIfOutOfRange(index);
+        return failures[index];
+    }
+
+    /**
+     * Gets the content of a blob, as a view of the arena.
+     *
+     * @param index The index of the blob, between 0 and size() - 1.
+     * @return A read-only buffer sharing the memory of the arena, or null if the blob could not be read.
+     */
+    public ByteBuffer content(int index) {
+        throwIfOutOfRange(index);
+        if (lengths[index] < 0)
+            return null;
+
+        ByteBuffer view = data.duplicate();
+        view.limit(offsets[index] + lengths[index]);
+        view.position(offsets[index]);
+        return view.slice();
+    }
+
+    /**
+     * Gets the whole arena. The content of blob i spans from offset(i) to offset(i) + length(i).
+     *
+     * @return A read-only buffer sharing the memory of the arena.
+     */
+    public ByteBuffer data() {
+        if (data == null)
+            return ByteBuffer.allocateDirect(0).asReadOnlyBuffer();
+
+        return data.duplicate();
+    }
+
+    /**
+     * Releases the native batch kept between reads, and returns the memory of the arena to
+     * the buffer pool. The contents must not be used afterwards.
+     */
+    public void close() {
+        closeBatch();
+        if (memory != null) {
+            pool.buffers().release(memory);
+            memory = null;
+            data = null;
+            count = 0;
+        }
+    }
+
+    // Releases the native batch only: the contents already read remain available.
+    void closeBatch() {
+        if (batch != null) {
+            batch.close();
+            batch = null;
+        }
+    }
+
+    // Reads aliases[from, to) into the arena, replacing its previous contents.
+    // The memory of the arena is reused when it is large enough.
+    void read(List<String> source, int from, int to) {
+        pool.throwIfClosed();
+        allocateTable(to - from);
+        count = to - from;
+        for (int i = 0; i < count; ++i) {
+            aliases[i] = source.get(from + i);
+            failures[i] = null;
+        }
+
+        if (batch == null || batch.isClosed())
+            batch = new QdbBatch(pool);
+
+        // Every get is executed and read back by the same batch, failed ones included. Get i
+        // is operation i of the cleared batch.
+        batch.clear();
+        for (int i = 0; i < count; ++i) {
+            QdbBatchBlob.addGet(batch, aliases[i]);
+        }
+
+        try {
+            batch.run();
+        } catch (RuntimeException e) {
+            if (!batch.hasRun())
+                throw e; // <- nothing was read back
+        }
+
+        for (int i = 0; i < count; ++i) {
+            failures[i] = batch.failure(i);
+        }
+        copy();
+    }
+
+    // Copies the contents read by the batch back to back, growing the arena at most once.
+    private void copy() {
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            ByteBuffer content = (ByteBuffer)batch.results[i];
+            if (failures[i] == null && content != null)
+                total += content.remaining();
+        }
+        if (total > Integer.MAX_VALUE)
+            throw new InvalidArgumentException("Contents do not fit in a single arena: " + total + " bytes");
+
+        if (memory == null || memory.capacity() < total) {
+            if (memory != null) {
+                pool.buffers().release(memory);
+                memory = null;
+            }
+            memory = pool.buffers().acquire((int)Math.max(total, INITIAL_CAPACITY));
+        }
+
+        ByteBuffer writer = memory;
+        writer.clear();
+        for (int i = 0; i < count; ++i) {
+            ByteBuffer content = (ByteBuffer)batch.results[i];
+            offsets[i] = writer.position();
+            if (failures[i] != null) {
+                lengths[i] = -1;
+            } else if (content == null) {
+                lengths[i] = 0; // <- empty blob
+            } else {
+                lengths[i] = content.remaining();
+                writer.put(content.duplicate());
+            }
+        }
+        writer.flip();
+        data = writer.asReadOnlyBuffer();
+    }
+
+    private void allocateTable(int capacity) {
+        if (aliases.length >= capacity)
+            return;
+
+        aliases = new String[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        failures = new RuntimeException[capacity];
+    }
+
+    private void throwIfOutOfRange(int index) {
+        if (index < 0 || index >= count)
+            throw new InvalidArgumentException("No blob at index " + index);
+    }
+}
@@ -0,0 +1,198 @@
+package net.quasardb.qdb;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The content of a blob, read as a channel straight from the native memory it was fetched into.
+ *
+ * Reading, transferTo() and the stream returned by asInputStream() copy from the native
+ * buffer to their destination, without an intermediate heap copy. The native buffer is
+ * released as soon as the end of the content is reached, or when the channel is closed,
+ * whichever comes first.
+ *
+ * For example, to serve a blob over a socket:
+ * {@code
+ * try (QdbBlobChannel content = cluster.blob(alias).openChannel()) {
+ *     content.transferTo(socket);
+ * }
+ * }
+ */
+public final class QdbBlobChannel implements ReadableByteChannel {
+    private final QdbBufferPool buffers;
+    private Buffer buffer;
+    private ByteBuffer decoded;  // <- pooled, when the content was compressed
+    private ByteBuffer content;  // <- what remains to be read
+    private final long size;
+    private boolean open = true;
+
+    // Package-private constructor. Call QdbBlob.openChannel() to get an instance.
+    QdbBlobChannel(QdbSessionPool pool, Buffer buffer) {
+        this.buffers = pool.buffers();
+        this.buffer = buffer;
+
+        ByteBuffer stored = buffer.toByteBuffer();
+        QdbCompression compression = pool.compression();
+        if (stored == null) {
+            this.content = ByteBuffer.allocate(0);
+        } else if (compression != null && QdbCompression.isEncoded(stored)) {
+            try {
+                this.decoded = compression.decode(stored, buffers);
+            } finally {
+                buffer.close();
+                this.buffer = null;
+            }
+            this.content = decoded.duplicate();
+        } else {
+            this.content = stored.duplicate();
+        }
+        this.size = content.remaining();
+        releaseIfDone();
+    }
+
+    /**
+     * Gets the length of the content.
+     *
+     * @return The length of the content, in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the content that has not been read yet.
+     *
+     * @return The number of bytes left.
+     */
+    public long remaining() {
+        return open ? content.remaining() : 0;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        throwIfClosed();
+        if (!content.hasRemaining())
+            return -1;
+
+        int n = Math.min(dst.remaining(), content.remaining());
+        ByteBuffer slice = content.duplicate();
+        slice.limit(slice.position() + n);
+        dst.put(slice);
+        content.position(content.position() + n);
+
+        releaseIfDone();
+        return n;
+    }
+
+    /**
+     * Writes the rest of the content to a channel, for instance a socket or a file,
+     * then releases the native buffer.
+     *
+     * @param dest The channel to write to.
+     * @return The number of bytes written.
+     * @throws IOException If writing to the channel fails, or this channel is closed.
+     */
+    public long transferTo(WritableByteChannel dest) throws IOException {
+        throwIfClosed();
+
+        long written = 0;
+        while (content.hasRemaining()) {
+            written += dest.write(content);
+        }
+        releaseIfDone();
+        return written;
+    }
+
+    /**
+     * Gets a stream reading the rest of the content. Closing the stream closes this channel.
+     *
+     * @return An input stream over the content.
+     */
+    public InputStream asInputStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throwIfClosed();
+                if (!content.hasRemaining())
+                    return -1;
+
+                int b = content.get() & 0xff;
+                releaseIfDone();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                throwIfClosed();
+                if (len == 0)
+                    return 0;
+                if (!content.hasRemaining())
+                    return -1;
+
+                int n = Math.min(len, content.remaining());
+                content.get(b, off, n);
+                releaseIfDone();
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                throwIfClosed();
+                int skipped = (int)Math.max(0, Math.min(n, content.remaining()));
+                content.position(content.position() + skipped);
+                releaseIfDone();
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int)remaining();
+            }
+
+            @Override
+            public void close() {
+                QdbBlobChannel.this.close();
+            }
+        };
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Releases the native buffer, if the end of the content has not been reached.
+     */
+    @Override
+    public void close() {
+        open = false;
+        release();
+    }
+
+    // The content is not needed once it has been read entirely.
+    private void releaseIfDone() {
+        if (!content.hasRemaining())
+            release();
+    }
+
+    private void release() {
+        if (buffer != null) {
+            buffer.close();
+            buffer = null;
+        }
+        if (decoded != null) {
+            buffers.release(decoded);
+            decoded = null;
+        }
+    }
+
+    private void throwIfClosed() throws ClosedChannelException {
+        if (!open)
+            throw new ClosedChannelException();
+    }
+}
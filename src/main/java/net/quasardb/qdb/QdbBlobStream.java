@@ -0,0 +1,400 @@
+package net.quasardb.qdb;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A large object stored as a manifest blob and a sequence of fixed-size chunk blobs.
+ *
+ * The manifest, stored under the alias of the stream, holds the total size and the chunk
+ * size; chunk i is stored under the alias of the stream followed by ".chunk." and i. Chunks
+ * land on different nodes, and are sent and fetched several at a time with partitioned
+ * batches, so one large object uses the whole cluster in parallel.
+ *
+ * A writer writes the chunks first and the manifest last, so the new size only becomes
+ * visible once every chunk is stored. Chunks are replaced in place: a reader running during
+ * a write may see a mix of old and new chunks. Readers only fetch the chunks that cover
+ * what they read.
+ */
+public final class QdbBlobStream {
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private static final int MAGIC = 0x51534d31; // <- "QSM1"
+    private static final int MANIFEST_SIZE = 20;
+
+    private final QdbSessionPool pool;
+    private final String alias;
+    private final int chunkSize;
+    private final int parallelism;
+
+    // Protected constructor. Call QdbCluster.blobStream() to get an instance.
+    protected QdbBlobStream(QdbSessionPool pool, String alias, int chunkSize, int parallelism) {
+        if (chunkSize < 1)
+            throw new InvalidArgumentException("Chunk size must be at least 1");
+        if (parallelism < 1)
+            throw new InvalidArgumentException("Parallelism must be at least 1");
+
+        this.pool = pool;
+        this.alias = alias;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the alias of the manifest of the stream.
+     *
+     * @return The alias of the stream.
+     */
+    public String alias() {
+        return alias;
+    }
+
+    /**
+     * Gets the alias of a chunk of the stream.
+     *
+     * @param index The index of the chunk.
+     * @return The alias of the chunk blob.
+     */
+    public String chunkAlias(long index) {
+        return alias + ".chunk." + index;
+    }
+
+    /**
+     * Gets the size of the object, as recorded in the manifest.
+     *
+     * @return The size of the object, in bytes.
+     * @throws AliasNotFoundException If the stream does not exist.
+     * @throws IncompatibleTypeException If the alias does not hold a stream manifest.
+     */
+    public long size() {
+        return readManifest().size;
+    }
+
+    /**
+     * Opens a channel replacing the content of the stream. The new content becomes visible
+     * when the channel is closed.
+     *
+     * @return A channel to write the new content to.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     */
+    public WritableByteChannel openWriter() {
+        pool.throwIfClosed();
+        return new Writer();
+    }
+
+    /**
+     * Opens an output stream replacing the content of the stream.
+     *
+     * @return A stream to write the new content to. The content becomes visible when it is closed.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see #openWriter()
+     */
+    public OutputStream openOutputStream() {
+        return Channels.newOutputStream(openWriter());
+    }
+
+    /**
+     * Opens a channel reading the content of the stream, from any position.
+     *
+     * @return A read-only seekable channel.
+     * @throws AliasNotFoundException If the stream does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a stream manifest.
+     */
+    public SeekableByteChannel openReader() {
+        return new Reader(readManifest());
+    }
+
+    /**
+     * Opens an input stream reading the content of the stream.
+     *
+     * @return A stream reading from the start of the content.
+     * @throws AliasNotFoundException If the stream does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a stream manifest.
+     * @see #openReader()
+     */
+    public InputStream openInputStream() {
+        return Channels.newInputStream(openReader());
+    }
+
+    /**
+     * Removes every chunk of the stream, then its manifest.
+     *
+     * The manifest goes last, so a removal interrupted halfway leaves no orphan chunk:
+     * the stream can still be found, and calling remove() again finishes the job.
+     *
+     * @throws AliasNotFoundException If the stream does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a stream manifest.
+     */
+    public void remove() {
+        Manifest manifest = readManifest();
+        removeChunks(0, manifest.chunkCount());
+        new QdbEntry(pool, alias).remove();
+    }
+
+    private Manifest readManifest() {
+        pool.throwIfClosed();
+
+        ByteBuffer content = ByteBuffer.allocate(MANIFEST_SIZE + 1);
+        int length;
+        try {
+            length = new QdbBlob(pool, alias).getInto(content);
+        } catch (BufferOverflowException e) {
+            throw new IncompatibleTypeException("Alias " + alias + " does not hold a blob stream");
+        }
+        content.flip();
+
+        if (length != MANIFEST_SIZE || content.getInt() != MAGIC)
+            throw new IncompatibleTypeException("Alias " + alias + " does not hold a blob stream");
+
+        Manifest manifest = new Manifest();
+        manifest.size = content.getLong();
+        manifest.chunkSize = content.getInt();
+        content.getInt(); // <- reserved
+        return manifest;
+    }
+
+    private void writeManifest(long size) {
+        ByteBuffer content = ByteBuffer.allocateDirect(MANIFEST_SIZE);
+        content.putInt(MAGIC);
+        content.putLong(size);
+        content.putInt(chunkSize);
+        content.putInt(0);
+        content.flip();
+        new QdbBlob(pool, alias).update(content);
+    }
+
+    // Removes chunks [from, to), parallelism at a time; chunks already missing are ignored.
+    private void removeChunks(long from, long to) {
+        for (long i = from; i < to; i += parallelism) {
+            List<CompletableFuture<Void>> removals = new ArrayList<CompletableFuture<Void>>(parallelism);
+            for (long j = i; j < Math.min(to, i + parallelism); ++j) {
+                removals.add(new QdbEntry(pool, chunkAlias(j)).removeAsync());
+            }
+            for (CompletableFuture<Void> removal : removals) {
+                try {
+                    removal.join();
+                } catch (CompletionException e) {
+                    if (!(e.getCause() instanceof AliasNotFoundException)) // <- left over by an interrupted writer or removal
+                        throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+                }
+            }
+        }
+    }
+
+    private static final class Manifest {
+        long size;
+        int chunkSize;
+
+        long chunkCount() {
+            return (size + chunkSize - 1) / chunkSize;
+        }
+    }
+
+    private final class Writer implements WritableByteChannel {
+        private final QdbBatch batch = new QdbBatch(pool);
+        private final long previousChunkCount;
+        private ByteBuffer chunk;
+        private long chunkIndex;
+        private long size;
+        private boolean open = true;
+
+        Writer() {
+            long count;
+            try {
+                count = readManifest().chunkCount();
+            } catch (AliasNotFoundException e) {
+                count = 0;
+            }
+            this.previousChunkCount = count;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!open)
+                throw new ClosedChannelException();
+
+            int written = src.remaining();
+            while (src.hasRemaining()) {
+                if (chunk == null)
+                    chunk = batch.allocate(chunkSize);
+
+                int n = Math.min(src.remaining(), chunk.remaining());
+                ByteBuffer slice = src.duplicate();
+                slice.limit(slice.position() + n);
+                chunk.put(slice);
+                src.position(src.position() + n);
+
+                if (!chunk.hasRemaining())
+                    addChunk();
+            }
+            size += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!open)
+                return;
+            open = false;
+
+            try {
+                if (chunk != null && chunk.position() > 0)
+                    addChunk();
+                send();
+
+                writeManifest(size);
+                if (previousChunkCount > chunkIndex)
+                    removeChunks(chunkIndex, previousChunkCount);
+            } finally {
+                batch.close();
+            }
+        }
+
+        private void addChunk() {
+            chunk.flip();
+            batch.blob(chunkAlias(chunkIndex++)).update(chunk);
+            chunk = null;
+
+            if (batch.operationCount() >= parallelism)
+                send();
+        }
+
+        // Sends the pending chunks, spread over the nodes that own them.
+        private void send() {
+            if (batch.operationCount() == 0)
+                return;
+
+            batch.runPartitioned();
+            batch.clear(); // <- releases the chunk buffers
+        }
+    }
+
+    private final class Reader implements SeekableByteChannel {
+        private final Manifest manifest;
+        private final QdbBatch batch = new QdbBatch(pool);
+        private final List<QdbFuture<ByteBuffer>> window = new ArrayList<QdbFuture<ByteBuffer>>();
+        private long windowStart = -1;
+        private long position;
+        private boolean open = true;
+
+        Reader(Manifest manifest) {
+            this.manifest = manifest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            throwIfClosed();
+            if (position >= manifest.size)
+                return -1;
+
+            int read = 0;
+            while (dst.hasRemaining() && position < manifest.size) {
+                long index = position / manifest.chunkSize;
+                ByteBuffer content = chunk(index, dst.remaining());
+
+                int offset = (int)(position - index * manifest.chunkSize);
+                int n = Math.min(dst.remaining(), content.remaining() - offset);
+                if (n <= 0)
+                    throw new IncompatibleTypeException("Chunk " + index + " of " + alias + " is shorter than its manifest says");
+
+                ByteBuffer slice = content.duplicate();
+                slice.position(offset);
+                slice.limit(offset + n);
+                dst.put(slice);
+
+                position += n;
+                read += n;
+            }
+            return read;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            throwIfClosed();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            throwIfClosed();
+            if (newPosition < 0)
+                throw new IllegalArgumentException("Position cannot be negative");
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            throwIfClosed();
+            return manifest.size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            batch.close();
+        }
+
+        // Gets a chunk, fetching it along with the next ones the current read needs,
+        // up to the parallelism of the stream.
+        private ByteBuffer chunk(long index, int wanted) {
+            if (windowStart < 0 || index < windowStart || index >= windowStart + window.size()) {
+                long last = (position + wanted - 1) / manifest.chunkSize;
+                long end = Math.min(Math.min(last + 1, index + parallelism), manifest.chunkCount());
+
+                batch.clear();
+                window.clear();
+                for (long i = index; i < end; ++i) {
+                    window.add(batch.blob(chunkAlias(i)).get());
+                }
+                batch.runPartitioned();
+                windowStart = index;
+            }
+
+            ByteBuffer content = window.get((int)(index - windowStart)).get();
+            return content == null ? ByteBuffer.allocate(0) : content;
+        }
+
+        private void throwIfClosed() throws ClosedChannelException {
+            if (!open)
+                throw new ClosedChannelException();
+        }
+    }
+}
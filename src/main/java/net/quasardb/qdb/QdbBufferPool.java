@@ -0,0 +1,316 @@
+package net.quasardb.qdb;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A pool of direct buffers, for the contents passed to blob operations.
+ *
+ * Blob operations only accept direct buffers, which are slow to allocate and only freed by
+ * the garbage collector. This pool hands out direct buffers rounded up to a power of two,
+ * carved from larger slabs, and takes them back with release(). Released buffers are first
+ * kept in a small per-thread cache, then in a shared queue per size class.
+ *
+ * Requests larger than the largest size class are allocated directly and never pooled.
+ *
+ * The pool knows which of its buffers are out: releasing a buffer twice, or a buffer that
+ * it did not hand out, is refused instead of corrupting the pool.
+ *
+ * With leak tracking enabled, every buffer that is acquired and not released is reported
+ * by leaks(), with the stack trace of its acquisition.
+ */
+public final class QdbBufferPool {
+    public static final int MIN_SIZE = 256;
+    public static final int MAX_SIZE = 4 * 1024 * 1024;
+
+    private static final int SLAB_SIZE = 1024 * 1024;
+    private static final int THREAD_CACHE_SIZE = 16;
+    private static final int SHARED_CACHE_BYTES = 16 * 1024 * 1024;
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+    private static final int LEASE_STRIPES = 16;
+    private static final Throwable UNTRACKED = new Throwable(); // <- lease recorded without its stack trace
+
+    private final ConcurrentLinkedQueue<ByteBuffer>[] shared;
+    private final AtomicInteger[] sharedCount;
+    private final ThreadLocal<ThreadCache> threadCache = ThreadLocal.withInitial(ThreadCache::new);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    // Buffers handed out and not released yet, by identity, with where they were acquired.
+    private volatile boolean trackLeaks;
+    private final Map<ByteBuffer, Throwable>[] leases;
+
+    /**
+     * Creates an empty pool.
+     */
+    @SuppressWarnings("unchecked") // <- arrays of generic types
+    public QdbBufferPool() {
+        this.shared = new ConcurrentLinkedQueue[CLASS_COUNT];
+        this.sharedCount = new AtomicInteger[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; ++i) {
+            shared[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            sharedCount[i] = new AtomicInteger();
+        }
+        this.leases = new Map[LEASE_STRIPES];
+        for (int i = 0; i < LEASE_STRIPES; ++i) {
+            leases[i] = Collections.synchronizedMap(new IdentityHashMap<ByteBuffer, Throwable>());
+        }
+    }
+
+    /**
+     * Gets a direct buffer of at least the requested size. Every call should be matched
+     * by a call to release().
+     *
+     * @param size The number of bytes needed.
+     * @return A cleared direct buffer, whose limit is the requested size.
+     * @throws InvalidArgumentException If size is negative.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0)
+            throw new InvalidArgumentException("Buffer size cannot be negative");
+
+        ByteBuffer buffer;
+        if (size > MAX_SIZE) {
+            misses.incrementAndGet();
+            allocatedBytes.addAndGet(size);
+            buffer = ByteBuffer.allocateDirect(size);
+        } else {
+            buffer = take(classOf(size));
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+
+        outstanding.incrementAndGet();
+        leasesOf(buffer).put(buffer, trackLeaks ? new Throwable("Buffer of " + size + " bytes acquired here") : UNTRACKED);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer A buffer returned by acquire().
+     * @throws InvalidArgumentException If the buffer was not acquired from this pool, or has already been released.
+     */
+    public void release(ByteBuffer buffer) {
+        if (leasesOf(buffer).remove(buffer) == null)
+            throw new InvalidArgumentException("Buffer was not acquired from this pool, or has already been released");
+
+        outstanding.decrementAndGet();
+        int capacity = buffer.capacity();
+        if (capacity > MAX_SIZE)
+            return; // <- unpooled, left to the garbage collector
+
+        int sizeClass = classOf(capacity);
+        if (threadCache.get().push(sizeClass, buffer))
+            return;
+
+        if (sharedCount[sizeClass].get() * (long)capacity < SHARED_CACHE_BYTES) {
+            sharedCount[sizeClass].incrementAndGet();
+            shared[sizeClass].offer(buffer);
+        }
+    }
+
+    /**
+     * Enables or disables leak tracking. Tracking records a stack trace for every acquisition,
+     * and is meant for tests and debugging.
+     *
+     * @param enabled true to track the buffers acquired from now on.
+     */
+    public void setLeakTracking(boolean enabled) {
+        this.trackLeaks = enabled;
+    }
+
+    /**
+     * Gets the buffers acquired while leak tracking was enabled, and not released yet.
+     *
+     * @return One exception per buffer, whose stack trace shows where the buffer was acquired.
+     */
+    public List<Throwable> leaks() {
+        List<Throwable> leaks = new ArrayList<Throwable>();
+        for (Map<ByteBuffer, Throwable> stripe : leases) {
+            synchronized (stripe) {
+                for (Throwable trace : stripe.values()) {
+                    if (trace != UNTRACKED)
+                        leaks.add(trace);
+                }
+            }
+        }
+        return leaks;
+    }
+
+    /**
+     * Gets the number of buffers acquired and not released yet.
+     *
+     * @return The number of outstanding buffers.
+     */
+    public long outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Gets the number of acquisitions served by a buffer released earlier.
+     *
+     * @return The number of hits.
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of acquisitions that needed new memory.
+     *
+     * @return The number of misses.
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the ratio of acquisitions served by a buffer released earlier.
+     *
+     * @return The hit rate, between 0 and 1.
+     */
+    public double hitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * Gets the amount of direct memory allocated by the pool since its creation.
+     *
+     * @return The number of bytes allocated.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    // Returns content if it is direct, or a pooled copy of it, to release once the call is done.
+    ByteBuffer stage(ByteBuffer content) {
+        if (content == null || content.isDirect())
+            return content;
+
+        ByteBuffer direct = acquire(content.remaining());
+        direct.put(content.duplicate());
+        direct.flip();
+        return direct;
+    }
+
+    // Returns the parts copied back to back into a single buffer, to release once the call is done.
+    ByteBuffer gather(ByteBuffer[] parts) {
+        ByteBuffer gathered = acquire(gatheredLength(parts));
+        for (ByteBuffer part : parts) {
+            gathered.put(part.duplicate());
+        }
+        gathered.flip();
+        return gathered;
+    }
+
+    private static int gatheredLength(ByteBuffer[] parts) {
+        long length = 0;
+        for (ByteBuffer part : parts) {
+            length += part.remaining();
+        }
+        if (length > Integer.MAX_VALUE)
+            throw new InvalidArgumentException("Content parts add up to more than 2GB: " + length + " bytes");
+        return (int)length;
+    }
+
+    // Releases what stage() returned, if it is a copy.
+    void unstage(ByteBuffer content, ByteBuffer staged) {
+        if (staged != content)
+            release(staged);
+    }
+
+    private Map<ByteBuffer, Throwable> leasesOf(ByteBuffer buffer) {
+        return leases[System.identityHashCode(buffer) & (LEASE_STRIPES - 1)];
+    }
+
+    private ByteBuffer take(int sizeClass) {
+        ByteBuffer buffer = threadCache.get().pop(sizeClass);
+        if (buffer == null) {
+            buffer = shared[sizeClass].poll();
+            if (buffer != null)
+                sharedCount[sizeClass].decrementAndGet();
+        }
+
+        if (buffer != null) {
+            hits.incrementAndGet();
+            return buffer;
+        }
+
+        misses.incrementAndGet();
+        return carve(sizeClass);
+    }
+
+    // Allocates a slab, returns its first buffer and caches the others.
+    private ByteBuffer carve(int sizeClass) {
+        int size = sizeOf(sizeClass);
+        int count = Math.max(1, SLAB_SIZE / size);
+        ByteBuffer slab = ByteBuffer.allocateDirect(size * count);
+        allocatedBytes.addAndGet(size * count);
+
+        ByteBuffer first = null;
+        for (int i = 0; i < count; ++i) {
+            slab.limit((i + 1) * size);
+            slab.position(i * size);
+            ByteBuffer buffer = slab.slice();
+
+            if (first == null) {
+                first = buffer;
+            } else {
+                sharedCount[sizeClass].incrementAndGet();
+                shared[sizeClass].offer(buffer);
+            }
+        }
+        return first;
+    }
+
+    private static int classOf(int size) {
+        if (size <= MIN_SIZE)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    private static int sizeOf(int sizeClass) {
+        return MIN_SIZE << sizeClass;
+    }
+
+    private static final class ThreadCache {
+        final ByteBuffer[][] buffers = new ByteBuffer[CLASS_COUNT][THREAD_CACHE_SIZE];
+        final int[] counts = new int[CLASS_COUNT];
+
+        ByteBuffer pop(int sizeClass) {
+            int n = counts[sizeClass];
+            if (n == 0)
+                return null;
+
+            ByteBuffer buffer = buffers[sizeClass][--n];
+            buffers[sizeClass][n] = null;
+            counts[sizeClass] = n;
+            return buffer;
+        }
+
+        boolean push(int sizeClass, ByteBuffer buffer) {
+            int n = counts[sizeClass];
+            if (n == THREAD_CACHE_SIZE)
+                return false;
+
+            buffers[sizeClass][n] = buffer;
+            counts[sizeClass] = n + 1;
+            return true;
+        }
+    }
+}
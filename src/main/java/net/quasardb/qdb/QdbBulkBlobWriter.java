@@ -0,0 +1,355 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Writes a large number of blobs, in batches sent in the background.
+ *
+ * Blobs given to put() are packed into batches bounded both in number of operations and in
+ * bytes. Full batches are sent on the executor of the cluster while the caller keeps adding
+ * blobs. The caller is blocked, rather than memory piling up, when too many batches or too
+ * many bytes are in flight.
+ *
+ * The contents passed to put() are sent as is: they must not be modified until flush()
+ * or close() returns.
+ *
+ * Blobs that fail on their own, for instance because they already exist, do not stop the
+ * writer: they are counted by failedCount() and listed with their error by failures().
+ * Only a batch that fails as a whole is raised by put(), flush() and close(). The blobs
+ * still pending at that point are not sent, and are counted as failed with the same error.
+ *
+ * A writer is meant to be fed by a single thread: put(), flush() and close() must not be
+ * called concurrently. Use one writer per producing thread. When fed from a worker of the
+ * cluster's executor, batches are sent on the calling thread instead, since waiting for
+ * another worker from a worker could deadlock.
+ */
+public final class QdbBulkBlobWriter implements AutoCloseable {
+    public static final int DEFAULT_BATCH_OPERATIONS = 1024;
+    public static final int DEFAULT_BATCH_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_IN_FLIGHT_BATCHES = 4;
+    public static final long DEFAULT_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+    private final QdbSessionPool pool;
+    private final int maxBatchOperations;
+    private final int maxBatchBytes;
+    private final int maxInFlightBatches;
+    private final long maxInFlightBytes;
+
+    private volatile QdbBatchSizer sizer;
+    private QdbBatch current;
+    private List<QdbFuture<Void>> currentPuts;
+    private long currentBytes;
+
+    // Guarded by this: what has been sent and not acknowledged yet.
+    private int inFlightBatches;
+    private long inFlightBytes;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final ConcurrentHashMap<String, RuntimeException> failures = new ConcurrentHashMap<String, RuntimeException>();
+    private final AtomicReference<RuntimeException> error = new AtomicReference<RuntimeException>();
+    private boolean closed;
+
+    // Protected constructor. Call QdbCluster.createBulkWriter() to get an instance.
+    protected QdbBulkBlobWriter(QdbSessionPool pool,
+                                int maxBatchOperations,
+                                int maxBatchBytes,
+                                int maxInFlightBatches,
+                                long maxInFlightBytes) {
+        if (maxBatchOperations < 1)
+            throw new InvalidArgumentException("Batch must hold at least one operation");
+        if (maxBatchBytes < 1)
+            throw new InvalidArgumentException("Batch must hold at least one byte");
+        if (maxInFlightBatches < 1)
+            throw new InvalidArgumentException("At least one batch must be allowed in flight");
+        if (maxInFlightBytes < maxBatchBytes)
+            throw new InvalidArgumentException("In-flight bytes must be at least the size of a batch");
+
+        this.pool = pool;
+        this.maxBatchOperations = maxBatchOperations;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    /**
+     * Adds a blob to write. Blocks while too many batches or bytes are in flight.
+     *
+     * @param alias The alias of the blob to create.
+     * @param content The content of the blob.
+     * @throws ClusterClosedException If close() has been called.
+     * @throws RuntimeException The first error raised by a batch sent earlier, if any.
+     */
+    public void put(String alias, ByteBuffer content) {
+        throwIfClosed();
+        RuntimeException e = error.get();
+        if (e != null) {
+            discard(e);
+            throw e;
+        }
+
+        int size = content.remaining();
+        if (current != null && currentBytes + size > byteLimit())
+            send();
+
+        if (current == null) {
+            current = new QdbBatch(pool);
+            currentPuts = new ArrayList<QdbFuture<Void>>();
+            currentBytes = 0;
+        }
+        currentPuts.add(current.blob(alias).put(content));
+        currentBytes += size;
+
+        if (current.operationCount() >= operationLimit() || currentBytes >= byteLimit())
+            send();
+    }
+
+    /**
+     * Lets a sizer choose the size of the next batches, in place of the fixed limits given
+     * at creation. Limits on batches and bytes in flight still apply.
+     *
+     * @param sizer The sizer, or null to go back to the fixed limits.
+     */
+    public void setBatchSizer(QdbBatchSizer sizer) {
+        this.sizer = sizer;
+    }
+
+    /**
+     * Sends the pending blobs, and waits until every batch in flight has been acknowledged.
+     *
+     * @throws ClusterClosedException If close() has been called.
+     * @throws RuntimeException The first error raised by a batch, if any.
+     */
+    public void flush() {
+        throwIfClosed();
+        if (current != null)
+            send();
+
+        synchronized (this) {
+            while (inFlightBatches > 0) {
+                waitForAcknowledgement();
+            }
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Gets the number of blobs written successfully so far.
+     *
+     * @return The number of blobs written.
+     */
+    public long writtenCount() {
+        return written.get();
+    }
+
+    /**
+     * Gets the number of blobs that could not be written so far, for instance because they already exist.
+     *
+     * @return The number of failed writes.
+     */
+    public long failedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the blobs that could not be written so far, with the error raised for each of them.
+     *
+     * @return A read-only view of the failed writes, by alias.
+     */
+    public Map<String, RuntimeException> failures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Gets the number of bytes sent and not acknowledged yet.
+     *
+     * @return The number of bytes in flight.
+     */
+    public synchronized long inFlightBytes() {
+        return inFlightBytes;
+    }
+
+    /**
+     * Sends the pending blobs and waits for every batch in flight.
+     *
+     * @throws RuntimeException The first error raised by a batch, if any.
+     */
+    public void close() {
+        if (closed)
+            return;
+
+        try {
+            flush();
+        } finally {
+            closed = true;
+        }
+    }
+
+    // Hands the current batch to the executor, once enough batches and bytes are acknowledged.
+    private void send() {
+        QdbBatch batch = current;
+        List<QdbFuture<Void>> puts = currentPuts;
+        long bytes = currentBytes;
+        current = null;
+        currentPuts = null;
+        currentBytes = 0;
+
+        QdbAsyncExecutor executor = pool.executor();
+        if (executor.isWorkerThread()) {
+            // Nothing is in flight from this thread: its batches never leave it.
+            RuntimeException failure = null;
+            try {
+                write(batch, puts);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                inFlightBatches++;
+                inFlightBytes += bytes;
+            }
+            acknowledge(bytes, failure);
+            return;
+        }
+
+        try {
+            synchronized (this) {
+                // A batch larger than the byte limit on its own still goes once nothing else is in flight.
+                while (inFlightBatches >= maxInFlightBatches
+                       || (inFlightBatches > 0 && inFlightBytes + bytes > maxInFlightBytes)) {
+                    waitForAcknowledgement();
+                }
+                inFlightBatches++;
+                inFlightBytes += bytes;
+            }
+        } catch (RuntimeException e) {
+            failAll(batch, e);
+            batch.close();
+            throw e;
+        }
+
+        executor.submit(() -> {
+                write(batch, puts);
+                return null;
+            }, QdbAsyncExecutor.NO_TIMEOUT)
+            .whenComplete((result, e) -> {
+                    if (e != null && !batch.isClosed()) {
+                        failAll(batch, e instanceof RuntimeException ? (RuntimeException)e : new CompletionException(e));
+                        batch.close(); // <- rejected by the executor, never run
+                    }
+                    acknowledge(bytes, e);
+                });
+    }
+
+    // Runs a batch and counts the outcome of its puts, then closes it.
+    private void write(QdbBatch batch, List<QdbFuture<Void>> puts) {
+        QdbBatchSizer s = sizer;
+        try {
+            try {
+                if (s != null)
+                    s.run(batch);
+                else
+                    batch.run();
+            } catch (RuntimeException e) {
+                if (!batch.hasRun()) {
+                    failAll(batch, e);
+                    throw e;
+                }
+                // <- the failed puts hold their own error
+            }
+            collect(batch, puts);
+        } finally {
+            batch.close();
+        }
+    }
+
+    // Drops the batch being filled once the writer has failed: its blobs are never sent.
+    private void discard(RuntimeException e) {
+        if (current == null)
+            return;
+
+        failAll(current, e);
+        current.close();
+        current = null;
+        currentPuts = null;
+        currentBytes = 0;
+    }
+
+    // Counts the outcome of each put of a batch that has run.
+    private void collect(QdbBatch batch, List<QdbFuture<Void>> puts) {
+        for (int i = 0; i < puts.size(); ++i) {
+            QdbFuture<Void> put = puts.get(i);
+            try {
+                put.get();
+                if (put.success()) {
+                    written.incrementAndGet();
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                failures.put(batch.aliases[i], e);
+            }
+            failed.incrementAndGet();
+        }
+    }
+
+    // Counts every put of a batch that failed as a whole.
+    private void failAll(QdbBatch batch, RuntimeException e) {
+        for (int i = 0; i < batch.operationCount(); ++i) {
+            failures.put(batch.aliases[i], e);
+        }
+        failed.addAndGet(batch.operationCount());
+    }
+
+    private int operationLimit() {
+        QdbBatchSizer s = sizer;
+        return s != null ? s.operationLimit() : maxBatchOperations;
+    }
+
+    // A sizer may allow more bytes per batch than may be in flight: the latter wins.
+    private long byteLimit() {
+        QdbBatchSizer s = sizer;
+        return s != null ? Math.min(s.byteLimit(), maxInFlightBytes) : maxBatchBytes;
+    }
+
+    private synchronized void acknowledge(long bytes, Throwable e) {
+        if (e != null) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            error.compareAndSet(null, cause instanceof RuntimeException
+                                ? (RuntimeException)cause
+                                : new CompletionException(cause));
+        }
+
+        inFlightBatches--;
+        inFlightBytes -= bytes;
+        notifyAll();
+    }
+
+    private void waitForAcknowledgement() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private void throwIfFailed() {
+        RuntimeException e = error.get();
+        if (e != null)
+            throw e;
+    }
+
+    private void throwIfClosed() {
+        if (closed)
+            throw new ClusterClosedException("Bulk writer is already closed");
+    }
+}
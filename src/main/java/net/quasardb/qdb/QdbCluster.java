@@ -3,7 +3,12 @@ package net.quasardb.qdb;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.util.regex.*;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import net.quasardb.qdb.ts.Column;
 import net.quasardb.qdb.jni.*;
 import net.quasardb.qdb.exception.*;
@@ -12,7 +17,7 @@ import net.quasardb.qdb.exception.*;
  * A connection to a quasardb cluster.
  */
 public class QdbCluster implements AutoCloseable {
-    private Session session;
+    private QdbSessionPool pool;
 
     /**
      * Connects to a quasardb cluster through the specified URI. Requires security settings to be disabled.
@@ -24,7 +29,23 @@ public class QdbCluster implements AutoCloseable {
      * @throws InvalidArgumentException If the syntax of the URI is incorrect.
      */
     public QdbCluster(String uri) {
-        this.session = Session.connect(uri);
+        this.pool = new QdbSessionPool(Session.connect(uri));
+    }
+
+    /**
+     * Connects to a quasardb cluster through the specified URI, using a pool of sessions.
+     * Requires security settings to be disabled.
+     *
+     * Operations are spread over the sessions of the pool, which increases throughput when
+     * the cluster is used by many threads at once.
+     *
+     * @param uri a string in the form of <code>qdb://&lt;address1&gt;:&lt;port1&gt;[,&lt;address2&gt;:&lt;port2&gt;...]</code>
+     * @param poolSize The number of sessions to open.
+     * @throws ConnectionRefusedException If the connection to the cluster is refused.
+     * @throws InvalidArgumentException If the syntax of the URI is incorrect, or poolSize is lower than 1.
+     */
+    public QdbCluster(String uri, int poolSize) {
+        this.pool = QdbSessionPool.connect(uri, poolSize);
     }
 
     /**
@@ -39,21 +60,75 @@ public class QdbCluster implements AutoCloseable {
      */
     public QdbCluster(String uri,
                       Session.SecurityOptions securityOptions) {
-        this.session = Session.connect(securityOptions, uri);
+        this.pool = new QdbSessionPool(Session.connect(securityOptions, uri));
+    }
+
+    /**
+     * Connects to a quasardb secure cluster through the specified URI, using a pool of sessions.
+     *
+     * @param uri a string in the form of <code>qdb://&lt;address1&gt;:&lt;port1&gt;[,&lt;address2&gt;:&lt;port2&gt;...]</code>
+     * @param securityOptions An instance of QdbCluster.SecurityOptions for authentication.
+     * @param poolSize The number of sessions to open.
+     * @throws ConnectionRefusedException If the connection to the cluster is refused.
+     * @throws InvalidArgumentException If the syntax of the URI is incorrect, or poolSize is lower than 1.
+     */
+    public QdbCluster(String uri,
+                      Session.SecurityOptions securityOptions,
+                      int poolSize) {
+        this.pool = QdbSessionPool.connect(securityOptions, uri, poolSize);
     }
 
     /**
      * Closes the connection to the cluster.
      */
     public void close() {
-        this.session.close();
+        this.pool.close();
     }
 
     /**
-     * Returns the active Session.
+     * Returns the active Session. When the cluster uses a pool of sessions,
+     * this is the first session of the pool.
      */
     public Session getSession() {
-        return this.session;
+        return this.pool.primary();
+    }
+
+    /**
+     * Returns the pool of sessions operations are spread over.
+     */
+    public QdbSessionPool getSessionPool() {
+        return this.pool;
+    }
+
+    /**
+     * Sets the executor the asynchronous operations of this cluster run on, for instance
+     * to bound the number of queued operations or to give them a deadline.
+     *
+     * @param executor The executor. It is closed together with the cluster.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     */
+    public void setAsyncExecutor(QdbAsyncExecutor executor) {
+        pool.setExecutor(executor);
+    }
+
+    /**
+     * Gets the pool of direct buffers of this cluster, to allocate the contents of blobs.
+     *
+     * @return The buffer pool.
+     */
+    public QdbBufferPool getBufferPool() {
+        return pool.buffers();
+    }
+
+    /**
+     * Sets the compression applied to the contents of blobs, when they are written and when
+     * they are read with QdbBlob.getInto() and the like.
+     *
+     * @param compression The compression policy, or null to store contents raw.
+     * @see QdbCompression
+     */
+    public void setCompression(QdbCompression compression) {
+        pool.setCompression(compression);
     }
 
     /**
@@ -61,7 +136,7 @@ public class QdbCluster implements AutoCloseable {
      * in used by other objects.
      */
     public boolean isLegacySessionInitialised() {
-        return (this.session != null);
+        return (this.pool != null);
     }
 
     /**
@@ -72,8 +147,8 @@ public class QdbCluster implements AutoCloseable {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public QdbBlob blob(String alias) {
-        session.throwIfClosed();
-        return new QdbBlob(session, alias);
+        pool.throwIfClosed();
+        return new QdbBlob(pool, alias);
     }
 
     /**
@@ -85,8 +160,8 @@ public class QdbCluster implements AutoCloseable {
        * @throws ClusterClosedException If QdbCluster.close() has been called.
        */
     public QdbEntry entry(String alias) {
-        session.throwIfClosed();
-        return new QdbEntryFactory(session).createEntry(alias);
+        pool.throwIfClosed();
+        return new QdbEntryFactory(pool).createEntry(alias);
     }
 
     /**
@@ -97,8 +172,8 @@ public class QdbCluster implements AutoCloseable {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public QdbInteger integer(String alias) {
-        session.throwIfClosed();
-        return new QdbInteger(session, alias);
+        pool.throwIfClosed();
+        return new QdbInteger(pool, alias);
     }
 
     /**
@@ -118,8 +193,8 @@ public class QdbCluster implements AutoCloseable {
         String hostName = matcher.group(1);
         int port = Integer.parseInt(matcher.group(2));
 
-        session.throwIfClosed();
-        return new QdbNode(session, hostName, port);
+        pool.throwIfClosed();
+        return new QdbNode(pool, hostName, port);
     }
 
     /**
@@ -130,8 +205,8 @@ public class QdbCluster implements AutoCloseable {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public QdbTag tag(String alias) {
-        session.throwIfClosed();
-        return new QdbTag(session, alias);
+        pool.throwIfClosed();
+        return new QdbTag(pool, alias);
     }
 
     /**
@@ -142,8 +217,8 @@ public class QdbCluster implements AutoCloseable {
        * @throws ClusterClosedException If QdbCluster.close() has been called.
        */
     public QdbNode findNodeFor(String alias) {
-        session.throwIfClosed();
-        QdbEntry e = new QdbEntry(session, alias);
+        pool.throwIfClosed();
+        QdbEntry e = new QdbEntry(pool, alias);
         return e.node();
     }
 
@@ -156,8 +231,14 @@ public class QdbCluster implements AutoCloseable {
      * @throws OperationDisabledException If the operation has been disabled on the server.
      */
     public void purgeAll(int timeoutMillis) {
-        session.throwIfClosed();
-        qdb.purge_all(session.handle(), timeoutMillis);
+        Session session = pool.acquire();
+        try {
+            qdb.purge_all(session.handle(), timeoutMillis);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -168,8 +249,14 @@ public class QdbCluster implements AutoCloseable {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public void trimAll(int timeoutMillis) {
-        session.throwIfClosed();
-        qdb.trim_all(session.handle(), timeoutMillis);
+        Session session = pool.acquire();
+        try {
+            qdb.trim_all(session.handle(), timeoutMillis);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -180,8 +267,71 @@ public class QdbCluster implements AutoCloseable {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public void waitForStabilization(int timeoutMillis) {
-        session.throwIfClosed();
-        qdb.wait_for_stabilization(session.handle(), timeoutMillis);
+        Session session = pool.acquire();
+        try {
+            qdb.wait_for_stabilization(session.handle(), timeoutMillis);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+     * Get a handle to a large object stored as a manifest and chunk blobs, with the default
+     * chunk size and parallelism.
+     *
+     * @param alias The alias of the manifest of the stream.
+     * @return A handle to the stream.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbBlobStream
+     */
+    public QdbBlobStream blobStream(String alias) {
+        return blobStream(alias, QdbBlobStream.DEFAULT_CHUNK_SIZE, QdbBlobStream.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Get a handle to a large object stored as a manifest and chunk blobs.
+     *
+     * @param alias The alias of the manifest of the stream.
+     * @param chunkSize The size of the chunks written, in bytes. Readers use the size recorded in the manifest.
+     * @param parallelism The number of chunks sent or fetched per batch.
+     * @return A handle to the stream.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If chunkSize or parallelism is lower than 1.
+     * @see QdbBlobStream
+     */
+    public QdbBlobStream blobStream(String alias, int chunkSize, int parallelism) {
+        pool.throwIfClosed();
+        return new QdbBlobStream(pool, alias, chunkSize, parallelism);
+    }
+
+    /**
+     * Get a handle to a blob updated with optimistic concurrency on a version number.
+     *
+     * @param alias The alias of the head of the blob.
+     * @return A handle to the versioned blob.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbVersionedBlob
+     */
+    public QdbVersionedBlob versionedBlob(String alias) {
+        pool.throwIfClosed();
+        return new QdbVersionedBlob(pool, alias);
+    }
+
+    /**
+     * Get a handle to a blob holding a value converted with a codec.
+     *
+     * @param <T> The type of the value.
+     * @param alias The entry unique key/identifier in the database.
+     * @param codec The codec converting the value to and from the content of the blob.
+     * @return A handle to perform operations on the typed blob.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbCodec
+     */
+    public <T> QdbTypedBlob<T> typedBlob(String alias, QdbCodec<T> codec) {
+        pool.throwIfClosed();
+        return new QdbTypedBlob<T>(pool, alias, codec);
     }
 
     /**
@@ -190,8 +340,226 @@ public class QdbCluster implements AutoCloseable {
      * @return An empty batch.
      */
     public QdbBatch createBatch() {
-        session.throwIfClosed();
-        return new QdbBatch(session);
+        pool.throwIfClosed();
+        return new QdbBatch(pool);
+    }
+
+    /**
+     * Create a pipeline, which overlaps the encoding, sending and decoding of successive batches.
+     *
+     * @param depth The number of batches in the ring of the pipeline, usually 2 or 3.
+     * @return A new pipeline. Close it to wait for the batches in flight and release them.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If depth is lower than 2.
+     */
+    public QdbBatchPipeline createBatchPipeline(int depth) {
+        pool.throwIfClosed();
+        return new QdbBatchPipeline(pool, depth);
+    }
+
+    /**
+     * Create a coalescer, which groups concurrent single-entry operations into batches.
+     *
+     * @param maxDelayMillis The longest time an operation waits for others to join its batch, in milliseconds.
+     * @param maxBatchSize The number of operations that triggers a batch without waiting.
+     * @return A new coalescer. Close it to send the operations still waiting.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If maxDelayMillis is negative or maxBatchSize is lower than 1.
+     */
+    public QdbBatchCoalescer createCoalescer(long maxDelayMillis, int maxBatchSize) {
+        pool.throwIfClosed();
+        return new QdbBatchCoalescer(pool, maxDelayMillis, maxBatchSize);
+    }
+
+    /**
+     * Create a counter accumulator, which sums increments of integers locally and sends them in batches.
+     *
+     * @param flushIntervalMillis The time between two flushes, in milliseconds.
+     * @param flushThreshold The unsent delta of an integer, in absolute value, that triggers a flush without waiting.
+     * @return A new accumulator. Close it to send the remaining deltas.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If flushIntervalMillis or flushThreshold is lower than 1.
+     * @see QdbCounterAccumulator
+     */
+    public QdbCounterAccumulator createCounterAccumulator(long flushIntervalMillis, long flushThreshold) {
+        pool.throwIfClosed();
+        return new QdbCounterAccumulator(pool, flushIntervalMillis, flushThreshold);
+    }
+
+    /**
+     * Get a handle to a counter spread over several integers.
+     *
+     * @param alias The alias of the blob recording the shards of the counter.
+     * @param shardCount The number of shards, used when the counter is created.
+     * @return A handle to the sharded integer.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If shardCount is lower than 1.
+     * @see QdbShardedInteger
+     */
+    public QdbShardedInteger shardedInteger(String alias, int shardCount) {
+        pool.throwIfClosed();
+        return new QdbShardedInteger(pool, alias, shardCount);
+    }
+
+    /**
+     * Get a handle to a sequence of unique IDs reserved by blocks from an integer.
+     *
+     * @param alias The alias of the integer.
+     * @return A sequence with the default block sizes and target lease time.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbSequence
+     */
+    public QdbSequence sequence(String alias) {
+        return sequence(alias, QdbSequence.DEFAULT_MIN_BLOCK_SIZE, QdbSequence.DEFAULT_MAX_BLOCK_SIZE, QdbSequence.DEFAULT_TARGET_LEASE_MILLIS);
+    }
+
+    /**
+     * Get a handle to a sequence of unique IDs reserved by blocks from an integer.
+     *
+     * @param alias The alias of the integer.
+     * @param minBlockSize The smallest number of IDs reserved at once.
+     * @param maxBlockSize The largest number of IDs reserved at once.
+     * @param targetLeaseMillis How long a block should last, in milliseconds; the block size adapts to it.
+     * @return A sequence.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If the block sizes do not satisfy 1 &lt;= min &lt;= max, or targetLeaseMillis is lower than 1.
+     * @see QdbSequence
+     */
+    public QdbSequence sequence(String alias, int minBlockSize, int maxBlockSize, long targetLeaseMillis) {
+        pool.throwIfClosed();
+        return new QdbSequence(pool, alias, minBlockSize, maxBlockSize, targetLeaseMillis);
+    }
+
+    /**
+     * Get a rate limiter shared by every client of the cluster.
+     *
+     * @param alias The alias the integers of the windows are named after.
+     * @param permitsPerWindow The number of tokens available in each window, across every client.
+     * @param windowMillis The length of a window, in milliseconds.
+     * @param leaseSize The number of tokens a client takes from the cluster at once.
+     * @return A rate limiter.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If a parameter is lower than 1, or leaseSize is higher than permitsPerWindow.
+     * @see QdbRateLimiter
+     */
+    public QdbRateLimiter rateLimiter(String alias, long permitsPerWindow, long windowMillis, long leaseSize) {
+        pool.throwIfClosed();
+        return new QdbRateLimiter(pool, alias, permitsPerWindow, windowMillis, leaseSize);
+    }
+
+    /**
+     * Reads the content of many blobs at once, into a single block of direct memory.
+     *
+     * The memory of the arena is leased from the buffer pool: close the arena once done
+     * with the contents to return it.
+     *
+     * @param aliases The aliases of the blobs to read.
+     * @return An arena holding the contents, in the order of the aliases.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbBlobArena
+     */
+    public QdbBlobArena getAll(Collection<String> aliases) {
+        pool.throwIfClosed();
+        List<String> list = new ArrayList<String>(aliases);
+        QdbBlobArena arena = new QdbBlobArena(pool);
+        try {
+            arena.read(list, 0, list.size());
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        arena.closeBatch(); // <- the contents have been copied into the arena
+        return arena;
+    }
+
+    /**
+     * Reads the content of many blobs, chunk by chunk, reusing the same arena for every chunk.
+     *
+     * The arena passed to the consumer is only valid during the call: its memory is
+     * overwritten by the next chunk.
+     *
+     * @param aliases The aliases of the blobs to read.
+     * @param chunkSize The maximum number of blobs per chunk.
+     * @param consumer Called with the arena of each chunk, in the order of the aliases.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If chunkSize is lower than 1.
+     * @see QdbBlobArena
+     */
+    public void getAll(Collection<String> aliases, int chunkSize, Consumer<QdbBlobArena> consumer) {
+        pool.throwIfClosed();
+        if (chunkSize < 1)
+            throw new InvalidArgumentException("Chunk size must be at least 1");
+
+        List<String> list = new ArrayList<String>(aliases);
+        try (QdbBlobArena arena = new QdbBlobArena(pool)) {
+            for (int from = 0; from < list.size(); from += chunkSize) {
+                arena.read(list, from, Math.min(from + chunkSize, list.size()));
+                consumer.accept(arena);
+            }
+        }
+    }
+
+    /**
+     * Create a writer that creates blobs in batches sent in the background, with default limits.
+     *
+     * @return A new writer. Close it to send the last blobs and wait for them.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbBulkBlobWriter
+     */
+    public QdbBulkBlobWriter createBulkWriter() {
+        return createBulkWriter(QdbBulkBlobWriter.DEFAULT_BATCH_OPERATIONS,
+                                QdbBulkBlobWriter.DEFAULT_BATCH_BYTES,
+                                QdbBulkBlobWriter.DEFAULT_IN_FLIGHT_BATCHES,
+                                QdbBulkBlobWriter.DEFAULT_IN_FLIGHT_BYTES);
+    }
+
+    /**
+     * Create a writer that creates blobs in batches sent in the background.
+     *
+     * @param maxBatchOperations The maximum number of blobs per batch.
+     * @param maxBatchBytes The maximum size of the contents of a batch, in bytes.
+     * @param maxInFlightBatches The number of batches that can be sent and not acknowledged yet.
+     * @param maxInFlightBytes The size of the contents that can be sent and not acknowledged yet, in bytes.
+     * @return A new writer. Close it to send the last blobs and wait for them.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If a limit is lower than 1, or maxInFlightBytes is lower than maxBatchBytes.
+     * @see QdbBulkBlobWriter
+     */
+    public QdbBulkBlobWriter createBulkWriter(int maxBatchOperations,
+                                              int maxBatchBytes,
+                                              int maxInFlightBatches,
+                                              long maxInFlightBytes) {
+        pool.throwIfClosed();
+        return new QdbBulkBlobWriter(pool, maxBatchOperations, maxBatchBytes, maxInFlightBatches, maxInFlightBytes);
+    }
+
+    /**
+     * Creates many blobs, in batches sent in the background. The stream is consumed as fast
+     * as the cluster acknowledges the batches.
+     *
+     * @param entries The aliases and contents of the blobs to create.
+     * @return The number of blobs created; the others already existed or could not be written.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbBulkBlobWriter
+     */
+    public long putAll(Stream<Map.Entry<String, ByteBuffer>> entries) {
+        try (QdbBulkBlobWriter writer = createBulkWriter()) {
+            entries.forEachOrdered((entry) -> writer.put(entry.getKey(), entry.getValue()));
+            writer.flush();
+            return writer.writtenCount();
+        }
+    }
+
+    /**
+     * Creates many blobs, in batches sent in the background.
+     *
+     * @param entries The aliases and contents of the blobs to create.
+     * @return The number of blobs created; the others already existed or could not be written.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @see QdbBulkBlobWriter
+     */
+    public long putAll(Map<String, ByteBuffer> entries) {
+        return putAll(entries.entrySet().stream());
     }
 
     /**
@@ -202,8 +570,7 @@ public class QdbCluster implements AutoCloseable {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public void setTimeout(int timeoutMillis) {
-        session.throwIfClosed();
-        qdb.option_set_timeout(session.handle(), timeoutMillis);
+        pool.setTimeout(timeoutMillis);
     }
 
     /**
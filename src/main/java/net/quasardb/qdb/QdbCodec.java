@@ -0,0 +1,156 @@
+package net.quasardb.qdb;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Converts values to and from the content of a blob.
+ *
+ * Codecs write into and read from buffers directly: a typed blob encodes a value into a
+ * pooled direct buffer and decodes it from the native memory the blob is fetched into,
+ * without going through byte arrays.
+ *
+ * @param <T> The type of the values.
+ * @see QdbTypedBlob
+ * @see QdbRecordCodec
+ */
+public interface QdbCodec<T> {
+    /**
+     * Gets an upper bound of the size of an encoded value.
+     *
+     * @param value The value to encode.
+     * @return The largest number of bytes encode() may write for this value.
+     */
+    int maxSize(T value);
+
+    /**
+     * Writes a value at the position of a buffer, and advances it.
+     *
+     * @param value The value to encode.
+     * @param dst The buffer to write to, with at least maxSize(value) bytes remaining.
+     */
+    void encode(T value, ByteBuffer dst);
+
+    /**
+     * Reads a value from the remaining bytes of a buffer.
+     *
+     * @param src The encoded value, made of exactly its remaining bytes. Its position may be changed.
+     * @return The value.
+     * @throws IncompatibleTypeException If src does not hold a value of this codec.
+     */
+    T decode(ByteBuffer src);
+
+    /**
+     * A 64-bit integer, big-endian.
+     */
+    QdbCodec<Long> LONG = new QdbCodec<Long>() {
+            public int maxSize(Long value) {
+                return Long.BYTES;
+            }
+
+            public void encode(Long value, ByteBuffer dst) {
+                dst.putLong(value);
+            }
+
+            public Long decode(ByteBuffer src) {
+                if (src.remaining() != Long.BYTES)
+                    throw new IncompatibleTypeException("Content is not a 64-bit integer");
+                return src.getLong(src.position());
+            }
+        };
+
+    /**
+     * A 32-bit integer, big-endian.
+     */
+    QdbCodec<Integer> INT = new QdbCodec<Integer>() {
+            public int maxSize(Integer value) {
+                return Integer.BYTES;
+            }
+
+            public void encode(Integer value, ByteBuffer dst) {
+                dst.putInt(value);
+            }
+
+            public Integer decode(ByteBuffer src) {
+                if (src.remaining() != Integer.BYTES)
+                    throw new IncompatibleTypeException("Content is not a 32-bit integer");
+                return src.getInt(src.position());
+            }
+        };
+
+    /**
+     * A 64-bit floating point number, big-endian.
+     */
+    QdbCodec<Double> DOUBLE = new QdbCodec<Double>() {
+            public int maxSize(Double value) {
+                return Double.BYTES;
+            }
+
+            public void encode(Double value, ByteBuffer dst) {
+                dst.putDouble(value);
+            }
+
+            public Double decode(ByteBuffer src) {
+                if (src.remaining() != Double.BYTES)
+                    throw new IncompatibleTypeException("Content is not a 64-bit floating point number");
+                return src.getDouble(src.position());
+            }
+        };
+
+    /**
+     * A boolean, as a single byte.
+     */
+    QdbCodec<Boolean> BOOLEAN = new QdbCodec<Boolean>() {
+            public int maxSize(Boolean value) {
+                return 1;
+            }
+
+            public void encode(Boolean value, ByteBuffer dst) {
+                dst.put(value ? (byte)1 : (byte)0);
+            }
+
+            public Boolean decode(ByteBuffer src) {
+                if (src.remaining() != 1)
+                    throw new IncompatibleTypeException("Content is not a boolean");
+                return src.get(src.position()) != 0;
+            }
+        };
+
+    /**
+     * A string, in UTF-8, without terminator.
+     */
+    QdbCodec<String> STRING = new QdbCodec<String>() {
+            private final ThreadLocal<CharsetEncoder> encoders = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+            private final ThreadLocal<CharsetDecoder> decoders = ThreadLocal.withInitial(StandardCharsets.UTF_8::newDecoder);
+
+            public int maxSize(String value) {
+                return value.length() * 3;
+            }
+
+            public void encode(String value, ByteBuffer dst) {
+                CharsetEncoder encoder = encoders.get();
+                encoder.reset();
+                CoderResult result = encoder.encode(CharBuffer.wrap(value), dst, true);
+                if (!result.isError())
+                    result = encoder.flush(dst);
+                if (result.isError())
+                    throw new InvalidArgumentException("String is not valid UTF-16: " + result);
+            }
+
+            public String decode(ByteBuffer src) {
+                CharsetDecoder decoder = decoders.get();
+                decoder.reset();
+                try {
+                    return decoder.decode(src.duplicate()).toString();
+                } catch (CharacterCodingException e) {
+                    throw new IncompatibleTypeException("Content is not valid UTF-8");
+                }
+            }
+        };
+}
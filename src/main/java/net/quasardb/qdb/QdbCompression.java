@@ -0,0 +1,359 @@
+package net.quasardb.qdb;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Client-side compression of blob contents.
+ *
+ * Once set on a cluster with QdbCluster.setCompression(), contents written by QdbBlob and
+ * QdbBatchBlob are compressed before being sent, and contents read back by either of them
+ * are decompressed. Every content written with compression set starts with a header holding
+ * a magic number, the id of the codec, a check byte and the original size.
+ *
+ * Contents smaller than the threshold, or that do not shrink, are stored raw behind a header
+ * with the id of NONE. The codec can be chosen per alias prefix, the longest matching prefix
+ * winning.
+ *
+ * Contents without a valid header, such as those written before compression was set or by
+ * clients that do not compress, are read as is. A raw content that happens to start with a
+ * valid header, check byte and size included, cannot be told apart from a compressed one: a
+ * cluster read with compression set should only be written with compression set.
+ */
+public final class QdbCompression {
+    public static final int HEADER_SIZE = 9;
+    public static final int DEFAULT_THRESHOLD = 512;
+
+    private static final int MAGIC = 0x51435a00; // <- "QCZ\0"
+
+    /**
+     * Stores contents raw.
+     */
+    public static final Codec NONE = new Codec(0) {
+            @Override
+            public int compress(ByteBuffer src, ByteBuffer dst) {
+                return -1;
+            }
+
+            @Override
+            public void decompress(ByteBuffer src, ByteBuffer dst) {
+                dst.put(src);
+            }
+        };
+
+    /**
+     * Favors speed over ratio, for contents written often.
+     */
+    public static final Codec FAST = new DeflateCodec(1, Deflater.BEST_SPEED);
+
+    /**
+     * Favors ratio over speed, for contents written once and read many times.
+     */
+    public static final Codec HIGH = new DeflateCodec(2, Deflater.BEST_COMPRESSION);
+
+    private final Codec[] codecs = new Codec[256];
+    private final Codec defaultCodec;
+    private final int threshold;
+    private final Map<String, Codec> prefixes = new HashMap<String, Codec>();
+
+    /**
+     * Creates a compression policy.
+     *
+     * @param defaultCodec The codec used for aliases that match no prefix.
+     * @param threshold The size under which contents are stored raw, in bytes.
+     * @throws InvalidArgumentException If threshold is negative.
+     */
+    public QdbCompression(Codec defaultCodec, int threshold) {
+        if (threshold < 0)
+            throw new InvalidArgumentException("Threshold cannot be negative");
+
+        this.defaultCodec = defaultCodec;
+        this.threshold = threshold;
+        register(NONE);
+        register(FAST);
+        register(HIGH);
+        register(defaultCodec);
+    }
+
+    /**
+     * Uses a specific codec for the aliases starting with a prefix.
+     *
+     * @param prefix The prefix of the aliases.
+     * @param codec The codec to use for these aliases.
+     * @return This policy.
+     */
+    public synchronized QdbCompression setCodec(String prefix, Codec codec) {
+        register(codec);
+        prefixes.put(prefix, codec);
+        return this;
+    }
+
+    /**
+     * Gets the codec used to write an alias.
+     *
+     * @param alias The alias of the blob.
+     * @return The codec of the longest matching prefix, or the default codec.
+     */
+    public synchronized Codec codecFor(String alias) {
+        Codec result = defaultCodec;
+        int longest = -1;
+        for (Map.Entry<String, Codec> e : prefixes.entrySet()) {
+            if (e.getKey().length() > longest && alias.startsWith(e.getKey())) {
+                result = e.getValue();
+                longest = e.getKey().length();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compresses a content, if it is worth it, behind a header.
+     *
+     * @param alias The alias the content is written to.
+     * @param content The content to compress. Its position is left unchanged.
+     * @param buffers The pool the encoded buffer is taken from.
+     * @return A buffer from the pool, holding the header and the content, compressed or raw,
+     *         or null if content is null.
+     */
+    public ByteBuffer encode(String alias, ByteBuffer content, QdbBufferPool buffers) {
+        if (content == null)
+            return null;
+
+        int size = content.remaining();
+        Codec codec = codecFor(alias);
+        ByteBuffer encoded = buffers.acquire(HEADER_SIZE + size);
+        if (size >= threshold && codec != NONE) {
+            writeHeader(encoded, codec, size);
+            int length = codec.compress(content.duplicate(), encoded);
+            if (length >= 0 && length < size) {
+                encoded.position(0);
+                encoded.limit(HEADER_SIZE + length);
+                return encoded;
+            }
+            encoded.clear();
+        }
+
+        writeHeader(encoded, NONE, size);
+        encoded.put(content.duplicate());
+        encoded.flip();
+        return encoded;
+    }
+
+    /**
+     * Checks if a stored content starts with a valid header.
+     *
+     * @param stored The content as stored in the database.
+     * @return true if the content has to be decoded.
+     */
+    public static boolean isEncoded(ByteBuffer stored) {
+        if (stored == null || stored.remaining() < HEADER_SIZE)
+            return false;
+
+        int position = stored.position();
+        int tag = stored.getInt(position);
+        int size = stored.getInt(position + 5);
+        if ((tag & 0xffffff00) != MAGIC || size < 0 || stored.get(position + 4) != check(tag, size))
+            return false;
+
+        // Raw contents are stored whole behind their header.
+        return (tag & 0xff) != NONE.id() || stored.remaining() == HEADER_SIZE + size;
+    }
+
+    /**
+     * Gets the size of a stored content, once decompressed.
+     *
+     * @param stored The content as stored in the database.
+     * @return The size of the original content, in bytes.
+     */
+    public static int decodedLength(ByteBuffer stored) {
+        if (stored == null)
+            return 0;
+        if (!isEncoded(stored))
+            return stored.remaining();
+        return stored.getInt(stored.position() + 5);
+    }
+
+    /**
+     * Writes the original content of a stored content into a buffer.
+     *
+     * @param stored The content as stored in the database. Its position is left unchanged.
+     * @param dst The buffer to write the original content to, at its position.
+     * @return The size of the original content, in bytes.
+     * @throws BufferOverflowException If dst is too small.
+     * @throws IncompatibleTypeException If the content was compressed with an unknown codec, or is corrupted.
+     */
+    public int decode(ByteBuffer stored, ByteBuffer dst) {
+        if (stored == null)
+            return 0;
+
+        int length = decodedLength(stored);
+        if (!isEncoded(stored)) {
+            dst.put(stored.duplicate());
+            return length;
+        }
+        if (dst.remaining() < length)
+            throw new BufferOverflowException();
+
+        Codec codec = codecs[stored.getInt(stored.position()) & 0xff];
+        if (codec == null)
+            throw new IncompatibleTypeException("Content was compressed with unknown codec " + (stored.getInt(stored.position()) & 0xff));
+
+        ByteBuffer src = stored.duplicate();
+        src.position(src.position() + HEADER_SIZE);
+        ByteBuffer out = dst.duplicate();
+        out.limit(out.position() + length);
+        codec.decompress(src, out);
+        if (out.hasRemaining())
+            throw new IncompatibleTypeException("Compressed content is shorter than its header says");
+
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * Decodes a stored content into a buffer leased from a pool.
+     *
+     * @param stored The content as stored in the database.
+     * @param buffers The pool to lease the buffer from. Release the buffer to it once done.
+     * @return A flipped direct buffer holding the original content.
+     * @throws IncompatibleTypeException If the content was compressed with an unknown codec, or is corrupted.
+     */
+    public ByteBuffer decode(ByteBuffer stored, QdbBufferPool buffers) {
+        ByteBuffer decoded = buffers.acquire(decodedLength(stored));
+        try {
+            decode(stored, decoded);
+        } catch (RuntimeException e) {
+            buffers.release(decoded);
+            throw e;
+        }
+        decoded.flip();
+        return decoded;
+    }
+
+    private static void writeHeader(ByteBuffer encoded, Codec codec, int size) {
+        int tag = MAGIC | codec.id();
+        encoded.putInt(tag);
+        encoded.put(check(tag, size));
+        encoded.putInt(size);
+    }
+
+    // Guards against raw contents that merely start with the magic number.
+    private static byte check(int tag, int size) {
+        int mixed = tag ^ size * 0x9e3779b1;
+        return (byte)(mixed ^ mixed >>> 8 ^ mixed >>> 16 ^ mixed >>> 24);
+    }
+
+    private void register(Codec codec) {
+        Codec existing = codecs[codec.id()];
+        if (existing != null && existing != codec)
+            throw new InvalidArgumentException("Codec id " + codec.id() + " is already in use");
+        codecs[codec.id()] = codec;
+    }
+
+    /**
+     * A compression algorithm, identified in stored contents by a one-byte id.
+     * Ids 0 to 15 are reserved for the built-in codecs.
+     */
+    public abstract static class Codec {
+        private final int id;
+
+        protected Codec(int id) {
+            if (id < 0 || id > 255)
+                throw new InvalidArgumentException("Codec id must be between 0 and 255");
+            this.id = id;
+        }
+
+        public final int id() {
+            return id;
+        }
+
+        /**
+         * Compresses src into dst, from their positions.
+         *
+         * @return The number of bytes written to dst, or -1 if they do not fit in it.
+         */
+        public abstract int compress(ByteBuffer src, ByteBuffer dst);
+
+        /**
+         * Decompresses src into dst, from their positions, filling dst up to its limit.
+         *
+         * @throws IncompatibleTypeException If src is corrupted.
+         */
+        public abstract void decompress(ByteBuffer src, ByteBuffer dst);
+    }
+
+    // Deflate at a given level. Deflater only takes arrays on Java 8, hence the scratch arrays.
+    // They are kept per thread up to MAX_SCRATCH bytes: larger contents get transient arrays,
+    // so a single large blob does not stay retained by every thread that touched it.
+    private static final class DeflateCodec extends Codec {
+        private static final int MAX_SCRATCH = 1 << 20;
+
+        private final ThreadLocal<Deflater> deflaters;
+        private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+        private final ThreadLocal<byte[][]> scratch = ThreadLocal.withInitial(() -> new byte[2][]);
+
+        DeflateCodec(int id, int level) {
+            super(id);
+            this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        }
+
+        @Override
+        public int compress(ByteBuffer src, ByteBuffer dst) {
+            byte[] in = array(0, src.remaining());
+            byte[] out = array(1, dst.remaining());
+            int length = src.remaining();
+            src.get(in, 0, length);
+
+            Deflater deflater = deflaters.get();
+            deflater.reset();
+            deflater.setInput(in, 0, length);
+            deflater.finish();
+            int written = deflater.deflate(out, 0, dst.remaining());
+            if (!deflater.finished())
+                return -1;
+
+            dst.put(out, 0, written);
+            return written;
+        }
+
+        @Override
+        public void decompress(ByteBuffer src, ByteBuffer dst) {
+            byte[] in = array(0, src.remaining());
+            byte[] out = array(1, dst.remaining());
+            int length = src.remaining();
+            src.get(in, 0, length);
+
+            Inflater inflater = inflaters.get();
+            inflater.reset();
+            inflater.setInput(in, 0, length);
+            try {
+                int read = 0;
+                while (read < dst.remaining() && !inflater.finished()) {
+                    int n = inflater.inflate(out, read, dst.remaining() - read);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                        break;
+                    read += n;
+                }
+                dst.put(out, 0, read);
+            } catch (DataFormatException e) {
+                throw new IncompatibleTypeException("Compressed content is corrupted: " + e.getMessage());
+            }
+        }
+
+        private byte[] array(int slot, int size) {
+            if (size > MAX_SCRATCH)
+                return new byte[size];
+
+            byte[][] arrays = scratch.get();
+            if (arrays[slot] == null || arrays[slot].length < size)
+                arrays[slot] = new byte[Math.max(size, 4096)];
+            return arrays[slot];
+        }
+    }
+}
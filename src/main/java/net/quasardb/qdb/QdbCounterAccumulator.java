@@ -0,0 +1,298 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Sums increments of integers locally, and sends them periodically.
+ *
+ * Each alias gets a LongAdder, so threads incrementing the same counter do not contend.
+ * The sums are sent every flushIntervalMillis, or once the unsent delta of an alias reaches
+ * flushThreshold in absolute value, as the adds of a single QdbBatch. Each thread only sums
+ * the LongAdder of an alias once the deltas it added since its last check reach a sixteenth
+ * of flushThreshold, so the threshold is approximate. Integers that do not exist yet are
+ * created by their first flush.
+ *
+ * get() returns the value read back from the cluster at the last flush, plus the deltas
+ * not sent yet: increments made by other clients since the last flush are not included.
+ *
+ * Deltas that fail to be sent are kept and retried at the next flush. close() sends the
+ * remaining deltas before returning; an add() that races with close() sends its own delta.
+ */
+public final class QdbCounterAccumulator implements AutoCloseable {
+    private final QdbSessionPool pool;
+    private final long flushThreshold;
+    private final ScheduledExecutorService timer;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final long checkStride;
+    private final ThreadLocal<long[]> unchecked = ThreadLocal.withInitial(() -> new long[1]); // <- added since last check
+    private volatile boolean closed;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // Protected constructor. Call QdbCluster.createCounterAccumulator() to get an instance.
+    protected QdbCounterAccumulator(QdbSessionPool pool, long flushIntervalMillis, long flushThreshold) {
+        if (flushIntervalMillis < 1)
+            throw new InvalidArgumentException("Flush interval must be at least 1ms");
+        if (flushThreshold < 1)
+            throw new InvalidArgumentException("Flush threshold must be at least 1");
+
+        this.pool = pool;
+        this.flushThreshold = flushThreshold;
+        this.checkStride = Math.max(1, flushThreshold / 16);
+        this.timer = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread thread = new Thread(r, "qdb-counter-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        timer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a delta to an integer, locally.
+     *
+     * @param alias The alias of the integer.
+     * @param delta The increment to add.
+     * @throws ClusterClosedException If close() has been called.
+     */
+    public void add(String alias, long delta) {
+        if (closed)
+            throw new ClusterClosedException("Counter accumulator is already closed");
+
+        Counter counter = counter(alias);
+        counter.pending.add(delta);
+
+        // close() may have sent the last deltas before this one was added: send it here.
+        if (closed) {
+            flush();
+            return;
+        }
+
+        long[] magnitude = unchecked.get();
+        magnitude[0] += Math.abs(delta);
+        if (magnitude[0] >= 0 && magnitude[0] < checkStride)
+            return;
+        magnitude[0] = 0;
+
+        if (Math.abs(counter.pending.sum() - counter.flushed) >= flushThreshold
+            && flushRequested.compareAndSet(false, true)) {
+            try {
+                timer.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // <- closed since, the delta is sent by close()
+            }
+        }
+    }
+
+    /**
+     * Adds one to an integer, locally.
+     *
+     * @param alias The alias of the integer.
+     * @throws ClusterClosedException If close() has been called.
+     */
+    public void increment(String alias) {
+        add(alias, 1);
+    }
+
+    /**
+     * Gets the value of an integer as last read from the cluster, plus the deltas added
+     * locally since. The first call for an alias reads its value from the cluster.
+     *
+     * @param alias The alias of the integer.
+     * @return The value of the integer, or the unsent deltas if it does not exist yet.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias is not an integer.
+     */
+    public long get(String alias) {
+        Counter counter = counter(alias);
+        State state = counter.state;
+        if (state == null) {
+            // Read without the flush lock: the value only includes what was sent before it
+            // if no flush of this alias completed meanwhile, otherwise the flush set the state.
+            long flushed = counter.flushed;
+            long value = readValue(alias);
+            synchronized (flushLock) {
+                if (counter.state == null && counter.flushed == flushed)
+                    counter.state = new State(value, flushed);
+                state = counter.state;
+            }
+        }
+        return state.value + counter.pending.sum() - state.flushed;
+    }
+
+    /**
+     * Gets the delta added locally to an integer and not sent yet.
+     *
+     * @param alias The alias of the integer.
+     * @return The unsent delta.
+     */
+    public long pending(String alias) {
+        Counter counter = counters.get(alias);
+        return counter == null ? 0 : counter.pending.sum() - counter.flushed;
+    }
+
+    /**
+     * Sends the unsent deltas of every integer, in a single batch.
+     *
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws RuntimeException The first error raised, if some deltas could not be sent; they are kept for the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+
+            List<Counter> dirty = new ArrayList<Counter>();
+            List<Long> deltas = new ArrayList<Long>();
+            for (Counter counter : counters.values()) {
+                long delta = counter.pending.sum() - counter.flushed;
+                if (delta != 0) {
+                    dirty.add(counter);
+                    deltas.add(delta);
+                }
+            }
+            if (dirty.isEmpty())
+                return;
+
+            flushes.incrementAndGet();
+            List<RuntimeException> errors = new ArrayList<RuntimeException>();
+            send(dirty, deltas, errors);
+            if (!errors.isEmpty()) {
+                failures.addAndGet(errors.size());
+                throw errors.get(0);
+            }
+        }
+    }
+
+    /**
+     * Sends the remaining deltas, and stops accepting new ones.
+     *
+     * @throws RuntimeException The first error raised, if some deltas could not be sent.
+     */
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        timer.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Gets the number of flushes that had deltas to send.
+     *
+     * @return The number of flushes.
+     */
+    public long flushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Gets the number of deltas that failed to be sent.
+     *
+     * @return The number of failures.
+     */
+    public long failureCount() {
+        return failures.get();
+    }
+
+    private Counter counter(String alias) {
+        Counter counter = counters.get(alias);
+        return counter != null ? counter : counters.computeIfAbsent(alias, Counter::new);
+    }
+
+    // Sends the deltas in one batch, and collects the result of each of them: every add is
+    // executed once, and only the failed ones are retried, by creating missing integers.
+    private void send(List<Counter> dirty, List<Long> deltas, List<RuntimeException> errors) {
+        try (QdbBatch batch = new QdbBatch(pool)) {
+            List<QdbFuture<Long>> results = new ArrayList<QdbFuture<Long>>(dirty.size());
+            for (int i = 0; i < dirty.size(); ++i) {
+                results.add(batch.integer(dirty.get(i).alias).add(deltas.get(i)));
+            }
+
+            try {
+                batch.run();
+            } catch (RuntimeException e) {
+                if (!batch.hasRun()) {
+                    errors.add(e);
+                    return;
+                }
+                // <- the error of the first failed add, read with the others below
+            }
+
+            for (int i = 0; i < dirty.size(); ++i) {
+                Counter counter = dirty.get(i);
+                long delta = deltas.get(i);
+                try {
+                    counter.sent(delta, results.get(i).get());
+                } catch (AliasNotFoundException e) {
+                    create(counter, delta, errors);
+                } catch (RuntimeException e) {
+                    errors.add(e);
+                }
+            }
+        }
+    }
+
+    // Integers that do not exist yet are created with their first delta.
+    private void create(Counter counter, long delta, List<RuntimeException> errors) {
+        try {
+            new QdbInteger(pool, counter.alias).put(delta);
+            counter.sent(delta, delta);
+        } catch (RuntimeException e) {
+            errors.add(e); // <- for instance created concurrently, the next flush adds to it
+        }
+    }
+
+    private long readValue(String alias) {
+        try {
+            return new QdbInteger(pool, alias).get();
+        } catch (AliasNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // <- counted in failureCount(), retried at the next flush
+        }
+    }
+
+    // Once read back, the value from the cluster includes everything sent so far.
+    private static final class State {
+        final long value;
+        final long flushed;
+
+        State(long value, long flushed) {
+            this.value = value;
+            this.flushed = flushed;
+        }
+    }
+
+    private static final class Counter {
+        final String alias;
+        final LongAdder pending = new LongAdder(); // <- every delta ever added
+        volatile long flushed;                     // <- the part of pending sent so far
+        volatile State state;
+
+        Counter(String alias) {
+            this.alias = alias;
+        }
+
+        // Called under the flush lock.
+        void sent(long delta, long value) {
+            flushed += delta;
+            state = new State(value, flushed);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import net.quasardb.qdb.exception.*;
 import net.quasardb.qdb.jni.*;
 
@@ -11,11 +13,11 @@ import net.quasardb.qdb.jni.*;
  * An entry in the database.
  */
 public class QdbEntry {
-    protected final transient Session session;
+    protected final transient QdbSessionPool pool;
     protected final String alias;
 
-    protected QdbEntry(Session session, String alias) {
-        this.session = session;
+    protected QdbEntry(QdbSessionPool pool, String alias) {
+        this.pool = pool;
         this.alias = alias;
     }
 
@@ -51,9 +53,38 @@ public class QdbEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public boolean attachTag(String tag) {
-        session.throwIfClosed();
-        int err = qdb.attach_tag(session.handle(), alias, tag);
-        return err != qdb_error.tag_already_set;
+        Session session = pool.acquire();
+        try {
+            int err = qdb.attach_tag(session.handle(), alias, tag);
+            return err != qdb_error.tag_already_set;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+      * Asynchronously attaches a tag to the entry.
+      *
+      * @param tag The alias of the tag to attach.
+      * @return A future completed with the result of attachTag(String).
+      * @see #attachTag(String)
+      */
+    public CompletableFuture<Boolean> attachTagAsync(String tag) {
+        return async(() -> attachTag(tag));
+    }
+
+    /**
+      * Asynchronously attaches a tag to the entry.
+      *
+      * @param tag The alias of the tag to attach.
+      * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+      * @return A future completed with the result of attachTag(String). It completes with a TimeoutException if the deadline expires first.
+      * @see #attachTagAsync(String)
+      */
+    public CompletableFuture<Boolean> attachTagAsync(String tag, long timeoutMillis) {
+        return async(() -> attachTag(tag), timeoutMillis);
     }
 
     /**
@@ -109,9 +140,38 @@ public class QdbEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public boolean hasTag(String tag) {
-        session.throwIfClosed();
-        int err = qdb.has_tag(session.handle(), alias, tag);
-        return err != qdb_error.tag_not_set;
+        Session session = pool.acquire();
+        try {
+            int err = qdb.has_tag(session.handle(), alias, tag);
+            return err != qdb_error.tag_not_set;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+      * Asynchronously checks if a tag is attached to the entry.
+      *
+      * @param tag The alias to the tag to check.
+      * @return A future completed with the result of hasTag(String).
+      * @see #hasTag(String)
+      */
+    public CompletableFuture<Boolean> hasTagAsync(String tag) {
+        return async(() -> hasTag(tag));
+    }
+
+    /**
+      * Asynchronously checks if a tag is attached to the entry.
+      *
+      * @param tag The alias to the tag to check.
+      * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+      * @return A future completed with the result of hasTag(String). It completes with a TimeoutException if the deadline expires first.
+      * @see #hasTagAsync(String)
+      */
+    public CompletableFuture<Boolean> hasTagAsync(String tag, long timeoutMillis) {
+        return async(() -> hasTag(tag), timeoutMillis);
     }
 
     /**
@@ -122,8 +182,41 @@ public class QdbEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public void remove() {
-        session.throwIfClosed();
-        qdb.remove(session.handle(), alias);
+        Session session = pool.acquire();
+        try {
+            qdb.remove(session.handle(), alias);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+      * Asynchronously removes the entry from the database.
+      *
+      * @return A future completed once the entry has been removed.
+      * @see #remove()
+      */
+    public CompletableFuture<Void> removeAsync() {
+        return async(() -> {
+                remove();
+                return null;
+            });
+    }
+
+    /**
+      * Asynchronously removes the entry from the database.
+      *
+      * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+      * @return A future completed once the entry has been removed. It completes with a TimeoutException if the deadline expires first.
+      * @see #removeAsync()
+      */
+    public CompletableFuture<Void> removeAsync(long timeoutMillis) {
+        return async(() -> {
+                remove();
+                return null;
+            }, timeoutMillis);
     }
 
     /**
@@ -149,9 +242,38 @@ public class QdbEntry {
       * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
       */
     public boolean detachTag(String tag) {
-        session.throwIfClosed();
-        int err = qdb.detach_tag(session.handle(), alias, tag);
-        return err != qdb_error.tag_not_set;
+        Session session = pool.acquire();
+        try {
+            int err = qdb.detach_tag(session.handle(), alias, tag);
+            return err != qdb_error.tag_not_set;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+      * Asynchronously detaches a tag from the entry.
+      *
+      * @param tag The alias of the tag to detach.
+      * @return A future completed with the result of detachTag(String).
+      * @see #detachTag(String)
+      */
+    public CompletableFuture<Boolean> detachTagAsync(String tag) {
+        return async(() -> detachTag(tag));
+    }
+
+    /**
+      * Asynchronously detaches a tag from the entry.
+      *
+      * @param tag The alias of the tag to detach.
+      * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+      * @return A future completed with the result of detachTag(String). It completes with a TimeoutException if the deadline expires first.
+      * @see #detachTagAsync(String)
+      */
+    public CompletableFuture<Boolean> detachTagAsync(String tag, long timeoutMillis) {
+        return async(() -> detachTag(tag), timeoutMillis);
     }
 
     /**
@@ -162,13 +284,20 @@ public class QdbEntry {
     * @throws ClusterClosedException If QdbCluster.close() has been called.
     */
     public Iterable<QdbTag> tags() {
-        return new QdbEntryTags(session, alias);
+        return new QdbEntryTags(pool, alias);
     }
 
     public QdbEntryMetadata metadata() {
         ByteBuffer meta = ByteBuffer.allocateDirect(96);
 
-        qdb.get_metadata(session.handle(), alias, meta);
+        Session session = pool.acquire();
+        try {
+            qdb.get_metadata(session.handle(), alias, meta);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
 
         meta.order(ByteOrder.LITTLE_ENDIAN);
 
@@ -181,11 +310,68 @@ public class QdbEntry {
         return new QdbEntryMetadata(reference, size, lastModification, expiry);
     }
 
+    /**
+      * Asynchronously retrieves the metadata of the entry.
+      *
+      * @return A future completed with the result of metadata().
+      * @see #metadata()
+      */
+    public CompletableFuture<QdbEntryMetadata> metadataAsync() {
+        return async(this::metadata);
+    }
+
+    /**
+      * Asynchronously retrieves the metadata of the entry.
+      *
+      * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+      * @return A future completed with the result of metadata(). It completes with a TimeoutException if the deadline expires first.
+      * @see #metadataAsync()
+      */
+    public CompletableFuture<QdbEntryMetadata> metadataAsync(long timeoutMillis) {
+        return async(this::metadata, timeoutMillis);
+    }
+
     public QdbNode node() {
-        session.throwIfClosed();
-        Reference<String> address = new Reference<String>();
-        Reference<Integer> port = new Reference<Integer>();
-        qdb.get_location(session.handle(), alias, address, port);
-        return new QdbNode(session, address.value, port.value);
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.get_location(session.handle(), alias, references.stringValue, references.intValue);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+        return new QdbNode(pool, references.takeString(), references.takeInt());
+    }
+
+    /**
+      * Asynchronously retrieves the node the entry is stored on.
+      *
+      * @return A future completed with the result of node().
+      * @see #node()
+      */
+    public CompletableFuture<QdbNode> nodeAsync() {
+        return async(this::node);
+    }
+
+    /**
+      * Asynchronously retrieves the node the entry is stored on.
+      *
+      * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+      * @return A future completed with the result of node(). It completes with a TimeoutException if the deadline expires first.
+      * @see #nodeAsync()
+      */
+    public CompletableFuture<QdbNode> nodeAsync(long timeoutMillis) {
+        return async(this::node, timeoutMillis);
+    }
+
+    // Runs a blocking operation on the executor of the session pool.
+    protected <T> CompletableFuture<T> async(Supplier<T> operation) {
+        return pool.executor().submit(operation);
+    }
+
+    // Runs a blocking operation on the executor of the session pool, with a specific deadline.
+    protected <T> CompletableFuture<T> async(Supplier<T> operation, long timeoutMillis) {
+        return pool.executor().submit(operation, timeoutMillis);
     }
 }
@@ -3,31 +3,38 @@ package net.quasardb.qdb;
 import net.quasardb.qdb.jni.*;
 
 final class QdbEntryFactory {
-    final Session session;
+    final QdbSessionPool pool;
 
-    public QdbEntryFactory(Session session) {
-        this.session = session;
+    public QdbEntryFactory(QdbSessionPool pool) {
+        this.pool = pool;
     }
 
     public QdbEntry createEntry(String alias) {
-        Reference<Integer> type = new Reference<Integer>();
-        qdb.get_type(session.handle(), alias, type);
-        return createEntry(type.value, alias);
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.get_type(session.handle(), alias, references.intValue);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+        return createEntry(references.takeInt(), alias);
     }
 
     public QdbEntry createEntry(int type, String alias) {
         switch (type) {
         case qdb_entry_type.blob:
-            return new QdbBlob(session, alias);
+            return new QdbBlob(pool, alias);
 
         case qdb_entry_type.integer:
-            return new QdbInteger(session, alias);
+            return new QdbInteger(pool, alias);
 
         case qdb_entry_type.tag:
-            return new QdbTag(session, alias);
+            return new QdbTag(pool, alias);
 
         default:
-            return new QdbEntry(session, alias);
+            return new QdbEntry(pool, alias);
         }
     }
 }
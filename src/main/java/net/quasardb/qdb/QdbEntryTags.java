@@ -4,7 +4,7 @@ import java.util.*;
 import net.quasardb.qdb.jni.*;
 
 final class QdbEntryTags implements Iterable<QdbTag> {
-    Session session;
+    QdbSessionPool pool;
     String alias;
 
     class QdbEntryTagsIterator implements Iterator<QdbTag> {
@@ -21,7 +21,7 @@ final class QdbEntryTags implements Iterable<QdbTag> {
         }
 
         public QdbTag next() {
-            return new QdbTag(session, tags[index++]);
+            return new QdbTag(pool, tags[index++]);
         }
 
         public void remove() {
@@ -29,15 +29,21 @@ final class QdbEntryTags implements Iterable<QdbTag> {
         }
     }
 
-    protected QdbEntryTags(Session session, String alias) {
-        this.session = session;
+    protected QdbEntryTags(QdbSessionPool pool, String alias) {
+        this.pool = pool;
         this.alias = alias;
     }
 
     public Iterator<QdbTag> iterator() {
-        session.throwIfClosed();
         Reference<String[]> tags = new Reference<String[]>();
-        qdb.get_tags(session.handle(), alias, tags);
+        Session session = pool.acquire();
+        try {
+            qdb.get_tags(session.handle(), alias, tags);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
         return new QdbEntryTagsIterator(tags.value);
     }
 }
@@ -1,6 +1,7 @@
 package net.quasardb.qdb;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import net.quasardb.qdb.exception.*;
 import net.quasardb.qdb.jni.*;
 
@@ -8,8 +9,8 @@ import net.quasardb.qdb.jni.*;
  * An entry that has the ability to expire.
  */
 public class QdbExpirableEntry extends QdbEntry {
-    protected QdbExpirableEntry(Session session, String alias) {
-        super(session, alias);
+    protected QdbExpirableEntry(QdbSessionPool pool, String alias) {
+        super(pool, alias);
     }
 
     /**
@@ -21,8 +22,14 @@ public class QdbExpirableEntry extends QdbEntry {
      * @throws InvalidArgumentException If the expiry time is in the past (with a certain tolerance)
      */
     public void expiryTime(QdbExpiryTime expiryTime) {
-        session.throwIfClosed();
-        qdb.expires_at(session.handle(), alias, expiryTime.toMillisSinceEpoch());
+        Session session = pool.acquire();
+        try {
+            qdb.expires_at(session.handle(), alias, expiryTime.toMillisSinceEpoch());
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -33,9 +40,76 @@ public class QdbExpirableEntry extends QdbEntry {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public QdbExpiryTime expiryTime() {
-        session.throwIfClosed();
-        Reference<Long> expiry = new Reference<Long>();
-        qdb.get_expiry_time(session.handle(), alias, expiry);
-        return QdbExpiryTime.makeMillisSinceEpoch(expiry.value);
+        return QdbExpiryTime.makeMillisSinceEpoch(expiryTimeMillis());
+    }
+
+    /**
+     * Retrieves the expiry time of the entry, without creating a QdbExpiryTime.
+     *
+     * @return The expiry time of the entry, in milliseconds since epoch, or zero if the entry never expires.
+     * @throws AliasNotFoundException If the entry does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     */
+    public long expiryTimeMillis() {
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.get_expiry_time(session.handle(), alias, references.longValue);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+        return references.takeLong();
+    }
+
+    /**
+     * Asynchronously sets the expiry time of an existing entry.
+     *
+     * @param expiryTime The new expiry time of the entry.
+     * @return A future completed once the expiry time has been set.
+     * @see #expiryTime(QdbExpiryTime)
+     */
+    public CompletableFuture<Void> expiryTimeAsync(QdbExpiryTime expiryTime) {
+        return async(() -> {
+                expiryTime(expiryTime);
+                return null;
+            });
+    }
+
+    /**
+     * Asynchronously sets the expiry time of an existing entry.
+     *
+     * @param expiryTime The new expiry time of the entry.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed once the expiry time has been set. It completes with a TimeoutException if the deadline expires first.
+     * @see #expiryTimeAsync(QdbExpiryTime)
+     */
+    public CompletableFuture<Void> expiryTimeAsync(QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> {
+                expiryTime(expiryTime);
+                return null;
+            }, timeoutMillis);
+    }
+
+    /**
+     * Asynchronously retrieves the expiry time of the entry.
+     *
+     * @return A future completed with the result of expiryTime().
+     * @see #expiryTime()
+     */
+    public CompletableFuture<QdbExpiryTime> expiryTimeAsync() {
+        return async(this::expiryTime);
+    }
+
+    /**
+     * Asynchronously retrieves the expiry time of the entry.
+     *
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the result of expiryTime(). It completes with a TimeoutException if the deadline expires first.
+     * @see #expiryTimeAsync()
+     */
+    public CompletableFuture<QdbExpiryTime> expiryTimeAsync(long timeoutMillis) {
+        return async(this::expiryTime, timeoutMillis);
     }
 }
@@ -1,5 +1,6 @@
 package net.quasardb.qdb;
 
+import java.util.concurrent.CompletableFuture;
 import net.quasardb.qdb.jni.*;
 import net.quasardb.qdb.exception.*;
 
@@ -8,8 +9,8 @@ import net.quasardb.qdb.exception.*;
  */
 public final class QdbInteger extends QdbExpirableEntry {
     // Protected constructor. Call QdbCluster.integer() to get an instance.
-    protected QdbInteger(Session session, String alias) {
-        super(session, alias);
+    protected QdbInteger(QdbSessionPool pool, String alias) {
+        super(pool, alias);
     }
 
     /**
@@ -23,10 +24,16 @@ public final class QdbInteger extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public long add(long delta) {
-        session.throwIfClosed();
-        Reference<Long> result = new Reference<Long>();
-        qdb.int_add(session.handle(), alias, delta, result);
-        return result.value;
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.int_add(session.handle(), alias, delta, references.longValue);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+        return references.takeLong();
     }
 
     /**
@@ -39,10 +46,16 @@ public final class QdbInteger extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public long get() {
-        session.throwIfClosed();
-        Reference<Long> value = new Reference<Long>();
-        qdb.int_get(session.handle(), alias, value);
-        return value.value;
+        QdbReferences references = QdbReferences.get();
+        Session session = pool.acquire();
+        try {
+            qdb.int_get(session.handle(), alias, references.longValue);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+        return references.takeLong();
     }
 
     /**
@@ -67,8 +80,14 @@ public final class QdbInteger extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public void put(long initialValue, QdbExpiryTime expiryTime) {
-        session.throwIfClosed();
-        qdb.int_put(session.handle(), alias, initialValue, expiryTime.toMillisSinceEpoch());
+        Session session = pool.acquire();
+        try {
+            qdb.int_put(session.handle(), alias, initialValue, expiryTime.toMillisSinceEpoch());
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -95,8 +114,136 @@ public final class QdbInteger extends QdbExpirableEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public boolean update(long newValue, QdbExpiryTime expiryTime) {
-        session.throwIfClosed();
-        int err = qdb.int_update(session.handle(), alias, newValue, expiryTime.toMillisSinceEpoch());
-        return err == qdb_error.ok_created;
+        Session session = pool.acquire();
+        try {
+            int err = qdb.int_update(session.handle(), alias, newValue, expiryTime.toMillisSinceEpoch());
+            return err == qdb_error.ok_created;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+     * Asynchronously adds the given value to the current value.
+     *
+     * @param delta The increment to add to the current value.
+     * @return A future completed with the resulting value after the operation.
+     * @see #add(long)
+     */
+    public CompletableFuture<Long> addAsync(long delta) {
+        return async(() -> add(delta));
+    }
+
+    /**
+     * Asynchronously adds the given value to the current value.
+     *
+     * @param delta The increment to add to the current value.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the resulting value after the operation. It completes with a TimeoutException if the deadline expires first.
+     * @see #addAsync(long)
+     */
+    public CompletableFuture<Long> addAsync(long delta, long timeoutMillis) {
+        return async(() -> add(delta), timeoutMillis);
+    }
+
+    /**
+     * Asynchronously reads the current value of the integer.
+     *
+     * @return A future completed with the current value.
+     * @see #get()
+     */
+    public CompletableFuture<Long> getAsync() {
+        return async(this::get);
+    }
+
+    /**
+     * Asynchronously reads the current value of the integer.
+     *
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with the current value. It completes with a TimeoutException if the deadline expires first.
+     * @see #getAsync()
+     */
+    public CompletableFuture<Long> getAsync(long timeoutMillis) {
+        return async(this::get, timeoutMillis);
+    }
+
+    /**
+     * Asynchronously creates a new integer.
+     *
+     * @param initialValue The value of the new integer.
+     * @return A future completed once the integer has been created.
+     * @see #put(long)
+     */
+    public CompletableFuture<Void> putAsync(long initialValue) {
+        return putAsync(initialValue, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Asynchronously creates a new integer.
+     *
+     * @param initialValue The value of the new integer.
+     * @param expiryTime The expiry time of the entry.
+     * @return A future completed once the integer has been created.
+     * @see #put(long, QdbExpiryTime)
+     */
+    public CompletableFuture<Void> putAsync(long initialValue, QdbExpiryTime expiryTime) {
+        return async(() -> {
+                put(initialValue, expiryTime);
+                return null;
+            });
+    }
+
+    /**
+     * Asynchronously creates a new integer.
+     *
+     * @param initialValue The value of the new integer.
+     * @param expiryTime The expiry time of the entry.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed once the integer has been created. It completes with a TimeoutException if the deadline expires first.
+     * @see #putAsync(long, QdbExpiryTime)
+     */
+    public CompletableFuture<Void> putAsync(long initialValue, QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> {
+                put(initialValue, expiryTime);
+                return null;
+            }, timeoutMillis);
+    }
+
+    /**
+     * Asynchronously updates an existing integer or creates one if it does not exist.
+     *
+     * @param newValue The new value of the integer.
+     * @return A future completed with true if the integer was created, or false it it was updated.
+     * @see #update(long)
+     */
+    public CompletableFuture<Boolean> updateAsync(long newValue) {
+        return updateAsync(newValue, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Asynchronously updates an existing integer or creates one if it does not exist.
+     *
+     * @param newValue The new value of the integer.
+     * @param expiryTime The expiry time of the entry.
+     * @return A future completed with true if the integer was created, or false it it was updated.
+     * @see #update(long, QdbExpiryTime)
+     */
+    public CompletableFuture<Boolean> updateAsync(long newValue, QdbExpiryTime expiryTime) {
+        return async(() -> update(newValue, expiryTime));
+    }
+
+    /**
+     * Asynchronously updates an existing integer or creates one if it does not exist.
+     *
+     * @param newValue The new value of the integer.
+     * @param expiryTime The expiry time of the entry.
+     * @param timeoutMillis The deadline of the operation, in milliseconds, or QdbAsyncExecutor.NO_TIMEOUT.
+     * @return A future completed with true if the integer was created, or false it it was updated. It completes with a TimeoutException if the deadline expires first.
+     * @see #updateAsync(long, QdbExpiryTime)
+     */
+    public CompletableFuture<Boolean> updateAsync(long newValue, QdbExpiryTime expiryTime, long timeoutMillis) {
+        return async(() -> update(newValue, expiryTime), timeoutMillis);
     }
 }
@@ -7,14 +7,14 @@ import net.quasardb.qdb.jni.*;
  * A node in the quasardb cluster.
  */
 public final class QdbNode {
-    private transient Session session;
+    private transient QdbSessionPool pool;
     private final String hostName;
     private final int port;
     private final String uri;
 
     // Protected constructor. Call QdbCluster.node() to get an instance.
-    protected QdbNode(Session session, String hostName, int port) {
-        this.session = session;
+    protected QdbNode(QdbSessionPool pool, String hostName, int port) {
+        this.pool = pool;
         this.hostName = hostName;
         this.port = port;
         uri = "qdb://" + hostName + ":" + port;
@@ -45,9 +45,15 @@ public final class QdbNode {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public String config() {
-        session.throwIfClosed();
         Reference<String> config = new Reference<String>();
-        qdb.node_config(session.handle(), uri, config);
+        Session session = pool.acquire();
+        try {
+            qdb.node_config(session.handle(), uri, config);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
         return config.value;
     }
 
@@ -58,9 +64,15 @@ public final class QdbNode {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public String status() {
-        session.throwIfClosed();
         Reference<String> status = new Reference<String>();
-        qdb.node_status(session.handle(), uri, status);
+        Session session = pool.acquire();
+        try {
+            qdb.node_status(session.handle(), uri, status);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
         return status.value;
     }
 
@@ -70,8 +82,14 @@ public final class QdbNode {
      * @param reason A message that will be logged as the reason for the shutdown.
      */
     public void stop(String reason) {
-        session.throwIfClosed();
-        qdb.node_stop(session.handle(), uri, reason);
+        Session session = pool.acquire();
+        try {
+            qdb.node_stop(session.handle(), uri, reason);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -81,9 +99,15 @@ public final class QdbNode {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public String topology() {
-        session.throwIfClosed();
         Reference<String> topology = new Reference<String>();
-        qdb.node_topology(session.handle(), uri, topology);
+        Session session = pool.acquire();
+        try {
+            qdb.node_topology(session.handle(), uri, topology);
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
         return topology.value;
     }
 }
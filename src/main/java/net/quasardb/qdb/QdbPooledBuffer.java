@@ -0,0 +1,41 @@
+package net.quasardb.qdb;
+
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.exception.*;
+
+// A content copied out of native memory, for instance decompressed, in a buffer leased
+// from the buffer pool of the cluster until close().
+final class QdbPooledBuffer extends Buffer {
+    private final QdbSessionPool pool;
+    private ByteBuffer content;
+
+    QdbPooledBuffer(QdbSessionPool pool, ByteBuffer content) {
+        super(null, null); // <- no native memory to release
+        this.pool = pool;
+        this.content = content;
+    }
+
+    // Copies a content into a buffer leased from the pool.
+    static QdbPooledBuffer copyOf(QdbSessionPool pool, ByteBuffer source) {
+        ByteBuffer copy = pool.buffers().acquire(source.remaining());
+        copy.put(source.duplicate());
+        copy.flip();
+        return new QdbPooledBuffer(pool, copy);
+    }
+
+    @Override
+    public synchronized ByteBuffer toByteBuffer() {
+        if (content == null)
+            throw new BufferClosedException("Buffer has been closed");
+        pool.throwIfClosed();
+        return content;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (content != null) {
+            pool.buffers().release(content);
+            content = null;
+        }
+    }
+}
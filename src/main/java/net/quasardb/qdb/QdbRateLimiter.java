@@ -0,0 +1,186 @@
+package net.quasardb.qdb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A rate limiter shared by every client of a cluster, as a token bucket refilled every window.
+ *
+ * Each window has its own integer, named after the bucket and the index of the window, and
+ * created full with an expiry time shortly after the end of the window: a new window is a
+ * full bucket, and the integers of old windows disappear on their own. Clients do not take
+ * tokens one by one from the integer: they lease a batch of them with a single add(-n),
+ * then serve acquisitions locally until the batch runs out. Once the bucket is empty, they
+ * refuse acquisitions locally until the next window.
+ *
+ * Windows follow the clock of each client, so clients should have synchronized clocks.
+ * Tokens leased by a client and not used by the end of the window are lost, so the limit
+ * can be undershot by up to one lease per client and per window; smaller leases make the
+ * limit more precise, at the cost of more calls to the cluster.
+ */
+public final class QdbRateLimiter {
+    private final QdbSessionPool pool;
+    private final String alias;
+    private final long permitsPerWindow;
+    private final long windowMillis;
+    private final long leaseSize;
+
+    private volatile Lease current = new Lease(Long.MIN_VALUE);
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    // Protected constructor. Call QdbCluster.rateLimiter() to get an instance.
+    protected QdbRateLimiter(QdbSessionPool pool, String alias, long permitsPerWindow, long windowMillis, long leaseSize) {
+        if (permitsPerWindow < 1)
+            throw new InvalidArgumentException("Permits per window must be at least 1");
+        if (windowMillis < 1)
+            throw new InvalidArgumentException("Window must be at least 1ms");
+        if (leaseSize < 1 || leaseSize > permitsPerWindow)
+            throw new InvalidArgumentException("Lease size must satisfy 1 <= lease <= permits per window");
+
+        this.pool = pool;
+        this.alias = alias;
+        this.permitsPerWindow = permitsPerWindow;
+        this.windowMillis = windowMillis;
+        this.leaseSize = leaseSize;
+    }
+
+    /**
+     * Gets the alias the integers of the windows are named after.
+     *
+     * @return The alias of the bucket.
+     */
+    public String alias() {
+        return alias;
+    }
+
+    /**
+     * Takes one token, if the bucket has one left in the current window.
+     *
+     * @return true if the token was taken, false if the limit has been reached.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias of the window is not an integer.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Takes tokens, if the bucket has enough of them left in the current window. Only reaches
+     * the cluster when the tokens leased locally are not enough.
+     *
+     * @param permits The number of tokens to take.
+     * @return true if the tokens were taken, false if the limit has been reached.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias of the window is not an integer.
+     * @throws InvalidArgumentException If permits is lower than 1.
+     */
+    public boolean tryAcquire(long permits) {
+        if (permits < 1)
+            throw new InvalidArgumentException("At least one permit must be acquired");
+
+        long window = System.currentTimeMillis() / windowMillis;
+        Lease lease = current;
+        if (lease.window != window)
+            lease = renew(window);
+
+        for (;;) {
+            if (lease.take(permits))
+                return true;
+
+            if (lease.exhausted || !lease(lease, permits)) {
+                rejections.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tokens leased by this client and not used yet, in the current window.
+     *
+     * @return The number of tokens available without reaching the cluster.
+     */
+    public long availableLocally() {
+        Lease lease = current;
+        return lease.window == System.currentTimeMillis() / windowMillis ? lease.tokens.get() : 0;
+    }
+
+    /**
+     * Gets the number of leases taken from the cluster so far.
+     *
+     * @return The number of calls to the cluster.
+     */
+    public long leaseCount() {
+        return leases.get();
+    }
+
+    /**
+     * Gets the number of acquisitions refused so far.
+     *
+     * @return The number of refusals.
+     */
+    public long rejectedCount() {
+        return rejections.get();
+    }
+
+    // Starts a new window, with no token leased yet.
+    private synchronized Lease renew(long window) {
+        if (current.window != window)
+            current = new Lease(window);
+        return current;
+    }
+
+    // Leases tokens from the bucket of the window of lease. Returns false once the bucket is empty.
+    private synchronized boolean lease(Lease lease, long permits) {
+        if (lease.exhausted)
+            return false;
+        if (lease.tokens.get() >= permits)
+            return true; // <- leased by another thread meanwhile
+
+        long wanted = Math.max(leaseSize, permits);
+        long remaining = take(lease.window, wanted);
+        long granted = Math.min(wanted, Math.max(0, remaining + wanted));
+        leases.incrementAndGet();
+
+        lease.tokens.addAndGet(granted);
+        if (granted < wanted)
+            lease.exhausted = true;
+        return granted > 0;
+    }
+
+    // Takes tokens from the integer of a window, creating it full if needed. Returns what is left.
+    private long take(long window, long tokens) {
+        QdbInteger bucket = new QdbInteger(pool, alias + ".window." + window);
+        try {
+            return bucket.add(-tokens);
+        } catch (AliasNotFoundException e) {
+            long expiry = (window + 2) * windowMillis; // <- one window of grace for late clocks
+            try {
+                bucket.put(permitsPerWindow - tokens, QdbExpiryTime.makeMillisSinceEpoch(expiry));
+                return permitsPerWindow - tokens;
+            } catch (AliasAlreadyExistsException ignored) {
+                return bucket.add(-tokens); // <- created concurrently by another client
+            }
+        }
+    }
+
+    private static final class Lease {
+        final long window;
+        final AtomicLong tokens = new AtomicLong();
+        volatile boolean exhausted; // <- the bucket of the window is empty
+
+        Lease(long window) {
+            this.window = window;
+        }
+
+        boolean take(long permits) {
+            for (;;) {
+                long available = tokens.get();
+                if (available < permits)
+                    return false;
+                if (tokens.compareAndSet(available, available - permits))
+                    return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package net.quasardb.qdb;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A codec for records made of a fixed list of fields, each with its own codec.
+ *
+ * A record is encoded as its number of fields, then each field as its length and its bytes,
+ * lengths being variable-length integers. Null fields have no bytes. Fields are only
+ * identified by their order: a schema can grow by appending fields, in which case records
+ * written before decode with nulls for the new fields, and the extra fields of records
+ * written after are ignored.
+ *
+ * For example:
+ * {@code
+ * QdbRecordCodec<Point> codec = QdbRecordCodec.<Point>builder()
+ *     .field(QdbCodec.STRING, Point::name)
+ *     .field(QdbCodec.DOUBLE, Point::x)
+ *     .field(QdbCodec.DOUBLE, Point::y)
+ *     .build((fields) -> new Point((String)fields[0], (Double)fields[1], (Double)fields[2]));
+ * }
+ *
+ * @param <T> The type of the records.
+ */
+public final class QdbRecordCodec<T> implements QdbCodec<T> {
+    private final QdbCodec<Object>[] codecs;
+    private final Function<T, Object>[] getters;
+    private final Function<Object[], T> constructor;
+
+    @SuppressWarnings("unchecked") // <- arrays of generic types
+    private QdbRecordCodec(List<QdbCodec<Object>> codecs, List<Function<T, Object>> getters, Function<Object[], T> constructor) {
+        this.codecs = codecs.toArray(new QdbCodec[0]);
+        this.getters = getters.toArray(new Function[0]);
+        this.constructor = constructor;
+    }
+
+    /**
+     * Starts the definition of a record codec.
+     *
+     * @param <T> The type of the records.
+     * @return A builder to add the fields to.
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<T>();
+    }
+
+    /**
+     * Gets the number of fields of the records.
+     *
+     * @return The number of fields.
+     */
+    public int fieldCount() {
+        return codecs.length;
+    }
+
+    @Override
+    public int maxSize(T value) {
+        int size = varintSize(codecs.length);
+        for (int i = 0; i < codecs.length; ++i) {
+            Object field = getters[i].apply(value);
+            int fieldSize = field != null ? codecs[i].maxSize(field) : -1;
+            size += varintSize(fieldSize + 1) + Math.max(fieldSize, 0);
+        }
+        return size;
+    }
+
+    @Override
+    public void encode(T value, ByteBuffer dst) {
+        putVarint(dst, codecs.length);
+        for (int i = 0; i < codecs.length; ++i) {
+            Object field = getters[i].apply(value);
+            if (field == null) {
+                putVarint(dst, 0);
+                continue;
+            }
+
+            // Reserve the prefix of the largest length the field can have, and encode the field
+            // right after it: the field only moves back when its actual length has a shorter prefix.
+            int start = dst.position();
+            int reserved = varintSize(codecs[i].maxSize(field) + 1);
+            dst.position(start + reserved);
+            ByteBuffer slice = dst.slice();
+            codecs[i].encode(field, slice);
+            int length = slice.position();
+
+            putVarint(dst, start, length + 1);
+            int prefix = varintSize(length + 1);
+            if (prefix < reserved) {
+                slice.flip();
+                dst.position(start + prefix);
+                dst.put(slice);
+            } else {
+                dst.position(start + reserved + length);
+            }
+        }
+    }
+
+    @Override
+    public T decode(ByteBuffer src) {
+        ByteBuffer reader = src.duplicate();
+        Object[] fields = new Object[codecs.length];
+        try {
+            int count = getVarint(reader);
+            for (int i = 0; i < count; ++i) {
+                int length = getVarint(reader) - 1;
+                if (length < 0 || i >= codecs.length) {
+                    reader.position(reader.position() + Math.max(0, length));
+                    continue;
+                }
+
+                ByteBuffer field = reader.duplicate();
+                field.limit(reader.position() + length);
+                fields[i] = codecs[i].decode(field);
+                reader.position(reader.position() + length);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IncompatibleTypeException("Content is not a record of this schema");
+        }
+        return constructor.apply(fields);
+    }
+
+    // Lengths are stored plus one, so that 0 stands for a null field.
+    private static void putVarint(ByteBuffer dst, int value) {
+        while ((value & ~0x7f) != 0) {
+            dst.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        dst.put((byte)value);
+    }
+
+    // Writes a varint at an absolute index, leaving the position of dst unchanged.
+    private static void putVarint(ByteBuffer dst, int index, int value) {
+        while ((value & ~0x7f) != 0) {
+            dst.put(index++, (byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        dst.put(index, (byte)value);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            ++size;
+        }
+        return size;
+    }
+
+    private static int getVarint(ByteBuffer src) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = src.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IncompatibleTypeException("Content is not a record of this schema");
+    }
+
+    /**
+     * Defines the fields of a record codec, in order.
+     *
+     * @param <T> The type of the records.
+     */
+    public static final class Builder<T> {
+        private final List<QdbCodec<Object>> codecs = new ArrayList<QdbCodec<Object>>();
+        private final List<Function<T, Object>> getters = new ArrayList<Function<T, Object>>();
+
+        private Builder() {
+        }
+
+        /**
+         * Appends a field.
+         *
+         * @param <F> The type of the field.
+         * @param codec The codec of the field.
+         * @param getter Gets the field from a record. It may return null.
+         * @return This builder.
+         */
+        @SuppressWarnings("unchecked")
+        public <F> Builder<T> field(QdbCodec<F> codec, Function<T, F> getter) {
+            codecs.add((QdbCodec<Object>)codec);
+            getters.add((Function<T, Object>)getter);
+            return this;
+        }
+
+        /**
+         * Creates the codec.
+         *
+         * @param constructor Creates a record from its fields, in the order they were added.
+         * @return The codec.
+         * @throws InvalidArgumentException If no field has been added.
+         */
+        public QdbRecordCodec<T> build(Function<Object[], T> constructor) {
+            if (codecs.isEmpty())
+                throw new InvalidArgumentException("A record needs at least one field");
+            return new QdbRecordCodec<T>(codecs, getters, constructor);
+        }
+    }
+}
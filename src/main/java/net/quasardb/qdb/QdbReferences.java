@@ -0,0 +1,41 @@
+package net.quasardb.qdb;
+
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.jni.*;
+
+// Out-parameters of the native calls returning a single value, reused by each thread
+// instead of allocating a Reference per call. Values are cleared once taken, so that
+// the holders do not keep them alive.
+final class QdbReferences {
+    private static final ThreadLocal<QdbReferences> current = ThreadLocal.withInitial(QdbReferences::new);
+
+    final Reference<Long> longValue = new Reference<Long>();
+    final Reference<Integer> intValue = new Reference<Integer>();
+    final Reference<String> stringValue = new Reference<String>();
+    final Reference<ByteBuffer> content = new Reference<ByteBuffer>(); // <- native memory, to wrap or release before the session
+
+    private QdbReferences() {
+    }
+
+    static QdbReferences get() {
+        return current.get();
+    }
+
+    long takeLong() {
+        long value = longValue.value;
+        longValue.value = null;
+        return value;
+    }
+
+    int takeInt() {
+        int value = intValue.value;
+        intValue.value = null;
+        return value;
+    }
+
+    String takeString() {
+        String value = stringValue.value;
+        stringValue.value = null;
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+package net.quasardb.qdb;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * Hands out unique IDs from an integer, reserving them by blocks.
+ *
+ * Each block is reserved with one QdbInteger.add(blockSize), then its IDs are handed out
+ * locally with an atomic increment. When half of a block has been handed out, the next one
+ * is reserved in the background, so callers rarely wait for the cluster. The block size
+ * doubles when blocks run out in less than the target lease time and halves when they last
+ * more than twice as long, between the given bounds.
+ *
+ * IDs are unique across every client of the integer, and increasing for a given client.
+ * They are not contiguous across clients, and the IDs left in a block when the client
+ * stops are never handed out.
+ */
+public final class QdbSequence {
+    public static final int DEFAULT_MIN_BLOCK_SIZE = 16;
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 1024 * 1024;
+    public static final long DEFAULT_TARGET_LEASE_MILLIS = 1000;
+
+    private final QdbSessionPool pool;
+    private final QdbInteger integer;
+    private final int minBlockSize;
+    private final int maxBlockSize;
+    private final long targetLeaseNanos;
+
+    private volatile Block current = new Block(0, 0); // <- empty, the first call reserves a block
+    private CompletableFuture<Block> prefetch; // <- guarded by this
+    private int blockSize;                     // <- guarded by this
+    private final AtomicLong reservations = new AtomicLong();
+
+    // Protected constructor. Call QdbCluster.sequence() to get an instance.
+    protected QdbSequence(QdbSessionPool pool, String alias, int minBlockSize, int maxBlockSize, long targetLeaseMillis) {
+        if (minBlockSize < 1 || minBlockSize > maxBlockSize)
+            throw new InvalidArgumentException("Block sizes must satisfy 1 <= min <= max");
+        if (targetLeaseMillis < 1)
+            throw new InvalidArgumentException("Target lease time must be at least 1ms");
+
+        this.pool = pool;
+        this.integer = new QdbInteger(pool, alias);
+        this.minBlockSize = minBlockSize;
+        this.maxBlockSize = maxBlockSize;
+        this.targetLeaseNanos = TimeUnit.MILLISECONDS.toNanos(targetLeaseMillis);
+        this.blockSize = minBlockSize;
+    }
+
+    /**
+     * Gets the alias of the integer the IDs are reserved from.
+     *
+     * @return The alias of the integer.
+     */
+    public String alias() {
+        return integer.alias();
+    }
+
+    /**
+     * Gets a new ID. Only reaches the cluster when the current block is used up and the
+     * next one has not been reserved in the background yet. The integer is created at 0
+     * if it does not exist.
+     *
+     * @return A unique ID, greater than the value of the integer when it was reserved.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias is not an integer.
+     */
+    public long next() {
+        for (;;) {
+            Block block = current;
+            long id = block.cursor.getAndIncrement();
+            if (id < block.end) {
+                if (id == block.prefetchAt)
+                    prefetch();
+                return id;
+            }
+            advance(block);
+        }
+    }
+
+    /**
+     * Gets the number of IDs reserved per block at the moment.
+     *
+     * @return The block size.
+     */
+    public synchronized int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Gets the number of blocks reserved so far, that is, the number of calls to the cluster.
+     *
+     * @return The number of reservations.
+     */
+    public long reservationCount() {
+        return reservations.get();
+    }
+
+    // Starts reserving the next block, unless it is already on its way.
+    private synchronized void prefetch() {
+        if (prefetch != null)
+            return;
+
+        int size = blockSize;
+        prefetch = pool.executor().submit(() -> reserve(size), QdbAsyncExecutor.NO_TIMEOUT);
+    }
+
+    // Replaces a used-up block, unless another thread already did.
+    private synchronized void advance(Block used) {
+        if (current != used)
+            return;
+
+        if (used.startNanos != 0)
+            adapt(System.nanoTime() - used.startNanos);
+
+        Block next = null;
+        if (prefetch != null) {
+            try {
+                next = prefetch.join();
+            } catch (CompletionException e) {
+                // <- retried synchronously below
+            }
+            prefetch = null;
+        }
+        if (next == null)
+            next = reserve(blockSize);
+        next.startNanos = System.nanoTime();
+        current = next;
+    }
+
+    // Doubles the block size when blocks last less than half the target, halves it when they last twice as long.
+    private void adapt(long leaseNanos) {
+        if (leaseNanos < targetLeaseNanos / 2)
+            blockSize = (int)Math.min(maxBlockSize, blockSize * 2L);
+        else if (leaseNanos > targetLeaseNanos * 2)
+            blockSize = Math.max(minBlockSize, blockSize / 2);
+    }
+
+    private Block reserve(int size) {
+        long last;
+        try {
+            last = integer.add(size);
+        } catch (AliasNotFoundException e) {
+            try {
+                integer.put(0);
+            } catch (AliasAlreadyExistsException ignored) {
+                // <- created concurrently by another client
+            }
+            last = integer.add(size);
+        }
+        reservations.incrementAndGet();
+        return new Block(last - size + 1, last + 1);
+    }
+
+    private static final class Block {
+        final AtomicLong cursor;
+        final long end;
+        final long prefetchAt;
+        long startNanos; // <- when the block started being handed out, published through current
+
+        Block(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = start + (end - start) / 2;
+        }
+    }
+}
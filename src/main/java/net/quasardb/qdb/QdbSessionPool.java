@@ -0,0 +1,571 @@
+package net.quasardb.qdb;
+
+import java.lang.AutoCloseable;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.quasardb.qdb.jni.*;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A fixed-size set of sessions connected to the same cluster.
+ *
+ * Every operation leases the session with the fewest operations in flight, so that
+ * concurrent callers are spread over several native handles instead of queueing on
+ * a single one. A session that is found closed is evicted and replaced by a fresh
+ * connection the next time it would be leased.
+ *
+ * A session is also evicted when an operation fails because its connection is lost.
+ *
+ * An evicted session is retired rather than closed: it is closed once the operations
+ * running on it have returned, and the buffers and batches holding its native memory
+ * have been closed. A buffer that is never closed keeps its session open until it is
+ * garbage collected. close() closes each session once its operations have returned.
+ */
+public final class QdbSessionPool implements AutoCloseable {
+    private static final ReferenceQueue<Buffer> collected = new ReferenceQueue<Buffer>();
+
+    static {
+        Thread reaper = new Thread(QdbSessionPool::reap, "qdb-session-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private final String uri;
+    private final Session.SecurityOptions securityOptions;
+    private final AtomicReferenceArray<Slot> slots;
+    private final CopyOnWriteArrayList<Slot> retired = new CopyOnWriteArrayList<Slot>();
+    private final ConcurrentHashMap<Session, Slot> leases = new ConcurrentHashMap<Session, Slot>(); // <- by session, retired ones included
+    private final Set<BufferPin> pins = ConcurrentHashMap.newKeySet(); // <- buffers not closed yet
+    private final AtomicLong evictions;
+    private volatile int timeoutMillis = -1;
+    private volatile QdbAsyncExecutor executor;
+    private volatile ThreadPoolExecutor partitionThreads;
+    private final QdbBufferPool buffers = new QdbBufferPool();
+    private volatile QdbCompression compression;
+    private volatile boolean closed;
+
+    // Wraps an already connected session, which cannot be reconnected if it is lost.
+    protected QdbSessionPool(Session session) {
+        this.uri = null;
+        this.securityOptions = null;
+        this.slots = new AtomicReferenceArray<Slot>(new Slot[] { new Slot(0, session) });
+        this.evictions = new AtomicLong();
+    }
+
+    private QdbSessionPool(String uri, Session.SecurityOptions securityOptions, int size) {
+        if (size < 1)
+            throw new InvalidArgumentException("Session pool size must be at least 1");
+
+        this.uri = uri;
+        this.securityOptions = securityOptions;
+        this.slots = new AtomicReferenceArray<Slot>(size);
+        this.evictions = new AtomicLong();
+
+        for (int i = 0; i < size; ++i) {
+            slots.set(i, new Slot(i, connect()));
+        }
+    }
+
+    /**
+     * Opens a pool of sessions to a cluster. Requires security settings to be disabled.
+     *
+     * @param uri a string in the form of <code>qdb://&lt;address1&gt;:&lt;port1&gt;[,&lt;address2&gt;:&lt;port2&gt;...]</code>
+     * @param size The number of sessions to open.
+     * @return The connected pool.
+     * @throws ConnectionRefusedException If the connection to the cluster is refused.
+     * @throws InvalidArgumentException If the syntax of the URI is incorrect, or size is lower than 1.
+     */
+    public static QdbSessionPool connect(String uri, int size) {
+        return new QdbSessionPool(uri, null, size);
+    }
+
+    /**
+     * Opens a pool of sessions to a secure cluster.
+     *
+     * @param securityOptions The credentials used by every session of the pool.
+     * @param uri a string in the form of <code>qdb://&lt;address1&gt;:&lt;port1&gt;[,&lt;address2&gt;:&lt;port2&gt;...]</code>
+     * @param size The number of sessions to open.
+     * @return The connected pool.
+     * @throws ConnectionRefusedException If the connection to the cluster is refused.
+     * @throws InvalidArgumentException If the syntax of the URI is incorrect, or size is lower than 1.
+     */
+    public static QdbSessionPool connect(Session.SecurityOptions securityOptions, String uri, int size) {
+        return new QdbSessionPool(uri, securityOptions, size);
+    }
+
+    /**
+     * Leases the least loaded session of the pool. Every call must be matched by a
+     * call to release(), usually in a finally block.
+     *
+     * @return A connected session.
+     * @throws ClusterClosedException If close() has been called.
+     */
+    public Session acquire() {
+        for (;;) {
+            throwIfClosed();
+
+            int size = slots.length();
+            int start = (int)(Thread.currentThread().getId() % size);
+            int best = start;
+            int bestLoad = Integer.MAX_VALUE;
+
+            for (int n = 0; n < size; ++n) {
+                int i = (start + n) % size;
+                int load = slots.get(i).inFlight.get();
+
+                if (load < bestLoad) {
+                    best = i;
+                    bestLoad = load;
+
+                    if (load == 0)
+                        break;
+                }
+            }
+
+            Slot slot = slots.get(best);
+            if (slot.session.isClosed())
+                slot = evict(best, slot);
+
+            if (slot.lease())
+                return slot.session;
+            // <- retired meanwhile, pick another one
+        }
+    }
+
+    // Leases a specific session again, for native resources bound to it.
+    // Returns false if the session has been evicted since.
+    protected boolean acquire(Session session) {
+        throwIfClosed();
+
+        Slot slot = slotOf(session);
+        if (slot == null || slot.session.isClosed())
+            return false;
+
+        return slot.lease();
+    }
+
+    /**
+     * Returns a session leased with acquire() to the pool. A retired session is closed
+     * once its last operation returns.
+     *
+     * @param session The session to return.
+     */
+    public void release(Session session) {
+        Slot slot = slotOf(session);
+        if (slot != null) {
+            slot.inFlight.decrementAndGet();
+            slot.closeIfIdle();
+        }
+    }
+
+    // Evicts the session an operation failed on, if the error means its connection is lost.
+    // Call it before releasing the session. Returns the error, for the caller to rethrow.
+    protected RuntimeException failed(Session session, RuntimeException error) {
+        if (closed || uri == null || !isConnectionLost(session, error))
+            return error;
+
+        Slot slot = slotOf(session);
+        if (slot != null && !slot.isRetired) {
+            try {
+                evict(slot.index, slot);
+            } catch (RuntimeException e) {
+                error.addSuppressed(e); // <- not reconnected yet, the next failure tries again
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Retires a session and replaces it with a new connection to the cluster.
+     * Use this when a session is known to be in a bad state. The session is closed
+     * once the operations running on it have returned, and its native memory has
+     * been released.
+     *
+     * @param session The session to evict.
+     * @throws ClusterClosedException If close() has been called, or the session cannot be reconnected.
+     */
+    public void evict(Session session) {
+        Slot slot = slotOf(session);
+        if (slot != null && !slot.isRetired)
+            evict(slot.index, slot);
+    }
+
+    // Keeps a session open while native memory it allocated is in use, even once retired.
+    // Every call must be matched by a call to unpin().
+    protected void pin(Session session) {
+        Slot slot = slotOf(session);
+        if (slot != null)
+            slot.pins.incrementAndGet();
+    }
+
+    protected void unpin(Session session) {
+        Slot slot = slotOf(session);
+        if (slot != null) {
+            slot.pins.decrementAndGet();
+            slot.closeIfIdle();
+        }
+    }
+
+    // Wraps native memory returned by an operation, keeping its session open until the
+    // buffer is closed, or garbage collected if it never is. Call it before releasing the session.
+    protected Buffer wrap(Session session, Reference<ByteBuffer> content) {
+        Slot slot = slotOf(session);
+        if (slot == null)
+            return Buffer.wrap(session, content);
+
+        slot.pins.incrementAndGet();
+        return new PinnedBuffer(session, content.value, slot);
+    }
+
+    /**
+     * Set network timeout for every session of the pool, including the ones that
+     * replace evicted sessions later on.
+     *
+     * @param timeoutMillis The timeout of the operation, in milliseconds
+     * @throws ClusterClosedException If close() has been called.
+     */
+    public void setTimeout(int timeoutMillis) {
+        throwIfClosed();
+        this.timeoutMillis = timeoutMillis;
+        for (int i = 0; i < slots.length(); ++i) {
+            qdb.option_set_timeout(slots.get(i).session.handle(), timeoutMillis);
+        }
+    }
+
+    /**
+     * Gets the executor asynchronous operations run on. Unless one has been set,
+     * an executor with one thread per session is created on first use.
+     *
+     * @return The executor.
+     * @throws ClusterClosedException If close() has been called.
+     */
+    public QdbAsyncExecutor executor() {
+        throwIfClosed();
+
+        QdbAsyncExecutor result = executor;
+        if (result == null) {
+            synchronized (this) {
+                if (executor == null)
+                    executor = QdbAsyncExecutor.forPool(this);
+                result = executor;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the executor asynchronous operations run on. The pool takes ownership
+     * of the executor, and closes it with the pool; the previous executor is closed.
+     *
+     * @param executor The new executor.
+     * @throws ClusterClosedException If close() has been called.
+     */
+    public void setExecutor(QdbAsyncExecutor executor) {
+        throwIfClosed();
+
+        QdbAsyncExecutor previous;
+        synchronized (this) {
+            previous = this.executor;
+            this.executor = executor;
+        }
+
+        if (previous != null && previous != executor)
+            previous.close();
+    }
+
+    // Runs the child batches and location lookups of QdbBatch.runPartitioned(). They block on
+    // native calls and may be started from a worker of executor(), so they get threads of their
+    // own: at most one per session, since each of them leases one. Created on first use.
+    Executor partitionThreads() {
+        throwIfClosed();
+
+        ThreadPoolExecutor result = partitionThreads;
+        if (result == null) {
+            synchronized (this) {
+                if (partitionThreads == null) {
+                    partitionThreads = new ThreadPoolExecutor(size(), size(),
+                                                              60, TimeUnit.SECONDS,
+                                                              new LinkedBlockingQueue<Runnable>(),
+                                                              new QdbAsyncExecutor.DaemonThreadFactory("qdb-batch-partition"));
+                    partitionThreads.allowCoreThreadTimeOut(true);
+                }
+                result = partitionThreads;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the pool of direct buffers shared by the operations of this pool.
+     *
+     * @return The buffer pool.
+     */
+    public QdbBufferPool buffers() {
+        return buffers;
+    }
+
+    /**
+     * Gets the compression applied to blob contents, if any.
+     *
+     * @return The compression policy, or null if contents are stored raw.
+     */
+    public QdbCompression compression() {
+        return compression;
+    }
+
+    /**
+     * Sets the compression applied to blob contents.
+     *
+     * @param compression The compression policy, or null to store contents raw.
+     */
+    public void setCompression(QdbCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Gets the number of sessions in the pool.
+     *
+     * @return The number of sessions.
+     */
+    public int size() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the number of operations currently running on a session of the pool.
+     *
+     * @param index The index of the session, between 0 and size() - 1.
+     * @return The number of operations in flight.
+     */
+    public int inFlight(int index) {
+        return slots.get(index).inFlight.get();
+    }
+
+    /**
+     * Gets the number of operations currently running on all sessions of the pool.
+     *
+     * @return The total number of operations in flight.
+     */
+    public int inFlight() {
+        int total = 0;
+        for (int i = 0; i < slots.length(); ++i) {
+            total += slots.get(i).inFlight.get();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of sessions that have been evicted and reconnected since the pool was opened.
+     *
+     * @return The number of evictions.
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of evicted sessions not closed yet, because operations are still
+     * running on them or their native memory is still in use.
+     *
+     * @return The number of retired sessions.
+     */
+    public int retiredCount() {
+        return retired.size();
+    }
+
+    /**
+     * Checks if close() has been called.
+     *
+     * @return true if the pool has been closed, false if not
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes all sessions of the pool. Sessions with operations in flight are closed
+     * once these operations return; buffers they returned cannot be read afterwards.
+     */
+    public void close() {
+        closed = true;
+        if (executor != null)
+            executor.close();
+        if (partitionThreads != null)
+            partitionThreads.shutdown();
+        for (int i = 0; i < slots.length(); ++i) {
+            slots.get(i).retire();
+        }
+        for (Slot slot : retired) {
+            slot.closeIfIdle();
+        }
+    }
+
+    // The first session of the pool, for callers that need one long-lived session.
+    protected Session primary() {
+        return slots.get(0).session;
+    }
+
+    private Slot evict(int index, Slot slot) {
+        throwIfClosed();
+
+        if (uri == null) {
+            // Nothing to reconnect to: surface the closed session to the caller.
+            slot.session.throwIfClosed();
+            return slot;
+        }
+
+        synchronized (this) {
+            if (slots.get(index) != slot)
+                return slots.get(index);
+
+            // Retired before being replaced, so that release() always finds it.
+            Slot replacement = new Slot(index, connect());
+            slot.retire();
+            slots.set(index, replacement);
+            evictions.incrementAndGet();
+            return replacement;
+        }
+    }
+
+    private Session connect() {
+        Session session = securityOptions == null
+            ? Session.connect(uri)
+            : Session.connect(securityOptions, uri);
+
+        if (timeoutMillis >= 0)
+            qdb.option_set_timeout(session.handle(), timeoutMillis);
+
+        return session;
+    }
+
+    private Slot slotOf(Session session) {
+        return leases.get(session);
+    }
+
+    // Errors after which a session cannot be used anymore.
+    private static boolean isConnectionLost(Session session, RuntimeException error) {
+        return isTransportError(error) || session.isClosed();
+    }
+
+    // Errors raised because a node of the cluster cannot be reached, rather than by the operation itself.
+    static boolean isTransportError(RuntimeException error) {
+        return error instanceof ConnectionRefusedException
+            || error instanceof HostNotFoundException;
+    }
+
+    protected void throwIfClosed() {
+        if (closed)
+            throw new ClusterClosedException("Session pool is already closed");
+    }
+
+    // Unpins the sessions of buffers garbage collected without being closed, once their
+    // native memory has been released.
+    private static void reap() {
+        for (;;) {
+            try {
+                ((BufferPin)collected.remove()).release();
+            } catch (InterruptedException e) {
+                // <- daemon thread, keeps running until the JVM exits
+            } catch (RuntimeException e) {
+                // <- a failure to close one session must not stop the others from being closed
+            }
+        }
+    }
+
+    // A session of the pool, with the operations running on it and the native resources using it.
+    private final class Slot {
+        final int index;
+        final Session session;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger pins = new AtomicInteger();
+        final AtomicBoolean closing = new AtomicBoolean();
+        volatile boolean isRetired;
+
+        Slot(int index, Session session) {
+            this.index = index;
+            this.session = session;
+            leases.put(session, this);
+        }
+
+        // Counts an operation, unless the session has been retired meanwhile.
+        boolean lease() {
+            inFlight.incrementAndGet();
+            if (!isRetired)
+                return true;
+
+            inFlight.decrementAndGet();
+            closeIfIdle();
+            return false;
+        }
+
+        void retire() {
+            if (!isRetired) {
+                isRetired = true;
+                retired.add(this);
+            }
+            closeIfIdle();
+        }
+
+        // Buffers do not keep the session open once the pool is closed, as before pooling.
+        void closeIfIdle() {
+            if (isRetired
+                && inFlight.get() == 0
+                && (pins.get() == 0 || closed)
+                && closing.compareAndSet(false, true)) {
+                retired.remove(this);
+                leases.remove(session);
+                session.close();
+            }
+        }
+    }
+
+    // Native memory returned by an operation, which keeps its session open until closed.
+    private final class PinnedBuffer extends Buffer {
+        private final BufferPin pin;
+
+        PinnedBuffer(Session session, ByteBuffer content, Slot slot) {
+            super(session, content);
+            this.pin = new BufferPin(this, slot);
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            pin.release();
+        }
+    }
+
+    // Unpins the session of a buffer once, whether the buffer is closed or garbage collected.
+    private final class BufferPin extends PhantomReference<Buffer> {
+        final Slot slot;
+        final AtomicBoolean released = new AtomicBoolean();
+
+        BufferPin(Buffer buffer, Slot slot) {
+            super(buffer, collected);
+            this.slot = slot;
+            pins.add(this);
+        }
+
+        void release() {
+            if (!released.compareAndSet(false, true))
+                return;
+
+            pins.remove(this);
+            clear();
+            slot.pins.decrementAndGet();
+            slot.closeIfIdle();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package net.quasardb.qdb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A counter spread over several integers, so that increments do not all hit one node.
+ *
+ * The value of the counter is the sum of its shards. Each increment goes to one shard,
+ * picked at random or by thread, and get() reads every shard in a single batch, run in
+ * parallel over the nodes that hold them. When the
+ * counter is created, the alias of each shard is chosen so that shards land on different
+ * nodes whenever the cluster has enough of them; the chosen aliases are recorded in a blob
+ * under the alias of the counter, so every client uses the same shards afterwards, even
+ * if the topology changes.
+ */
+public final class QdbShardedInteger {
+    private static final int MAX_PROBES = 16;
+
+    /**
+     * How a shard is picked for an increment.
+     */
+    public enum Selection {
+        /**
+         * A random shard for every increment.
+         */
+        RANDOM,
+        /**
+         * The same shard for every increment made by a thread.
+         */
+        THREAD
+    }
+
+    private final QdbSessionPool pool;
+    private final String alias;
+    private final int shardCount;
+    private volatile Selection selection = Selection.RANDOM;
+    private volatile String[] shards;
+    private final AtomicReference<Reader> idleReader = new AtomicReference<Reader>();
+
+    // Protected constructor. Call QdbCluster.shardedInteger() to get an instance.
+    protected QdbShardedInteger(QdbSessionPool pool, String alias, int shardCount) {
+        if (shardCount < 1)
+            throw new InvalidArgumentException("Shard count must be at least 1");
+
+        this.pool = pool;
+        this.alias = alias;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Gets the alias of the blob recording the shards of the counter.
+     *
+     * @return The alias of the counter.
+     */
+    public String alias() {
+        return alias;
+    }
+
+    /**
+     * Sets how a shard is picked for an increment.
+     *
+     * @param selection The selection policy.
+     */
+    public void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * Creates the counter and its shards.
+     *
+     * @param initialValue The value of the counter.
+     * @throws AliasAlreadyExistsException If the counter, or one of the aliases chosen for its shards, already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     */
+    public void put(long initialValue) {
+        String[] chosen = chooseShards();
+
+        List<CompletableFuture<Void>> puts = new ArrayList<CompletableFuture<Void>>(chosen.length);
+        for (int i = 0; i < chosen.length; ++i) {
+            puts.add(new QdbInteger(pool, chosen[i]).putAsync(i == 0 ? initialValue : 0));
+        }
+        RuntimeException error = null;
+        for (CompletableFuture<Void> put : puts) {
+            try {
+                put.join();
+            } catch (CompletionException e) {
+                if (error == null)
+                    error = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+            }
+        }
+        if (error != null) {
+            removeShards(ownShards(chosen, puts));
+            throw error;
+        }
+
+        try {
+            new QdbBlob(pool, alias).put(ByteBuffer.wrap(String.join("\n", chosen).getBytes(StandardCharsets.UTF_8)));
+        } catch (RuntimeException e) {
+            removeShards(chosen);
+            throw e;
+        }
+        shards = chosen;
+    }
+
+    /**
+     * Adds a delta to one shard of the counter.
+     *
+     * @param delta The increment to add.
+     * @throws AliasNotFoundException If the counter does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a sharded integer.
+     */
+    public void add(long delta) {
+        String[] aliases = shards();
+        int index = selection == Selection.THREAD
+            ? (int)(Thread.currentThread().getId() % aliases.length)
+            : ThreadLocalRandom.current().nextInt(aliases.length);
+        new QdbInteger(pool, aliases[index]).add(delta);
+    }
+
+    /**
+     * Reads every shard in a single batch, and sums them. The batch runs partitioned by
+     * node, and is kept for the next call, so the node of each shard is only looked up once.
+     *
+     * @return The value of the counter.
+     * @throws AliasNotFoundException If the counter, or one of its shards, does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a sharded integer.
+     */
+    public long get() {
+        String[] aliases = shards();
+        Reader reader = idleReader.getAndSet(null);
+        if (reader == null || reader.aliases != aliases)
+            reader = new Reader(pool, aliases);
+        try {
+            return reader.sum();
+        } finally {
+            if (!idleReader.compareAndSet(null, reader))
+                reader.batch.close();
+        }
+    }
+
+    /**
+     * Removes the counter and its shards.
+     *
+     * @throws AliasNotFoundException If the counter does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a sharded integer.
+     */
+    public void remove() {
+        String[] aliases = shards();
+        removeShards(aliases); // <- first, so that a failure leaves the counter to remove again
+        new QdbEntry(pool, alias).remove();
+        shards = null;
+    }
+
+    /**
+     * Gets the aliases of the integers the counter is spread over.
+     *
+     * @return The aliases of the shards, as recorded when the counter was created.
+     * @throws AliasNotFoundException If the counter does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a sharded integer.
+     */
+    public String[] shardAliases() {
+        return shards().clone();
+    }
+
+    private String[] shards() {
+        String[] aliases = shards;
+        if (aliases == null) {
+            pool.throwIfClosed();
+            ByteBuffer content = new QdbBlob(pool, alias).getDecoded();
+            try {
+                aliases = StandardCharsets.UTF_8.decode(content).toString().split("\n");
+            } finally {
+                pool.buffers().release(content);
+            }
+            for (String shard : aliases) {
+                if (!shard.startsWith(alias + ".shard."))
+                    throw new IncompatibleTypeException("Alias " + alias + " does not hold a sharded integer");
+            }
+            shards = aliases;
+        }
+        return aliases;
+    }
+
+    // Picks, for each shard, the candidate alias stored on the node with the fewest shards
+    // so far, among a few candidates; a node without any shard ends the search.
+    private String[] chooseShards() {
+        String[] chosen = new String[shardCount];
+        Map<String, Integer> shardsPerNode = new HashMap<String, Integer>();
+
+        for (int i = 0; i < shardCount; ++i) {
+            String best = null;
+            String bestLocation = null;
+            int bestCount = Integer.MAX_VALUE;
+            for (int probe = 0; probe < MAX_PROBES && bestCount > 0; ++probe) {
+                String candidate = alias + ".shard." + i + "." + probe;
+                QdbNode node = new QdbEntry(pool, candidate).node();
+                String location = node.hostName() + ":" + node.port();
+
+                int count = shardsPerNode.getOrDefault(location, 0);
+                if (count < bestCount) {
+                    best = candidate;
+                    bestLocation = location;
+                    bestCount = count;
+                }
+            }
+            chosen[i] = best;
+            shardsPerNode.put(bestLocation, bestCount + 1);
+        }
+        return chosen;
+    }
+
+    // Every shard of a failed creation is removed, but those that already existed: they belong to someone else.
+    private static String[] ownShards(String[] chosen, List<CompletableFuture<Void>> puts) {
+        List<String> own = new ArrayList<String>(chosen.length);
+        for (int i = 0; i < chosen.length; ++i) {
+            try {
+                puts.get(i).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof AliasAlreadyExistsException)
+                    continue;
+                // <- may still have been created
+            }
+            own.add(chosen[i]);
+        }
+        return own.toArray(new String[own.size()]);
+    }
+
+    // Removes the shards in a single batch. Every shard is tried, and the first error but
+    // a missing shard is raised once they all have been.
+    private void removeShards(String[] aliases) {
+        try (QdbBatch batch = new QdbBatch(pool)) {
+            List<QdbFuture<Void>> removes = new ArrayList<QdbFuture<Void>>(aliases.length);
+            for (String shard : aliases) {
+                removes.add(batch.entry(shard).remove());
+            }
+            try {
+                batch.run();
+            } catch (RuntimeException e) {
+                if (!batch.hasRun())
+                    throw e;
+            }
+
+            RuntimeException error = null;
+            for (QdbFuture<Void> remove : removes) {
+                try {
+                    remove.get();
+                } catch (AliasNotFoundException e) {
+                    // <- not created, or already removed
+                } catch (RuntimeException e) {
+                    if (error == null)
+                        error = e;
+                }
+            }
+            if (error != null)
+                throw error;
+        }
+    }
+
+    // A batch reading every shard, run again by each get(). Integer operations have no
+    // native batch, so an idle reader holds neither native memory nor a session.
+    private static final class Reader {
+        final String[] aliases;
+        final QdbBatch batch;
+        final List<QdbFuture<Long>> values;
+
+        Reader(QdbSessionPool pool, String[] aliases) {
+            this.aliases = aliases;
+            this.batch = new QdbBatch(pool);
+            this.values = new ArrayList<QdbFuture<Long>>(aliases.length);
+            for (String shard : aliases) {
+                values.add(batch.integer(shard).get());
+            }
+        }
+
+        long sum() {
+            batch.reset();
+            batch.runPartitioned();
+
+            long sum = 0;
+            for (QdbFuture<Long> value : values) {
+                sum += value.get();
+            }
+            return sum;
+        }
+    }
+}
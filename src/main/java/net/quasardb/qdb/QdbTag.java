@@ -8,8 +8,8 @@ import net.quasardb.qdb.jni.*;
  * Represents a tag in a quasardb database.
  */
 public final class QdbTag extends QdbEntry {
-    protected QdbTag(Session session, String alias) {
-        super(session, alias);
+    protected QdbTag(QdbSessionPool pool, String alias) {
+        super(pool, alias);
     }
 
     /**
@@ -35,9 +35,15 @@ public final class QdbTag extends QdbEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public boolean attachEntry(String entry) {
-        session.throwIfClosed();
-        int err = qdb.attach_tag(session.handle(), entry, alias);
-        return err != qdb_error.tag_already_set;
+        Session session = pool.acquire();
+        try {
+            int err = qdb.attach_tag(session.handle(), entry, alias);
+            return err != qdb_error.tag_already_set;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 
     /**
@@ -47,7 +53,7 @@ public final class QdbTag extends QdbEntry {
      * @throws ClusterClosedException If QdbCluster.close() has been called.
      */
     public Iterable<QdbEntry> entries() {
-        return new QdbTagEntries(session, alias);
+        return new QdbTagEntries(pool, alias);
     }
 
     /**
@@ -73,8 +79,14 @@ public final class QdbTag extends QdbEntry {
      * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
      */
     public boolean detachEntry(String entry) {
-        session.throwIfClosed();
-        int err = qdb.detach_tag(session.handle(), entry, alias);
-        return err != qdb_error.tag_not_set;
+        Session session = pool.acquire();
+        try {
+            int err = qdb.detach_tag(session.handle(), entry, alias);
+            return err != qdb_error.tag_not_set;
+        } catch (RuntimeException e) {
+            throw pool.failed(session, e);
+        } finally {
+            pool.release(session);
+        }
     }
 }
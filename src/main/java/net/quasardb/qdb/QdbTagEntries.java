@@ -6,18 +6,27 @@ import net.quasardb.qdb.exception.*;
 
 final class QdbTagEntries implements Iterable<QdbEntry> {
     QdbEntryFactory factory;
-    Session session;
+    QdbSessionPool pool;
     String tag;
 
     class QdbTagEntriesIterator implements Iterator<QdbEntry> {
+        final Session session;
         final long handle;
         boolean hasNext;
 
         public QdbTagEntriesIterator() {
             Reference<Long> iterator = new Reference<Long>();
 
-            session.throwIfClosed();
-            int err = qdb.tag_iterator_begin(session.handle(), tag, iterator);
+            // The iterator stays bound to the session it was opened on.
+            session = pool.acquire();
+            int err;
+            try {
+                err = qdb.tag_iterator_begin(session.handle(), tag, iterator);
+            } catch (RuntimeException e) {
+                throw pool.failed(session, e);
+            } finally {
+                pool.release(session);
+            }
             handle = iterator.value;
 
             hasNext = err == qdb_error.ok;
@@ -49,10 +58,10 @@ final class QdbTagEntries implements Iterable<QdbEntry> {
         }
     }
 
-    protected QdbTagEntries(Session session, String tag) {
-        this.session = session;
+    protected QdbTagEntries(QdbSessionPool pool, String tag) {
+        this.pool = pool;
         this.tag = tag;
-        factory = new QdbEntryFactory(session);
+        factory = new QdbEntryFactory(pool);
     }
 
     public Iterator<QdbEntry> iterator() {
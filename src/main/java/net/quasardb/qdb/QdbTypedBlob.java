@@ -0,0 +1,151 @@
+package net.quasardb.qdb;
+
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A blob holding a value of a given type, converted with a codec.
+ *
+ * Values are encoded into a direct buffer from the buffer pool of the cluster, and decoded
+ * from the native memory the blob is fetched into, so a round trip creates no byte array.
+ * Contents are compressed and decompressed like those of QdbBlob.
+ *
+ * @param <T> The type of the value.
+ * @see QdbCodec
+ */
+public final class QdbTypedBlob<T> {
+    private final QdbSessionPool pool;
+    private final QdbBlob blob;
+    private final QdbCodec<T> codec;
+
+    // Protected constructor. Call QdbCluster.typedBlob() to get an instance.
+    protected QdbTypedBlob(QdbSessionPool pool, String alias, QdbCodec<T> codec) {
+        this.pool = pool;
+        this.blob = new QdbBlob(pool, alias);
+        this.codec = codec;
+    }
+
+    /**
+     * Gets the alias of the blob.
+     *
+     * @return The alias of the blob.
+     */
+    public String alias() {
+        return blob.alias();
+    }
+
+    /**
+     * Gets the untyped blob, to read or write the encoded value.
+     *
+     * @return The underlying blob.
+     */
+    public QdbBlob blob() {
+        return blob;
+    }
+
+    /**
+     * Read the value of the blob.
+     *
+     * @return The decoded value.
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation, or its content cannot be decoded by the codec.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public T get() {
+        Buffer buffer = blob.get();
+        try {
+            ByteBuffer content = buffer.toByteBuffer();
+            return codec.decode(content == null ? ByteBuffer.allocate(0) : content.duplicate());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    /**
+     * Create the blob with a value. Fails if the blob already exists.
+     *
+     * @param value The value of the blob to be created.
+     * @throws AliasAlreadyExistsException If an entry matching the provided alias already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public void put(T value) {
+        this.put(value, QdbExpiryTime.NEVER_EXPIRES);
+    }
+
+    /**
+     * Create the blob with a value. Fails if the blob already exists.
+     *
+     * @param value The value of the blob to be created.
+     * @param expiryTime The expiry time of the blob.
+     * @throws AliasAlreadyExistsException If an entry matching the provided alias already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws InvalidArgumentException If the expiry time is in the past (with a certain tolerance)
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public void put(T value, QdbExpiryTime expiryTime) {
+        ByteBuffer content = encode(value);
+        try {
+            blob.put(content, expiryTime);
+        } finally {
+            pool.buffers().release(content);
+        }
+    }
+
+    /**
+     * Replaces the value of the blob.
+     *
+     * @param value The value of the blob to be set.
+     * @return true if the blob was created, or false it it was updated.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public boolean update(T value) {
+        return this.update(value, QdbExpiryTime.PRESERVE_EXPIRATION);
+    }
+
+    /**
+     * Replaces the value of the blob.
+     *
+     * @param value The value of the blob to be set.
+     * @param expiryTime The new expiry time of the blob.
+     * @return true if the blob was created, or false it it was updated.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias has a type incompatible for this operation.
+     * @throws InvalidArgumentException If the expiry time is in the past (with a certain tolerance)
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public boolean update(T value, QdbExpiryTime expiryTime) {
+        ByteBuffer content = encode(value);
+        try {
+            return blob.update(content, expiryTime);
+        } finally {
+            pool.buffers().release(content);
+        }
+    }
+
+    /**
+     * Removes the blob.
+     *
+     * @throws AliasNotFoundException If an entry matching the provided alias cannot be found.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws ReservedAliasException If the alias name or prefix is reserved for quasardb internal use.
+     */
+    public void remove() {
+        blob.remove();
+    }
+
+    private ByteBuffer encode(T value) {
+        ByteBuffer content = pool.buffers().acquire(codec.maxSize(value));
+        try {
+            codec.encode(value, content);
+        } catch (RuntimeException e) {
+            pool.buffers().release(content);
+            throw e;
+        }
+        content.flip();
+        return content;
+    }
+}
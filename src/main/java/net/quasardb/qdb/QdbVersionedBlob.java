@@ -0,0 +1,347 @@
+package net.quasardb.qdb;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+import net.quasardb.qdb.exception.*;
+
+/**
+ * A blob updated with optimistic concurrency, on a version number instead of its content.
+ *
+ * QdbBlob.compareAndSwap() sends the whole expected content as comparand, so a conditional
+ * update of a large blob sends twice its size, on every retry. A versioned blob stores a
+ * small head under its alias, holding a version number and the location of the content,
+ * and the content in a separate blob. An update writes the new content under a new alias,
+ * then swaps the head, comparing only the head: the comparand is a few bytes whatever the
+ * size of the content. The writer that loses the swap removes what it wrote.
+ *
+ * Use updateAtomically() to apply a function to the content, retried with a jittered
+ * backoff until it applies to the latest version. For example:
+ * {@code
+ * QdbVersionedBlob document = cluster.versionedBlob("document");
+ * document.updateAtomically((content) -> edit(content));
+ * }
+ */
+public final class QdbVersionedBlob {
+    public static final int DEFAULT_MAX_ATTEMPTS = 16;
+    public static final long DEFAULT_MIN_BACKOFF_MILLIS = 1;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 100;
+
+    private static final int MAGIC = 0x51564231; // <- "QVB1"
+    private static final int HEAD_SIZE = 24;
+
+    private final QdbSessionPool pool;
+    private final String alias;
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile long minBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_BACKOFF_MILLIS);
+    private volatile long maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_BACKOFF_MILLIS);
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    // Protected constructor. Call QdbCluster.versionedBlob() to get an instance.
+    protected QdbVersionedBlob(QdbSessionPool pool, String alias) {
+        this.pool = pool;
+        this.alias = alias;
+    }
+
+    /**
+     * Gets the alias of the head of the blob.
+     *
+     * @return The alias of the blob.
+     */
+    public String alias() {
+        return alias;
+    }
+
+    /**
+     * Sets how updateAtomically() retries after a conflict.
+     *
+     * @param maxAttempts The number of attempts before giving up.
+     * @param minBackoffMillis The upper bound of the first wait, in milliseconds.
+     * @param maxBackoffMillis The upper bound of any wait, in milliseconds.
+     * @throws InvalidArgumentException If maxAttempts is lower than 1, or the backoffs are not 0 <= min <= max.
+     */
+    public void setRetryPolicy(int maxAttempts, long minBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1)
+            throw new InvalidArgumentException("At least one attempt is needed");
+        if (minBackoffMillis < 0 || minBackoffMillis > maxBackoffMillis)
+            throw new InvalidArgumentException("Backoffs must satisfy 0 <= min <= max");
+
+        this.maxAttempts = maxAttempts;
+        this.minBackoffNanos = TimeUnit.MILLISECONDS.toNanos(minBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+    }
+
+    /**
+     * Creates the blob, at version 1.
+     *
+     * @param content The initial content.
+     * @throws AliasAlreadyExistsException If the blob already exists.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     */
+    public void put(ByteBuffer content) {
+        Head head = new Head(1, ThreadLocalRandom.current().nextLong());
+        QdbBlob data = new QdbBlob(pool, head.dataAlias());
+        data.put(content);
+        try {
+            new QdbBlob(pool, alias).put(head.toByteBuffer());
+        } catch (RuntimeException e) {
+            data.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the current version of the blob. Only the head is read.
+     *
+     * @return The version number, starting at 1.
+     * @throws AliasNotFoundException If the blob does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a versioned blob.
+     */
+    public long version() {
+        return readHead().version;
+    }
+
+    /**
+     * Reads the content of the blob, with its version.
+     *
+     * @return The current version and a copy of its content.
+     * @throws AliasNotFoundException If the blob does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws ConcurrentModificationException If the blob kept changing while being read.
+     * @throws IncompatibleTypeException If the alias does not hold a versioned blob.
+     */
+    public Snapshot get() {
+        for (int attempt = 1; ; ++attempt) {
+            Head head = readHead();
+            try {
+                return new Snapshot(head, read(head));
+            } catch (AliasNotFoundException e) {
+                // <- replaced by a concurrent update since the head was read
+                if (attempt >= maxAttempts)
+                    throw new ConcurrentModificationException("Content of " + alias + " kept changing while being read");
+            }
+        }
+    }
+
+    /**
+     * Replaces the content of the blob, if it is still at a given version.
+     *
+     * @param content The new content.
+     * @param expectedVersion The version the update applies to.
+     * @return The new version, or -1 if the blob is no longer at expectedVersion.
+     * @throws AliasNotFoundException If the blob does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a versioned blob.
+     */
+    public long update(ByteBuffer content, long expectedVersion) {
+        Head head = readHead();
+        if (head.version != expectedVersion)
+            return -1;
+        return swap(head, content);
+    }
+
+    /**
+     * Replaces the content of the blob with the result of a function of its current content.
+     * The function is applied again to the latest content after each conflict, so it should
+     * have no side effect.
+     *
+     * @param function Computes the new content from a copy of the current one.
+     * @return The new version.
+     * @throws AliasNotFoundException If the blob does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws ConcurrentModificationException If every attempt allowed by the retry policy conflicted.
+     * @throws IncompatibleTypeException If the alias does not hold a versioned blob.
+     */
+    public long updateAtomically(UnaryOperator<ByteBuffer> function) {
+        int attempts = maxAttempts;
+        for (int attempt = 1; ; ++attempt) {
+            Snapshot snapshot = get();
+            long version = swap(snapshot.head, function.apply(snapshot.content));
+            if (version > 0)
+                return version;
+
+            if (attempt >= attempts) {
+                exhausted.incrementAndGet();
+                throw new ConcurrentModificationException("Update of " + alias + " conflicted " + attempts + " times");
+            }
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * Removes the head and the content of the blob.
+     *
+     * @throws AliasNotFoundException If the blob does not exist.
+     * @throws ClusterClosedException If QdbCluster.close() has been called.
+     * @throws IncompatibleTypeException If the alias does not hold a versioned blob.
+     */
+    public void remove() {
+        Head head = readHead();
+        new QdbEntry(pool, alias).remove();
+        removeQuietly(head.dataAlias());
+    }
+
+    /**
+     * Gets the number of updates that applied.
+     *
+     * @return The number of successful updates.
+     */
+    public long updateCount() {
+        return updates.get();
+    }
+
+    /**
+     * Gets the number of updates that lost against a concurrent update.
+     *
+     * @return The number of conflicts.
+     */
+    public long conflictCount() {
+        return conflicts.get();
+    }
+
+    /**
+     * Gets the number of calls to updateAtomically() that gave up after too many conflicts.
+     *
+     * @return The number of exhausted retries.
+     */
+    public long exhaustedCount() {
+        return exhausted.get();
+    }
+
+    // Writes the content under a new alias, then swaps the head. Returns the new version, or -1.
+    private long swap(Head current, ByteBuffer content) {
+        Head next = new Head(current.version + 1, ThreadLocalRandom.current().nextLong());
+        QdbBlob data = new QdbBlob(pool, next.dataAlias());
+        data.put(content);
+
+        Buffer original;
+        try {
+            original = new QdbBlob(pool, alias).compareAndSwap(next.toByteBuffer(), current.toByteBuffer());
+        } catch (RuntimeException e) {
+            removeQuietly(next.dataAlias());
+            throw e;
+        }
+
+        if (original != null) {
+            original.close();
+            conflicts.incrementAndGet();
+            removeQuietly(next.dataAlias());
+            return -1;
+        }
+
+        updates.incrementAndGet();
+        removeQuietly(current.dataAlias());
+        return next.version;
+    }
+
+    private ByteBuffer read(Head head) {
+        QdbBlob data = new QdbBlob(pool, head.dataAlias());
+        ByteBuffer decoded = data.getDecoded();
+        try {
+            ByteBuffer copy = ByteBuffer.allocateDirect(decoded.remaining());
+            copy.put(decoded);
+            copy.flip();
+            return copy;
+        } finally {
+            pool.buffers().release(decoded);
+        }
+    }
+
+    private Head readHead() {
+        pool.throwIfClosed();
+
+        ByteBuffer content = ByteBuffer.allocate(HEAD_SIZE + 1);
+        int length;
+        try {
+            length = new QdbBlob(pool, alias).getInto(content);
+        } catch (BufferOverflowException e) {
+            throw new IncompatibleTypeException("Alias " + alias + " does not hold a versioned blob");
+        }
+        content.flip();
+
+        if (length != HEAD_SIZE || content.getInt() != MAGIC)
+            throw new IncompatibleTypeException("Alias " + alias + " does not hold a versioned blob");
+
+        content.getInt(); // <- reserved
+        return new Head(content.getLong(), content.getLong());
+    }
+
+    private void removeQuietly(String dataAlias) {
+        try {
+            new QdbEntry(pool, dataAlias).remove();
+        } catch (AliasNotFoundException e) {
+            // <- already removed by another writer
+        }
+    }
+
+    // Waits a random time, up to a bound that doubles with each attempt.
+    private void backoff(int attempt) {
+        long bound = Math.min(maxBackoffNanos, minBackoffNanos << Math.min(attempt - 1, 30));
+        if (bound > 0)
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    private final class Head {
+        final long version;
+        final long nonce;
+
+        Head(long version, long nonce) {
+            this.version = version;
+            this.nonce = nonce;
+        }
+
+        String dataAlias() {
+            return alias + ".v" + version + "." + Long.toHexString(nonce);
+        }
+
+        ByteBuffer toByteBuffer() {
+            ByteBuffer content = ByteBuffer.allocate(HEAD_SIZE);
+            content.putInt(MAGIC);
+            content.putInt(0);
+            content.putLong(version);
+            content.putLong(nonce);
+            content.flip();
+            return content;
+        }
+    }
+
+    /**
+     * The content of a versioned blob, as read at a given version.
+     */
+    public static final class Snapshot {
+        private final Head head;
+        private final ByteBuffer content;
+
+        private Snapshot(Head head, ByteBuffer content) {
+            this.head = head;
+            this.content = content;
+        }
+
+        /**
+         * Gets the version the content was read at.
+         *
+         * @return The version number.
+         */
+        public long version() {
+            return head.version;
+        }
+
+        /**
+         * Gets the content.
+         *
+         * @return A direct buffer holding a copy of the content.
+         */
+        public ByteBuffer content() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchEntryRemoveTest {
+    QdbBatch batch;
+
+    @Before
+    public void setUp() {
+        batch = Helpers.createBatch();
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void throwsAliasNotFound() {
+        QdbFuture<Void> result = batch.entry(Helpers.createUniqueAlias()).remove();
+        batch.run();
+        result.get(); // <- throws
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void removesBlobAndInteger() {
+        QdbBlob blob = Helpers.createBlob();
+        QdbInteger integer = Helpers.createInteger();
+
+        batch.entry(blob.alias()).remove();
+        batch.integer(integer.alias()).remove();
+        batch.run();
+
+        Assert.assertTrue(batch.success());
+        integer.get(); // <- throws
+    }
+
+    @Test
+    public void setsExpiryTime() {
+        QdbInteger integer = Helpers.createInteger();
+        QdbExpiryTime expiry = QdbExpiryTime.makeMinutesFromNow(5);
+
+        batch.entry(integer.alias()).expiresAt(expiry);
+        batch.run();
+
+        Assert.assertEquals(expiry.toSecondsSinceEpoch(), integer.expiryTime().toSecondsSinceEpoch());
+    }
+}
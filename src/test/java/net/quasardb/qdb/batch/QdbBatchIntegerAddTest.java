@@ -0,0 +1,58 @@
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchIntegerAddTest {
+    String alias;
+    QdbInteger integer;
+    QdbBatch batch;
+
+    @Before
+    public void setUp() {
+        alias = Helpers.createUniqueAlias();
+        integer = Helpers.getInteger(alias);
+        batch = Helpers.createBatch();
+    }
+
+    @Test(expected = BatchNotRunException.class)
+    public void throwsBatchNotRun_beforeCallingRun() {
+        QdbFuture<Long> result = batch.integer(alias).add(1);
+        result.get(); // <- throw
+    }
+
+    @Test(expected = BatchAlreadyRunException.class)
+    public void throwsBatchAlreadyRun_afterCallingRun() {
+        batch.run();
+        batch.integer(alias).add(1); // <- throw
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void throwsAliasNotFound() {
+        QdbFuture<Long> result = batch.integer(alias).add(1);
+        batch.run();
+        result.get(); // <- throws
+    }
+
+    @Test
+    public void returnsUpdatedValue() {
+        integer.put(19);
+
+        QdbFuture<Long> result = batch.integer(alias).add(23);
+        batch.run();
+
+        Assert.assertEquals(42, (long)result.get());
+    }
+
+    @Test
+    public void appliesEveryAdd_inOrder() {
+        QdbFuture<Void> put = batch.integer(alias).put(40);
+        QdbFuture<Long> first = batch.integer(alias).add(1);
+        QdbFuture<Long> second = batch.integer(alias).add(1);
+        batch.run();
+
+        Assert.assertTrue(put.success());
+        Assert.assertEquals(41, (long)first.get());
+        Assert.assertEquals(42, (long)second.get());
+        Assert.assertEquals(42, integer.get());
+    }
+}
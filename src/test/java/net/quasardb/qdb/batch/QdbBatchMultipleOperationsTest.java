@@ -109,4 +109,25 @@ public class QdbBatchMultipleOperationsTest {
         Assert.assertNull(resultOfCompareAndSwap.get());
         checkBlob(aliasCas, content_updated);
     }
+
+    @Test
+    public void mixesBlobAndIntegerOperations() {
+        String aliasBlob = Helpers.createUniqueAlias();
+        String aliasInteger = Helpers.createUniqueAlias();
+        createBlob(aliasBlob, content);
+
+        QdbFuture<Void> resultOfPut = batch.integer(aliasInteger).put(41);
+        QdbFuture<ByteBuffer> resultOfGet = batch.blob(aliasBlob).get();
+        QdbFuture<Long> resultOfAdd = batch.integer(aliasInteger).add(1);
+        QdbFuture<Boolean> resultOfAttach = batch.entry(aliasBlob).attachTag(Helpers.createUniqueAlias());
+
+        batch.run();
+        Assert.assertTrue(batch.success());
+        Assert.assertEquals(4, batch.successCount());
+
+        Assert.assertTrue(resultOfPut.success());
+        Assert.assertEquals(content, resultOfGet.get());
+        Assert.assertEquals(42, (long)resultOfAdd.get());
+        Assert.assertTrue(resultOfAttach.get());
+    }
 }
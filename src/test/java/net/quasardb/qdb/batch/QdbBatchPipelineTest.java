@@ -0,0 +1,58 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchPipelineTest {
+    QdbCluster cluster;
+
+    @Before
+    public void setUp() {
+        cluster = Helpers.createCluster();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenDepthIsOne() {
+        cluster.createBatchPipeline(1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenBatchComesFromElsewhere() {
+        try (QdbBatchPipeline pipeline = cluster.createBatchPipeline(2)) {
+            pipeline.submit(cluster.createBatch()); // <- throws
+        }
+    }
+
+    @Test(expected = BatchAlreadyRunException.class)
+    public void throwsBatchAlreadyRun_whenSubmittedTwice() {
+        try (QdbBatchPipeline pipeline = cluster.createBatchPipeline(2)) {
+            QdbBatch batch = pipeline.next();
+            pipeline.submit(batch);
+            pipeline.submit(batch); // <- throws
+        }
+    }
+
+    @Test
+    public void runsEveryBatch_inOrder() {
+        int n = 10;
+        QdbBlob blob = Helpers.createEmptyBlob();
+        blob.put(ByteBuffer.allocateDirect(8).putLong(0, 0));
+        List<Long> results = new ArrayList<Long>();
+
+        try (QdbBatchPipeline pipeline = cluster.createBatchPipeline(3)) {
+            for (int i = 0; i < n; ++i) {
+                QdbBatch batch = pipeline.next();
+                QdbFuture<ByteBuffer> previous = batch.blob(blob.alias()).getAndUpdate(ByteBuffer.allocateDirect(8).putLong(0, i + 1));
+                pipeline.submit(batch).thenRun(() -> results.add(previous.get().getLong(0)));
+            }
+        }
+
+        Assert.assertEquals(n, results.size());
+        for (int i = 0; i < n; ++i) {
+            Assert.assertEquals(i, (long)results.get(i));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchResetTest {
+    QdbBatch batch;
+
+    @Before
+    public void setUp() {
+        batch = Helpers.createBatch();
+    }
+
+    @Test(expected = BatchClosedException.class)
+    public void throwsBatchClosed_afterCallingClose() {
+        batch.close();
+        batch.reset(); // <- throws
+    }
+
+    @Test(expected = BatchNotRunException.class)
+    public void throwsBatchNotRun_whenGettingResultAfterReset() {
+        QdbFuture<ByteBuffer> result = batch.blob(Helpers.createBlob().alias()).get();
+        batch.run();
+        batch.reset();
+        result.get(); // <- throws
+    }
+
+    @Test
+    public void keepsOperations_afterReset() {
+        batch.blob(Helpers.createUniqueAlias()).update(Helpers.createSampleData());
+        batch.run();
+        batch.reset();
+
+        Assert.assertEquals(1, batch.operationCount());
+    }
+
+    @Test
+    public void sendsNewContent_afterSetContent() {
+        String alias = Helpers.createUniqueAlias();
+        ByteBuffer content1 = Helpers.createSampleData();
+        ByteBuffer content2 = Helpers.createSampleData();
+
+        QdbFuture<Void> update = batch.blob(alias).update(content1);
+        batch.run();
+        batch.reset();
+        batch.setContent(batch.indexOf(update), content2);
+        batch.run();
+
+        Assert.assertTrue(update.success());
+        Assert.assertEquals(content2, Helpers.getBlob(alias).get().toByteBuffer());
+    }
+
+    @Test
+    public void returnsCurrentContent_onEachRun() {
+        QdbBlob blob = Helpers.createBlob();
+        ByteBuffer content = Helpers.createSampleData();
+
+        QdbFuture<ByteBuffer> result = batch.blob(blob.alias()).get();
+        batch.run();
+        blob.update(content);
+        batch.reset();
+        batch.run();
+
+        Assert.assertEquals(content, result.get());
+    }
+
+    @Test
+    public void removesOperations_afterClear() {
+        batch.blob(Helpers.createUniqueAlias()).update(Helpers.createSampleData());
+        batch.run();
+        batch.clear();
+
+        Assert.assertEquals(0, batch.operationCount());
+    }
+
+    @Test
+    public void runsMoreOperations_afterClear() {
+        batch.blob(Helpers.createUniqueAlias()).update(Helpers.createSampleData());
+        batch.run();
+        batch.clear();
+
+        QdbFuture<Void> first = batch.blob(Helpers.createUniqueAlias()).update(Helpers.createSampleData());
+        QdbFuture<Void> second = batch.blob(Helpers.createUniqueAlias()).update(Helpers.createSampleData());
+        batch.run();
+
+        Assert.assertTrue(first.success());
+        Assert.assertTrue(second.success());
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenFutureBelongsToAnotherBatch() {
+        QdbBatch other = Helpers.createBatch();
+        QdbFuture<Void> update = other.blob(Helpers.createUniqueAlias()).update(Helpers.createSampleData());
+
+        batch.indexOf(update); // <- throws
+    }
+}
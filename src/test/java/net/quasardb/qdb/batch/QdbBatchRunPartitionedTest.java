@@ -0,0 +1,89 @@
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchRunPartitionedTest {
+    QdbBatch batch;
+
+    @Before
+    public void setUp() {
+        batch = Helpers.createBatch();
+    }
+
+    @Test(expected = BatchAlreadyRunException.class)
+    public void throwsBatchAlreadyRun_whenCalledTwice() {
+        batch.runPartitioned();
+        batch.runPartitioned();
+    }
+
+    @Test(expected = BatchClosedException.class)
+    public void throwsBatchClosed_afterCallingClose() {
+        batch.close();
+        batch.runPartitioned(); // <- throw
+    }
+
+    @Test
+    public void doesNotThrow_whenBatchIsEmpty() {
+        batch.runPartitioned();
+    }
+
+    @Test
+    public void returnsResultsInOriginalFutures() {
+        int n = 64;
+        ByteBuffer[] contents = new ByteBuffer[n];
+        QdbFuture<ByteBuffer>[] results = new QdbFuture[n];
+
+        for (int i = 0; i < n; ++i) {
+            QdbBlob blob = Helpers.createEmptyBlob();
+            contents[i] = Helpers.createSampleData();
+            blob.put(contents[i]);
+            results[i] = batch.blob(blob.alias()).get();
+        }
+        batch.runPartitioned();
+
+        Assert.assertTrue(batch.success());
+        Assert.assertEquals(n, batch.successCount());
+        for (int i = 0; i < n; ++i) {
+            Assert.assertEquals(contents[i], results[i].get());
+        }
+    }
+
+    @Test
+    public void completes_whenCalledFromTheOnlyExecutorThread() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 4);
+        QdbAsyncExecutor executor = new QdbAsyncExecutor(1, 16, QdbAsyncExecutor.NO_TIMEOUT);
+        cluster.setAsyncExecutor(executor);
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        ByteBuffer result = executor.submit(() -> {
+                try (QdbBatch nested = cluster.createBatch()) {
+                    QdbFuture<ByteBuffer> get = nested.blob(blob.alias()).get();
+                    nested.blob(Helpers.createUniqueAlias()).put(content);
+                    nested.runPartitioned(); // <- used to wait for the executor it runs on
+                    ByteBuffer copy = ByteBuffer.allocate(get.get().remaining());
+                    copy.put(get.get());
+                    copy.flip();
+                    return copy;
+                }
+            }).join();
+
+        Assert.assertEquals(content, result);
+        cluster.close();
+    }
+
+    @Test
+    public void canRunAgain_afterReset() {
+        QdbBlob blob = Helpers.createBlob();
+        ByteBuffer content = Helpers.createSampleData();
+
+        QdbFuture<ByteBuffer> result = batch.blob(blob.alias()).getAndUpdate(content);
+        batch.runPartitioned();
+        batch.reset();
+        batch.runPartitioned();
+
+        Assert.assertEquals(content, result.get());
+    }
+}
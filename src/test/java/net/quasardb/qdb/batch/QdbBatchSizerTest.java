@@ -0,0 +1,113 @@
+import java.util.concurrent.TimeUnit;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchSizerTest {
+    static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    QdbBatchSizer sizer;
+
+    @Before
+    public void setUp() {
+        sizer = new QdbBatchSizer(10, 16, 1024, 1024, 1024 * 1024);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenMinIsHigherThanMax() {
+        new QdbBatchSizer(10, 64, 16, 1024, 2048);
+    }
+
+    @Test
+    public void startsAtMinimum() {
+        Assert.assertEquals(16, sizer.operationLimit());
+        Assert.assertEquals(1024, sizer.byteLimit());
+    }
+
+    @Test
+    public void increases_whenBatchesAreFast() {
+        for (int i = 0; i < 10; ++i) {
+            sizer.record(FAST, true);
+        }
+
+        Assert.assertTrue(sizer.operationLimit() > 16);
+        Assert.assertTrue(sizer.byteLimit() > 1024);
+    }
+
+    @Test
+    public void neverExceedsMaximum() {
+        for (int i = 0; i < 1000; ++i) {
+            sizer.record(FAST, true);
+        }
+
+        Assert.assertEquals(1024, sizer.operationLimit());
+        Assert.assertEquals(1024 * 1024, sizer.byteLimit());
+    }
+
+    @Test
+    public void halves_whenBatchIsSlow() {
+        for (int i = 0; i < 1000; ++i) {
+            sizer.record(FAST, true);
+        }
+        sizer.record(SLOW, true);
+
+        Assert.assertEquals(512, sizer.operationLimit());
+        Assert.assertEquals(1, sizer.decreaseCount());
+    }
+
+    @Test
+    public void halves_whenOperationsFail() {
+        for (int i = 0; i < 1000; ++i) {
+            sizer.record(FAST, true);
+        }
+        sizer.record(FAST, false);
+
+        Assert.assertEquals(512, sizer.operationLimit());
+    }
+
+    @Test
+    public void halvesOnce_whenBatchesInFlightAreSlow() throws InterruptedException {
+        for (int i = 0; i < 1000; ++i) {
+            sizer.record(FAST, true);
+        }
+        for (int i = 0; i < 4; ++i) {
+            sizer.record(SLOW, true); // <- all started before the first one completed
+        }
+
+        Assert.assertEquals(512, sizer.operationLimit());
+        Assert.assertEquals(1, sizer.decreaseCount());
+
+        Thread.sleep(10);
+        sizer.record(FAST, false); // <- started after the decrease
+
+        Assert.assertEquals(256, sizer.operationLimit());
+        Assert.assertEquals(2, sizer.decreaseCount());
+    }
+
+    @Test
+    public void isFull_whenEitherLimitIsReached() {
+        Assert.assertFalse(sizer.isFull(15, 1023));
+        Assert.assertTrue(sizer.isFull(16, 0));
+        Assert.assertTrue(sizer.isFull(1, 1024));
+    }
+
+    @Test
+    public void keepsIncreasing_whenOperationsFailOnTheirOwn() {
+        QdbBatchSizer sizer = new QdbBatchSizer(60000, 16, 1024, 1024, 1024 * 1024); // <- never too slow
+        QdbBlob existing = Helpers.createBlob();
+        QdbBatch batch = Helpers.createBatch();
+        batch.blob(existing.alias()).put(Helpers.createSampleData()); // <- alias already exists
+        batch.blob(Helpers.createUniqueAlias()).get(); // <- alias not found
+
+        try {
+            sizer.run(batch);
+        } catch (RuntimeException e) {
+            // <- the first failed operation
+        }
+        batch.close();
+
+        Assert.assertEquals(0, sizer.decreaseCount());
+        Assert.assertTrue(sizer.operationLimit() > 16);
+    }
+}
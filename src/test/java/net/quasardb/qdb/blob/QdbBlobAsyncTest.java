@@ -0,0 +1,100 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobAsyncTest {
+    @Test(expected = AliasNotFoundException.class)
+    public void getAsync_throwsAliasNotFound() throws Throwable {
+        QdbBlob blob = Helpers.createEmptyBlob();
+
+        try {
+            blob.getAsync().join();
+        } catch (CompletionException e) {
+            throw e.getCause(); // <- throws
+        }
+    }
+
+    @Test
+    public void getAsync_returnsContent_afterPutAsync() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content = Helpers.createSampleData();
+
+        Buffer result = blob.putAsync(content)
+            .thenCompose((ignored) -> blob.getAsync())
+            .join();
+
+        Assert.assertEquals(content, result.toByteBuffer());
+    }
+
+    @Test
+    public void updateAsync_returnsTrue_whenBlobIsCreated() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+
+        Assert.assertTrue(blob.updateAsync(Helpers.createSampleData()).join());
+    }
+
+    @Test
+    public void metadataAsync_returnsSize() {
+        QdbBlob blob = Helpers.createBlob();
+
+        Assert.assertEquals(32, blob.metadataAsync().join().size());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void throwsTimeout_whenDeadlineExpiresWhileQueued() throws Throwable {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbAsyncExecutor executor = new QdbAsyncExecutor(1, 64, 1);
+        cluster.setAsyncExecutor(executor);
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            occupy(executor, release);
+            blob.getAsync().join();
+        } catch (CompletionException e) {
+            throw e.getCause(); // <- throws
+        } finally {
+            release.countDown();
+            cluster.close();
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void throwsTimeout_whenPerCallDeadlineExpires() throws Throwable {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbAsyncExecutor executor = new QdbAsyncExecutor(1, 64, QdbAsyncExecutor.NO_TIMEOUT);
+        cluster.setAsyncExecutor(executor);
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            occupy(executor, release);
+            blob.getAsync(1).join();
+        } catch (CompletionException e) {
+            throw e.getCause(); // <- throws
+        } finally {
+            release.countDown();
+            cluster.close();
+        }
+    }
+
+    // Keeps the only worker of the executor busy until release is counted down, so that
+    // the next operation stays queued past its deadline.
+    private static void occupy(QdbAsyncExecutor executor, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }, QdbAsyncExecutor.NO_TIMEOUT);
+        started.await();
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobChannelTest {
+    @Test(expected = AliasNotFoundException.class)
+    public void openChannel_throwsAliasNotFound() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        blob.openChannel(); // <- throws
+    }
+
+    @Test
+    public void read_returnsContent_thenEndOfStream() throws Exception {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        QdbBlobChannel channel = blob.openChannel();
+        ByteBuffer dest = ByteBuffer.allocate(content.remaining() + 1);
+        int read = channel.read(dest);
+        dest.flip();
+
+        Assert.assertEquals(content.remaining(), read);
+        Assert.assertEquals(content, dest);
+        Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        channel.close();
+    }
+
+    @Test
+    public void transferTo_writesContent() throws Exception {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (QdbBlobChannel channel = blob.openChannel()) {
+            Assert.assertEquals(content.remaining(), channel.transferTo(Channels.newChannel(output)));
+            Assert.assertEquals(0, channel.remaining());
+        }
+
+        Assert.assertEquals(content, ByteBuffer.wrap(output.toByteArray()));
+    }
+
+    @Test
+    public void inputStream_readsContent() throws Exception {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = blob.openInputStream()) {
+            byte[] chunk = new byte[3];
+            int n;
+            while ((n = input.read(chunk)) > 0) {
+                output.write(chunk, 0, n);
+            }
+        }
+
+        Assert.assertEquals(content, ByteBuffer.wrap(output.toByteArray()));
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void read_throwsClosedChannel() throws Exception {
+        QdbBlob blob = Helpers.createBlob();
+        QdbBlobChannel channel = blob.openChannel();
+        channel.close();
+        channel.read(ByteBuffer.allocate(1)); // <- throws
+    }
+}
@@ -0,0 +1,166 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobCompressionTest {
+    private QdbCluster cluster;
+
+    @Before
+    public void setup() {
+        cluster = Helpers.createCluster();
+        cluster.setCompression(new QdbCompression(QdbCompression.FAST, 64));
+    }
+
+    private static ByteBuffer createCompressibleData(int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte)'q');
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Test
+    public void getInto_returnsOriginalContent() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        ByteBuffer dest = ByteBuffer.allocate(4096);
+        int length = blob.getInto(dest);
+        dest.flip();
+
+        Assert.assertEquals(4096, length);
+        Assert.assertEquals(content, dest);
+    }
+
+    @Test
+    public void get_returnsOriginalContent() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        Buffer result = blob.get();
+        try {
+            Assert.assertEquals(content, result.toByteBuffer());
+        } finally {
+            result.close();
+        }
+    }
+
+    @Test
+    public void batchGet_returnsOriginalContent() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        try (QdbBatch batch = cluster.createBatch()) {
+            QdbFuture<ByteBuffer> result = batch.blob(blob.alias()).get();
+            batch.run();
+
+            Assert.assertEquals(content, result.get());
+        }
+    }
+
+    @Test
+    public void compareAndSwap_comparesOriginalContent() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        ByteBuffer newContent = Helpers.createSampleData();
+        blob.put(content);
+
+        Assert.assertNull(blob.compareAndSwap(newContent, content.duplicate()));
+        Assert.assertEquals(newContent, blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void compareAndSwap_returnsOriginalContent_whenComparandDiffers() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        Buffer original = blob.compareAndSwap(Helpers.createSampleData(), createCompressibleData(2048));
+        try {
+            Assert.assertEquals(content, original.toByteBuffer());
+        } finally {
+            original.close();
+        }
+    }
+
+    @Test
+    public void removeIf_comparesOriginalContent() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        Assert.assertFalse(blob.removeIf(createCompressibleData(2048)));
+        Assert.assertTrue(blob.removeIf(content.duplicate()));
+    }
+
+    @Test
+    public void getInto_returnsOriginalContent_largerThanScratch() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(3 << 20);
+        blob.put(content);
+
+        ByteBuffer dest = ByteBuffer.allocate(3 << 20);
+        blob.getInto(dest);
+        dest.flip();
+
+        Assert.assertEquals(content, dest);
+    }
+
+    @Test
+    public void get_returnsRawContent_startingWithMagic() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = ByteBuffer.wrap("QCZ\0 is not a header".getBytes());
+        cluster.setCompression(null);
+        blob.put(content);
+        cluster.setCompression(new QdbCompression(QdbCompression.FAST, 64));
+
+        Assert.assertEquals(content, blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void storesRaw_belowThreshold() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(32);
+        blob.put(content);
+
+        Assert.assertEquals(content, blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void storesRaw_whenPrefixUsesNone() {
+        cluster.setCompression(new QdbCompression(QdbCompression.HIGH, 64).setCodec("raw.", QdbCompression.NONE));
+        QdbBlob blob = cluster.blob("raw." + Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        Assert.assertEquals(content, blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void getDecoded_returnsOriginalContent() {
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        ByteBuffer content = createCompressibleData(4096);
+        blob.put(content);
+
+        ByteBuffer decoded = blob.getDecoded();
+        try {
+            Assert.assertEquals(content, decoded);
+        } finally {
+            cluster.getBufferPool().release(decoded);
+        }
+    }
+
+    @Test
+    public void codecFor_picksLongestPrefix() {
+        QdbCompression compression = new QdbCompression(QdbCompression.FAST, 0)
+            .setCodec("a.", QdbCompression.NONE)
+            .setCodec("a.b.", QdbCompression.HIGH);
+
+        Assert.assertSame(QdbCompression.HIGH, compression.codecFor("a.b.c"));
+        Assert.assertSame(QdbCompression.NONE, compression.codecFor("a.c"));
+        Assert.assertSame(QdbCompression.FAST, compression.codecFor("b"));
+    }
+}
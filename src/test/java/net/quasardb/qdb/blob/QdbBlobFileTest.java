@@ -0,0 +1,69 @@
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobFileTest {
+    Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("qdb", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    static byte[] createSampleArray() {
+        ByteBuffer content = Helpers.createSampleData(4096);
+        byte[] array = new byte[content.remaining()];
+        content.duplicate().get(array);
+        return array;
+    }
+
+    @Test
+    public void putFile_storesContentOfFile() throws Exception {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        byte[] content = createSampleArray();
+        Files.write(file, content);
+
+        blob.putFile(file);
+
+        Assert.assertEquals(ByteBuffer.wrap(content), blob.get().toByteBuffer());
+    }
+
+    @Test(expected = AliasAlreadyExistsException.class)
+    public void putFile_throwsAliasAlreadyExists() throws Exception {
+        QdbBlob blob = Helpers.createBlob();
+        Files.write(file, createSampleArray());
+
+        blob.putFile(file); // <- throws
+    }
+
+    @Test
+    public void updateFile_replacesContent() throws Exception {
+        QdbBlob blob = Helpers.createBlob();
+        byte[] content = createSampleArray();
+        Files.write(file, content);
+
+        Assert.assertFalse(blob.updateFile(file));
+        Assert.assertEquals(ByteBuffer.wrap(content), blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void getToFile_writesContent() throws Exception {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        byte[] content = createSampleArray();
+        blob.put(content);
+        Files.write(file, new byte[content.length * 2]); // <- truncated by getToFile
+
+        long length = blob.getToFile(file);
+
+        Assert.assertEquals(content.length, length);
+        Assert.assertArrayEquals(content, Files.readAllBytes(file));
+    }
+}
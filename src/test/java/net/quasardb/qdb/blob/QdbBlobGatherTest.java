@@ -0,0 +1,77 @@
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobGatherTest {
+    static ByteBuffer concat(ByteBuffer... parts) {
+        int length = 0;
+        for (ByteBuffer part : parts)
+            length += part.remaining();
+
+        ByteBuffer result = ByteBuffer.allocate(length);
+        for (ByteBuffer part : parts)
+            result.put(part.duplicate());
+        result.flip();
+        return result;
+    }
+
+    @Test
+    public void put_storesPartsBackToBack() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer header = Helpers.createSampleData(64);
+        ByteBuffer body = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        ByteBuffer trailer = Helpers.createSampleData(8);
+
+        blob.put(header, body, trailer);
+
+        Assert.assertEquals(concat(header, body, trailer), blob.get().toByteBuffer());
+        Assert.assertEquals(0, body.position());
+    }
+
+    @Test(expected = AliasAlreadyExistsException.class)
+    public void put_throwsAliasAlreadyExists() {
+        QdbBlob blob = Helpers.createBlob();
+        blob.put(Helpers.createSampleData(), Helpers.createSampleData()); // <- throws
+    }
+
+    @Test
+    public void update_storesPartsBackToBack() {
+        QdbBlob blob = Helpers.createBlob();
+        ByteBuffer header = Helpers.createSampleData(64);
+        ByteBuffer body = Helpers.createSampleData();
+
+        blob.update(new ByteBuffer[] { header, body }, QdbExpiryTime.NEVER_EXPIRES);
+
+        Assert.assertEquals(concat(header, body), blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void batchPut_storesPartsBackToBack() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer header = Helpers.createSampleData(64);
+        ByteBuffer body = Helpers.createSampleData();
+
+        QdbBatch batch = Helpers.createBatch();
+        QdbFuture<Void> future = batch.blob(blob.alias()).put(header, body);
+        batch.run();
+
+        Assert.assertTrue(future.success());
+        Assert.assertEquals(concat(header, body), blob.get().toByteBuffer());
+        batch.close();
+    }
+
+    @Test
+    public void batchUpdate_storesSinglePart() {
+        QdbBlob blob = Helpers.createBlob();
+        ByteBuffer body = Helpers.createSampleData();
+
+        QdbBatch batch = Helpers.createBatch();
+        QdbFuture<Void> future = batch.blob(blob.alias()).update(new ByteBuffer[] { body }, QdbExpiryTime.NEVER_EXPIRES);
+        batch.run();
+
+        Assert.assertTrue(future.success());
+        Assert.assertEquals(body, blob.get().toByteBuffer());
+        batch.close();
+    }
+}
@@ -0,0 +1,73 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobGetIntoTest {
+    @Test(expected = AliasNotFoundException.class)
+    public void throwsAliasNotFound() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        blob.getInto(ByteBuffer.allocate(64)); // <- throws
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void throwsBufferOverflow_whenDestinationIsTooSmall() {
+        QdbBlob blob = Helpers.createBlob();
+        blob.getInto(ByteBuffer.allocate(1)); // <- throws
+    }
+
+    @Test
+    public void copiesContent_atPositionOfDestination() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        ByteBuffer dest = ByteBuffer.allocate(content.remaining() + 8);
+        dest.position(8);
+        int length = blob.getInto(dest);
+
+        Assert.assertEquals(content.remaining(), length);
+        Assert.assertEquals(dest.capacity(), dest.position());
+        dest.position(8);
+        Assert.assertEquals(content, dest);
+    }
+
+    @Test
+    public void writesContent_toChannel() throws Exception {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int length = blob.getInto(Channels.newChannel(output));
+
+        Assert.assertEquals(content.remaining(), length);
+        Assert.assertEquals(content, ByteBuffer.wrap(output.toByteArray()));
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void getAndRemoveInto_removesBlob() {
+        QdbBlob blob = Helpers.createBlob();
+        blob.getAndRemoveInto(ByteBuffer.allocate(1024));
+        blob.get(); // <- throws
+    }
+
+    @Test
+    public void getAndUpdateInto_copiesPreviousContent_andReplacesIt() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        ByteBuffer content1 = Helpers.createSampleData();
+        ByteBuffer content2 = Helpers.createSampleData();
+        blob.put(content1);
+
+        ByteBuffer dest = ByteBuffer.allocate(content1.remaining());
+        int length = blob.getAndUpdateInto(content2, dest);
+        dest.flip();
+
+        Assert.assertEquals(content1.remaining(), length);
+        Assert.assertEquals(content1, dest);
+        Assert.assertEquals(content2, blob.get().toByteBuffer());
+    }
+}
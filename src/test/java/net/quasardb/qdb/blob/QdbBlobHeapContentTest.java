@@ -0,0 +1,68 @@
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobHeapContentTest {
+    static byte[] createSampleArray() {
+        ByteBuffer content = Helpers.createSampleData();
+        byte[] array = new byte[content.remaining()];
+        content.duplicate().get(array);
+        return array;
+    }
+
+    @Test
+    public void put_acceptsArray() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        byte[] content = createSampleArray();
+
+        blob.put(content);
+
+        Assert.assertEquals(ByteBuffer.wrap(content), blob.get().toByteBuffer());
+    }
+
+    @Test
+    public void update_acceptsHeapBuffer() {
+        QdbBlob blob = Helpers.createBlob();
+        ByteBuffer content = ByteBuffer.wrap(createSampleArray());
+
+        blob.update(content);
+
+        Assert.assertEquals(content, blob.get().toByteBuffer());
+        Assert.assertEquals(0, content.position());
+    }
+
+    @Test
+    public void removeIf_acceptsArray() {
+        QdbBlob blob = Helpers.createEmptyBlob();
+        byte[] content = createSampleArray();
+        blob.put(content);
+
+        Assert.assertTrue(blob.removeIf(content));
+    }
+
+    @Test
+    public void batchPut_acceptsArray() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        byte[] content = createSampleArray();
+
+        QdbBatch batch = cluster.createBatch();
+        batch.blob(alias).put(content);
+        batch.run();
+        batch.close();
+
+        Assert.assertEquals(ByteBuffer.wrap(content), cluster.blob(alias).get().toByteBuffer());
+    }
+
+    @Test
+    public void returnsStagingBuffers_toThePool() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbBufferPool buffers = cluster.getBufferPool();
+        long before = buffers.outstanding();
+
+        cluster.blob(Helpers.createUniqueAlias()).put(createSampleArray());
+
+        Assert.assertEquals(before, buffers.outstanding());
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Random;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBlobStreamTest {
+    QdbCluster cluster;
+
+    @Before
+    public void setUp() {
+        cluster = Helpers.createCluster();
+    }
+
+    static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    static void write(QdbBlobStream stream, byte[] content) throws Exception {
+        try (OutputStream output = stream.openOutputStream()) {
+            output.write(content);
+        }
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void throwsAliasNotFound_whenStreamDoesNotExist() {
+        cluster.blobStream(Helpers.createUniqueAlias()).openReader();
+    }
+
+    @Test(expected = IncompatibleTypeException.class)
+    public void throwsIncompatibleType_whenAliasIsAPlainBlob() {
+        QdbBlob blob = Helpers.createBlob();
+        cluster.blobStream(blob.alias()).openReader();
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws Exception {
+        QdbBlobStream stream = cluster.blobStream(Helpers.createUniqueAlias(), 1000, 4);
+        byte[] content = createContent(10500);
+        write(stream, content);
+
+        byte[] result = new byte[content.length];
+        try (InputStream input = stream.openInputStream()) {
+            int offset = 0;
+            for (int n; (n = input.read(result, offset, result.length - offset)) > 0; ) {
+                offset += n;
+            }
+            Assert.assertEquals(content.length, offset);
+            Assert.assertEquals(-1, input.read());
+        }
+
+        Assert.assertEquals(content.length, stream.size());
+        Assert.assertArrayEquals(content, result);
+    }
+
+    @Test
+    public void readsFromRandomPosition() throws Exception {
+        QdbBlobStream stream = cluster.blobStream(Helpers.createUniqueAlias(), 1000, 4);
+        byte[] content = createContent(10500);
+        write(stream, content);
+
+        ByteBuffer result = ByteBuffer.allocate(1500);
+        try (SeekableByteChannel reader = stream.openReader()) {
+            reader.position(4321);
+            while (result.hasRemaining() && reader.read(result) > 0) {
+            }
+        }
+
+        Assert.assertEquals(ByteBuffer.wrap(content, 4321, 1500), (ByteBuffer)result.flip());
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void removesLeftoverChunks_whenContentShrinks() throws Exception {
+        QdbBlobStream stream = cluster.blobStream(Helpers.createUniqueAlias(), 1000, 4);
+        write(stream, createContent(5000));
+        write(stream, createContent(1500));
+
+        Assert.assertEquals(1500, stream.size());
+        cluster.blob(stream.chunkAlias(3)).get(); // <- throws
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void remove_removesChunks() throws Exception {
+        QdbBlobStream stream = cluster.blobStream(Helpers.createUniqueAlias(), 1000, 4);
+        write(stream, createContent(2500));
+
+        stream.remove();
+        cluster.blob(stream.chunkAlias(0)).get(); // <- throws
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void remove_finishesInterruptedRemoval() throws Exception {
+        QdbBlobStream stream = cluster.blobStream(Helpers.createUniqueAlias(), 1000, 4);
+        write(stream, createContent(2500));
+        cluster.blob(stream.chunkAlias(1)).remove(); // <- as if a removal had been interrupted
+
+        stream.remove();
+        cluster.blob(stream.alias()).get(); // <- throws
+    }
+}
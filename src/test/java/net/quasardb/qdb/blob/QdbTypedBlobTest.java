@@ -0,0 +1,97 @@
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbTypedBlobTest {
+    static final class Point {
+        final String name;
+        final Double x;
+        final Double y;
+
+        Point(String name, Double x, Double y) {
+            this.name = name;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static final QdbRecordCodec<Point> POINT = QdbRecordCodec.<Point>builder()
+        .field(QdbCodec.STRING, (p) -> p.name)
+        .field(QdbCodec.DOUBLE, (p) -> p.x)
+        .field(QdbCodec.DOUBLE, (p) -> p.y)
+        .build((fields) -> new Point((String)fields[0], (Double)fields[1], (Double)fields[2]));
+
+    @Test
+    public void long_roundTrips() {
+        QdbTypedBlob<Long> blob = Helpers.createCluster().typedBlob(Helpers.createUniqueAlias(), QdbCodec.LONG);
+        blob.put(42L);
+        Assert.assertEquals(Long.valueOf(42), blob.get());
+    }
+
+    @Test
+    public void string_roundTripsUtf8() {
+        QdbTypedBlob<String> blob = Helpers.createCluster().typedBlob(Helpers.createUniqueAlias(), QdbCodec.STRING);
+        blob.put("h\u00e9llo w\u00f6rld \u2603");
+
+        Assert.assertEquals("h\u00e9llo w\u00f6rld \u2603", blob.get());
+        Assert.assertEquals(17, blob.blob().get().toByteBuffer().remaining());
+    }
+
+    @Test
+    public void record_roundTrips_withNullFields() {
+        QdbTypedBlob<Point> blob = Helpers.createCluster().typedBlob(Helpers.createUniqueAlias(), POINT);
+        blob.put(new Point("origin", 0.0, null));
+
+        Point point = blob.get();
+        Assert.assertEquals("origin", point.name);
+        Assert.assertEquals(Double.valueOf(0.0), point.x);
+        Assert.assertNull(point.y);
+    }
+
+    @Test
+    public void record_roundTrips_whenFieldLengthPrefixShrinks() {
+        // 50 chars may take up to 150 bytes, a two-byte prefix, but only need one.
+        String name = new String(new char[50]).replace('\0', 'p');
+        ByteBuffer content = ByteBuffer.allocate(POINT.maxSize(new Point(name, 1.0, 2.0)));
+        POINT.encode(new Point(name, 1.0, 2.0), content);
+        content.flip();
+
+        Point point = POINT.decode(content);
+
+        Assert.assertEquals(name, point.name);
+        Assert.assertEquals(Double.valueOf(1.0), point.x);
+        Assert.assertEquals(Double.valueOf(2.0), point.y);
+    }
+
+    @Test
+    public void record_decodesOlderSchema() {
+        QdbRecordCodec<Point> older = QdbRecordCodec.<Point>builder()
+            .field(QdbCodec.STRING, (p) -> p.name)
+            .build((fields) -> new Point((String)fields[0], null, null));
+        ByteBuffer content = ByteBuffer.allocate(64);
+        older.encode(new Point("legacy", null, null), content);
+        content.flip();
+
+        Point point = POINT.decode(content);
+
+        Assert.assertEquals("legacy", point.name);
+        Assert.assertNull(point.x);
+    }
+
+    @Test
+    public void update_replacesValue() {
+        QdbTypedBlob<Integer> blob = Helpers.createCluster().typedBlob(Helpers.createUniqueAlias(), QdbCodec.INT);
+        blob.put(1);
+        blob.update(2);
+        Assert.assertEquals(Integer.valueOf(2), blob.get());
+    }
+
+    @Test(expected = IncompatibleTypeException.class)
+    public void get_throwsIncompatibleType_whenContentDoesNotMatchCodec() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        cluster.typedBlob(alias, QdbCodec.INT).put(1);
+        cluster.typedBlob(alias, QdbCodec.LONG).get(); // <- throws
+    }
+}
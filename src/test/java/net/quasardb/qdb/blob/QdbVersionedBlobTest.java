@@ -0,0 +1,82 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbVersionedBlobTest {
+    private static ByteBuffer longContent(long value) {
+        ByteBuffer content = ByteBuffer.allocateDirect(8);
+        content.putLong(value);
+        content.flip();
+        return content;
+    }
+
+    @Test
+    public void put_createsVersionOne() {
+        QdbVersionedBlob blob = Helpers.createCluster().versionedBlob(Helpers.createUniqueAlias());
+        ByteBuffer content = Helpers.createSampleData();
+        blob.put(content);
+
+        QdbVersionedBlob.Snapshot snapshot = blob.get();
+        Assert.assertEquals(1, snapshot.version());
+        Assert.assertEquals(content, snapshot.content());
+    }
+
+    @Test(expected = AliasAlreadyExistsException.class)
+    public void put_throwsAliasAlreadyExists() {
+        QdbVersionedBlob blob = Helpers.createCluster().versionedBlob(Helpers.createUniqueAlias());
+        blob.put(Helpers.createSampleData());
+        blob.put(Helpers.createSampleData()); // <- throws
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void version_throwsAliasNotFound() {
+        QdbVersionedBlob blob = Helpers.createCluster().versionedBlob(Helpers.createUniqueAlias());
+        blob.version(); // <- throws
+    }
+
+    @Test
+    public void update_returnsMinusOne_whenVersionIsStale() {
+        QdbVersionedBlob blob = Helpers.createCluster().versionedBlob(Helpers.createUniqueAlias());
+        blob.put(Helpers.createSampleData());
+        Assert.assertEquals(2, blob.update(Helpers.createSampleData(), 1));
+
+        long version = blob.update(Helpers.createSampleData(), 1);
+
+        Assert.assertEquals(-1, version);
+        Assert.assertEquals(2, blob.version());
+    }
+
+    @Test
+    public void updateAtomically_appliesEveryConcurrentUpdate() {
+        QdbVersionedBlob blob = Helpers.createCluster().versionedBlob(Helpers.createUniqueAlias());
+        blob.setRetryPolicy(1000, 1, 10);
+        blob.put(longContent(0));
+
+        List<CompletableFuture<Void>> writers = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; ++i) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                        for (int j = 0; j < 10; ++j) {
+                            blob.updateAtomically((content) -> longContent(content.getLong(0) + 1));
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+
+        QdbVersionedBlob.Snapshot snapshot = blob.get();
+        Assert.assertEquals(40, snapshot.content().getLong(0));
+        Assert.assertEquals(41, snapshot.version());
+        Assert.assertEquals(40, blob.updateCount());
+    }
+
+    @Test(expected = AliasNotFoundException.class)
+    public void remove_removesBlob() {
+        QdbVersionedBlob blob = Helpers.createCluster().versionedBlob(Helpers.createUniqueAlias());
+        blob.put(Helpers.createSampleData());
+        blob.remove();
+        blob.get(); // <- throws
+    }
+}
@@ -0,0 +1,120 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBatchCoalescerTest {
+    QdbCluster cluster;
+
+    @Before
+    public void setUp() {
+        cluster = Helpers.createCluster();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenBatchSizeIsZero() {
+        cluster.createCoalescer(1, 0);
+    }
+
+    @Test(expected = ClusterClosedException.class)
+    public void throwsClusterClosed_afterCallingClose() {
+        QdbBatchCoalescer coalescer = cluster.createCoalescer(1, 16);
+        coalescer.close();
+        coalescer.getBlob(Helpers.createUniqueAlias()); // <- throws
+    }
+
+    @Test
+    public void groupsConcurrentRequests() {
+        QdbBatchCoalescer coalescer = cluster.createCoalescer(1000, 32);
+        ByteBuffer content = Helpers.createSampleData();
+
+        CompletableFuture<?>[] puts = new CompletableFuture<?>[64];
+        for (int i = 0; i < puts.length; ++i) {
+            puts[i] = coalescer.putBlob(Helpers.createUniqueAlias(), content);
+        }
+        CompletableFuture.allOf(puts).join();
+
+        Assert.assertEquals(2, coalescer.batchCount());
+        Assert.assertEquals(32, coalescer.largestBatchSize());
+        coalescer.close();
+    }
+
+    @Test
+    public void sendsPendingRequests_whenClosed() {
+        QdbBatchCoalescer coalescer = cluster.createCoalescer(60000, 16);
+        String alias = Helpers.createUniqueAlias();
+        ByteBuffer content = Helpers.createSampleData();
+
+        CompletableFuture<Void> put = coalescer.putBlob(alias, content);
+        coalescer.close();
+
+        put.join();
+        Assert.assertEquals(content, cluster.blob(alias).get().toByteBuffer());
+    }
+
+    @Test
+    public void failsOnlyTheFailingRequest() throws Throwable {
+        QdbBatchCoalescer coalescer = cluster.createCoalescer(60000, 3);
+        QdbBlob blob1 = Helpers.createBlob();
+        QdbBlob blob2 = Helpers.createEmptyBlob();
+        QdbBlob blob3 = Helpers.createBlob();
+
+        CompletableFuture<Buffer> get1 = coalescer.getBlob(blob1.alias());
+        CompletableFuture<Buffer> get2 = coalescer.getBlob(blob2.alias());
+        CompletableFuture<Buffer> get3 = coalescer.getBlob(blob3.alias());
+
+        Assert.assertEquals(blob1.get().toByteBuffer(), get1.join().toByteBuffer());
+        Assert.assertEquals(blob3.get().toByteBuffer(), get3.join().toByteBuffer());
+        try {
+            get2.join();
+            Assert.fail("Expected AliasNotFoundException");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof AliasNotFoundException);
+        }
+        coalescer.close();
+    }
+
+    @Test
+    public void sendsEachWriteOnce_whenAnotherOperationFails() {
+        QdbBatchCoalescer coalescer = cluster.createCoalescer(60000, 3);
+        QdbBlob existing = Helpers.createBlob();
+        String alias1 = Helpers.createUniqueAlias();
+        String alias2 = Helpers.createUniqueAlias();
+        ByteBuffer content = Helpers.createSampleData();
+
+        CompletableFuture<Void> put1 = coalescer.putBlob(alias1, content);
+        CompletableFuture<Void> failing = coalescer.putBlob(existing.alias(), content);
+        CompletableFuture<Void> put2 = coalescer.putBlob(alias2, content); // <- would fail if sent again
+
+        put1.join();
+        put2.join();
+        try {
+            failing.join();
+            Assert.fail("Expected AliasAlreadyExistsException");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof AliasAlreadyExistsException);
+        }
+        Assert.assertEquals(content, cluster.blob(alias2).get().toByteBuffer());
+        Assert.assertEquals(1, coalescer.batchCount());
+        coalescer.close();
+    }
+
+    @Test
+    public void addsToTheSameInteger_fromConcurrentRequests() {
+        QdbBatchCoalescer coalescer = cluster.createCoalescer(1000, 8);
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+        integer.put(0);
+
+        CompletableFuture<?>[] adds = new CompletableFuture<?>[16];
+        for (int i = 0; i < adds.length; ++i) {
+            adds[i] = coalescer.addInteger(integer.alias(), 1);
+        }
+        CompletableFuture.allOf(adds).join();
+
+        Assert.assertEquals(16, integer.get());
+        Assert.assertEquals(2, coalescer.batchCount());
+        coalescer.close();
+    }
+}
@@ -0,0 +1,99 @@
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBufferPoolTest {
+    QdbBufferPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new QdbBufferPool();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenSizeIsNegative() {
+        pool.acquire(-1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenReleasingHeapBuffer() {
+        pool.release(ByteBuffer.allocate(1024));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenReleasingForeignDirectBuffer() {
+        pool.release(ByteBuffer.allocateDirect(1024)); // <- right size, but not from this pool
+    }
+
+    @Test
+    public void throwsInvalidArgument_whenReleasingTwice() {
+        ByteBuffer buffer = pool.acquire(1024);
+        pool.release(buffer);
+        try {
+            pool.release(buffer);
+            Assert.fail("Expected InvalidArgumentException");
+        } catch (InvalidArgumentException e) {
+            // <- expected
+        }
+
+        Assert.assertEquals(0, pool.outstanding());
+        Assert.assertNotSame(pool.acquire(1024), pool.acquire(1024));
+    }
+
+    @Test
+    public void returnsDirectBuffer_ofRequestedSize() {
+        ByteBuffer buffer = pool.acquire(2000);
+
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(0, buffer.position());
+        Assert.assertEquals(2000, buffer.limit());
+        Assert.assertEquals(2048, buffer.capacity());
+    }
+
+    @Test
+    public void reusesReleasedBuffers() {
+        ByteBuffer first = pool.acquire(2000);
+        pool.release(first);
+        ByteBuffer second = pool.acquire(1500);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, pool.hitCount());
+        Assert.assertEquals(1, pool.missCount());
+    }
+
+    @Test
+    public void carvesSlabs_forFurtherAcquisitions() {
+        pool.acquire(2048);
+        pool.acquire(2048);
+
+        Assert.assertEquals(1, pool.missCount());
+        Assert.assertEquals(0.5, pool.hitRate(), 0.0001);
+    }
+
+    @Test
+    public void reportsLeaks_whenTracking() {
+        pool.setLeakTracking(true);
+        ByteBuffer released = pool.acquire(100);
+        pool.acquire(100);
+        pool.release(released);
+
+        Assert.assertEquals(1, pool.leaks().size());
+        Assert.assertEquals(1, pool.outstanding());
+    }
+
+    @Test
+    public void releasesBatchBuffers_onClose() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbBufferPool buffers = cluster.getBufferPool();
+        long before = buffers.outstanding();
+
+        QdbBatch batch = cluster.createBatch();
+        ByteBuffer content = batch.allocate(512);
+        content.put(Helpers.createSampleData().duplicate());
+        Assert.assertEquals(before + 1, buffers.outstanding());
+
+        batch.close();
+        Assert.assertEquals(before, buffers.outstanding());
+    }
+}
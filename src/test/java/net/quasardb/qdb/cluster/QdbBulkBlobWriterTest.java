@@ -0,0 +1,101 @@
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbBulkBlobWriterTest {
+    QdbCluster cluster;
+
+    @Before
+    public void setUp() {
+        cluster = Helpers.createCluster();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenInFlightBytesIsLowerThanBatchBytes() {
+        cluster.createBulkWriter(16, 1024, 2, 512);
+    }
+
+    @Test(expected = ClusterClosedException.class)
+    public void throwsClusterClosed_afterCallingClose() {
+        QdbBulkBlobWriter writer = cluster.createBulkWriter();
+        writer.close();
+        writer.put(Helpers.createUniqueAlias(), Helpers.createSampleData()); // <- throws
+    }
+
+    @Test
+    public void writesEveryBlob_acrossSeveralBatches() {
+        Map<String, ByteBuffer> entries = new HashMap<String, ByteBuffer>();
+        for (int i = 0; i < 100; ++i) {
+            entries.put(Helpers.createUniqueAlias(), Helpers.createSampleData());
+        }
+
+        try (QdbBulkBlobWriter writer = cluster.createBulkWriter(8, 1024, 2, 2048)) {
+            for (Map.Entry<String, ByteBuffer> entry : entries.entrySet()) {
+                writer.put(entry.getKey(), entry.getValue());
+            }
+            writer.flush();
+
+            Assert.assertEquals(100, writer.writtenCount());
+            Assert.assertEquals(0, writer.inFlightBytes());
+        }
+
+        for (Map.Entry<String, ByteBuffer> entry : entries.entrySet()) {
+            Assert.assertEquals(entry.getValue(), cluster.blob(entry.getKey()).get().toByteBuffer());
+        }
+    }
+
+    @Test
+    public void reportsFailedBlobs_andWritesTheOthers() {
+        QdbBlob existing = Helpers.createBlob();
+        String alias1 = Helpers.createUniqueAlias();
+        String alias2 = Helpers.createUniqueAlias();
+        ByteBuffer content = Helpers.createSampleData();
+
+        try (QdbBulkBlobWriter writer = cluster.createBulkWriter(8, 1024, 2, 2048)) {
+            writer.put(alias1, content);
+            writer.put(existing.alias(), content);
+            writer.put(alias2, content);
+            writer.flush();
+
+            Assert.assertEquals(2, writer.writtenCount());
+            Assert.assertEquals(1, writer.failedCount());
+            Assert.assertEquals(1, writer.failures().size());
+            Assert.assertTrue(writer.failures().get(existing.alias()) instanceof AliasAlreadyExistsException);
+        }
+        Assert.assertEquals(content, cluster.blob(alias2).get().toByteBuffer());
+    }
+
+    @Test
+    public void putAll_writesEveryEntryOfTheStream() {
+        Map<String, ByteBuffer> entries = new HashMap<String, ByteBuffer>();
+        for (int i = 0; i < 10; ++i) {
+            entries.put(Helpers.createUniqueAlias(), Helpers.createSampleData());
+        }
+
+        Assert.assertEquals(10, cluster.putAll(entries.entrySet().stream()));
+    }
+
+    @Test
+    public void writesFromAWorkerOfTheExecutor() {
+        cluster.setAsyncExecutor(new QdbAsyncExecutor(1, 64, QdbAsyncExecutor.NO_TIMEOUT));
+        String[] aliases = new String[16];
+        for (int i = 0; i < aliases.length; ++i) {
+            aliases[i] = Helpers.createUniqueAlias();
+        }
+
+        long written = cluster.getSessionPool().executor().submit(() -> {
+                try (QdbBulkBlobWriter writer = cluster.createBulkWriter(4, 1024, 1, 1024)) {
+                    for (String alias : aliases) {
+                        writer.put(alias, Helpers.createSampleData()); // <- would wait for the only worker
+                    }
+                    writer.flush();
+                    return writer.writtenCount();
+                }
+            }).join();
+
+        Assert.assertEquals(16, written);
+    }
+}
@@ -0,0 +1,99 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbClusterGetAllTest {
+    QdbCluster cluster;
+
+    @Before
+    public void setUp() {
+        cluster = Helpers.createCluster();
+    }
+
+    @Test
+    public void returnsContents_inOrder() {
+        List<String> aliases = new ArrayList<String>();
+        List<ByteBuffer> contents = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 100; ++i) {
+            QdbBlob blob = Helpers.createEmptyBlob();
+            ByteBuffer content = Helpers.createSampleData();
+            blob.put(content);
+            aliases.add(blob.alias());
+            contents.add(content);
+        }
+
+        QdbBlobArena arena = cluster.getAll(aliases);
+
+        Assert.assertEquals(100, arena.size());
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertEquals(aliases.get(i), arena.alias(i));
+            Assert.assertEquals(contents.get(i), arena.content(i));
+        }
+        arena.close();
+    }
+
+    @Test
+    public void keepsReading_afterMissingBlob() {
+        QdbBlob blob1 = Helpers.createBlob();
+        QdbBlob blob2 = Helpers.createEmptyBlob();
+        QdbBlob blob3 = Helpers.createBlob();
+
+        QdbBlobArena arena = cluster.getAll(Arrays.asList(blob1.alias(), blob2.alias(), blob3.alias()));
+
+        Assert.assertTrue(arena.found(0));
+        Assert.assertFalse(arena.found(1));
+        Assert.assertTrue(arena.failure(1) instanceof AliasNotFoundException);
+        Assert.assertEquals(-1, arena.length(1));
+        Assert.assertEquals(blob3.get().toByteBuffer(), arena.content(2));
+        arena.close();
+    }
+
+    @Test
+    public void readsEveryBlob_whenSeveralAreMissing() {
+        List<String> aliases = new ArrayList<String>();
+        for (int i = 0; i < 10; ++i) {
+            aliases.add(i % 3 == 1 ? Helpers.createUniqueAlias() : Helpers.createBlob().alias());
+        }
+
+        QdbBlobArena arena = cluster.getAll(aliases);
+
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertEquals(i % 3 != 1, arena.found(i));
+        }
+        arena.close();
+    }
+
+    @Test
+    public void returnsArenaMemory_toTheBufferPool_whenClosed() {
+        QdbBufferPool buffers = cluster.getSessionPool().buffers();
+        long outstanding = buffers.outstanding();
+
+        QdbBlobArena arena = cluster.getAll(Arrays.asList(Helpers.createBlob().alias()));
+        Assert.assertEquals(outstanding + 1, buffers.outstanding());
+
+        arena.close();
+        Assert.assertEquals(outstanding, buffers.outstanding());
+    }
+
+    @Test
+    public void readsEveryChunk() {
+        List<String> aliases = new ArrayList<String>();
+        for (int i = 0; i < 10; ++i) {
+            aliases.add(Helpers.createBlob().alias());
+        }
+
+        List<Integer> sizes = new ArrayList<Integer>();
+        cluster.getAll(aliases, 4, (arena) -> sizes.add(arena.size()));
+
+        Assert.assertEquals(Arrays.asList(4, 4, 2), sizes);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenChunkSizeIsZero() {
+        cluster.getAll(Arrays.asList("a"), 0, (arena) -> {});
+    }
+}
@@ -0,0 +1,97 @@
+import net.quasardb.qdb.exception.*;
+import java.nio.ByteBuffer;
+import net.quasardb.qdb.*;
+import org.junit.*;
+
+public class QdbClusterSessionPoolTest {
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenPoolSizeIsZero() {
+        new QdbCluster(Daemon.uri(), 0);
+    }
+
+    @Test(expected = ClusterClosedException.class)
+    public void throwsClusterClosed_afterCallingClose() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 4);
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+
+        cluster.close();
+        blob.put(Helpers.createSampleData()); // <- throws
+    }
+
+    @Test
+    public void hasRequestedSize() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 4);
+
+        Assert.assertEquals(4, cluster.getSessionPool().size());
+        cluster.close();
+    }
+
+    @Test
+    public void entriesShareContent_acrossSessions() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 4);
+        String alias = Helpers.createUniqueAlias();
+        ByteBuffer content = Helpers.createSampleData();
+
+        cluster.blob(alias).put(content);
+        Buffer result = cluster.blob(alias).get();
+
+        Assert.assertEquals(content, result.toByteBuffer());
+        Assert.assertEquals(0, cluster.getSessionPool().inFlight());
+        cluster.close();
+    }
+
+    @Test
+    public void reconnects_afterEvictingASession() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 2);
+        QdbSessionPool pool = cluster.getSessionPool();
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+
+        Session session = pool.acquire();
+        pool.release(session);
+        pool.evict(session);
+        integer.put(42);
+
+        Assert.assertEquals(1, pool.evictions());
+        Assert.assertEquals(42, integer.get());
+        cluster.close();
+    }
+
+    @Test
+    public void closesEvictedSession_onceItsOperationsReturn() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 2);
+        QdbSessionPool pool = cluster.getSessionPool();
+
+        Session session = pool.acquire();
+        pool.evict(session);
+
+        Assert.assertFalse(session.isClosed());
+        Assert.assertEquals(1, pool.retiredCount());
+
+        pool.release(session);
+
+        Assert.assertTrue(session.isClosed());
+        Assert.assertEquals(0, pool.retiredCount());
+        cluster.close();
+    }
+
+    @Test
+    public void closesEvictedSession_onceItsBuffersAreClosed() {
+        QdbCluster cluster = new QdbCluster(Daemon.uri(), 1);
+        QdbSessionPool pool = cluster.getSessionPool();
+        QdbBlob blob = cluster.blob(Helpers.createUniqueAlias());
+        blob.put(Helpers.createSampleData());
+
+        Buffer result = blob.get();
+        Session session = pool.acquire();
+        pool.release(session);
+        pool.evict(session);
+
+        Assert.assertFalse(session.isClosed());
+
+        result.close();
+
+        Assert.assertTrue(session.isClosed());
+        Assert.assertEquals(0, pool.retiredCount());
+        cluster.close();
+    }
+}
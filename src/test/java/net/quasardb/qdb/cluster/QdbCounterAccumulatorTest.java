@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbCounterAccumulatorTest {
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenThresholdIsZero() {
+        Helpers.createCluster().createCounterAccumulator(100, 0); // <- throws
+    }
+
+    @Test
+    public void add_isSentOnFlush() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+        integer.put(10);
+
+        try (QdbCounterAccumulator counters = cluster.createCounterAccumulator(60000, Long.MAX_VALUE)) {
+            counters.add(integer.alias(), 5);
+            counters.increment(integer.alias());
+
+            Assert.assertEquals(10, integer.get());
+            Assert.assertEquals(6, counters.pending(integer.alias()));
+
+            counters.flush();
+
+            Assert.assertEquals(16, integer.get());
+            Assert.assertEquals(0, counters.pending(integer.alias()));
+        }
+    }
+
+    @Test
+    public void flush_createsMissingIntegers() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+
+        try (QdbCounterAccumulator counters = cluster.createCounterAccumulator(60000, Long.MAX_VALUE)) {
+            counters.add(integer.alias(), 3);
+        }
+
+        Assert.assertEquals(3, integer.get());
+    }
+
+    @Test
+    public void flush_sendsEachDeltaOnce_whenAnIntegerIsMissing() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbInteger missing = cluster.integer(Helpers.createUniqueAlias());
+        List<QdbInteger> existing = new ArrayList<QdbInteger>();
+        for (int i = 0; i < 4; ++i) {
+            QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+            integer.put(0);
+            existing.add(integer);
+        }
+
+        try (QdbCounterAccumulator counters = cluster.createCounterAccumulator(60000, Long.MAX_VALUE)) {
+            for (QdbInteger integer : existing) {
+                counters.add(integer.alias(), 1);
+            }
+            counters.add(missing.alias(), 1);
+            counters.flush();
+        }
+
+        for (QdbInteger integer : existing) {
+            Assert.assertEquals(1, integer.get());
+        }
+        Assert.assertEquals(1, missing.get());
+    }
+
+    @Test
+    public void flush_sendsMoreIntegersThanTheExecutorQueueHolds() {
+        QdbCluster cluster = Helpers.createCluster();
+        String prefix = Helpers.createUniqueAlias();
+        int count = QdbAsyncExecutor.DEFAULT_QUEUE_CAPACITY + 1;
+
+        try (QdbCounterAccumulator counters = cluster.createCounterAccumulator(60000, Long.MAX_VALUE)) {
+            for (int i = 0; i < count; ++i) {
+                counters.increment(prefix + i);
+            }
+            counters.flush();
+
+            Assert.assertEquals(0, counters.failureCount());
+        }
+        Assert.assertEquals(1, cluster.integer(prefix + 0).get());
+        Assert.assertEquals(1, cluster.integer(prefix + (count - 1)).get());
+    }
+
+    @Test
+    public void get_addsUnsentDeltasToServerValue() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+        integer.put(100);
+
+        try (QdbCounterAccumulator counters = cluster.createCounterAccumulator(60000, Long.MAX_VALUE)) {
+            counters.add(integer.alias(), 7);
+            Assert.assertEquals(107, counters.get(integer.alias()));
+
+            counters.flush();
+            counters.add(integer.alias(), 1);
+            Assert.assertEquals(108, counters.get(integer.alias()));
+        }
+    }
+
+    @Test
+    public void close_sendsEveryConcurrentIncrement() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+        integer.put(0);
+
+        QdbCounterAccumulator counters = cluster.createCounterAccumulator(5, 100);
+        List<CompletableFuture<Void>> writers = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; ++i) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                        for (int j = 0; j < 10000; ++j) {
+                            counters.increment(integer.alias());
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+        counters.close();
+
+        Assert.assertEquals(40000, integer.get());
+        Assert.assertTrue(counters.flushCount() >= 1);
+    }
+
+    @Test(expected = ClusterClosedException.class)
+    public void add_throwsClusterClosed_afterClose() {
+        QdbCounterAccumulator counters = Helpers.createCluster().createCounterAccumulator(100, 100);
+        counters.close();
+        counters.increment(Helpers.createUniqueAlias()); // <- throws
+    }
+}
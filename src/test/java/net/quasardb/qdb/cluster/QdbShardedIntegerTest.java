@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbShardedIntegerTest {
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenShardCountIsZero() {
+        Helpers.createCluster().shardedInteger(Helpers.createUniqueAlias(), 0); // <- throws
+    }
+
+    @Test
+    public void get_returnsInitialValue() {
+        QdbShardedInteger counter = Helpers.createCluster().shardedInteger(Helpers.createUniqueAlias(), 4);
+        counter.put(42);
+
+        Assert.assertEquals(42, counter.get());
+        Assert.assertEquals(4, counter.shardAliases().length);
+    }
+
+    @Test(expected = AliasAlreadyExistsException.class)
+    public void put_throwsAliasAlreadyExists() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        cluster.shardedInteger(alias, 2).put(0);
+        cluster.shardedInteger(alias, 2).put(0); // <- throws
+    }
+
+    @Test
+    public void put_removesCreatedShards_whenAShardAlreadyExists() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        QdbInteger taken = cluster.integer(alias + ".shard.0.0"); // <- the first candidate of the first shard
+        taken.put(7);
+
+        try {
+            cluster.shardedInteger(alias, 4).put(0);
+            Assert.fail("Expected AliasAlreadyExistsException");
+        } catch (AliasAlreadyExistsException e) {
+            // <- expected
+        }
+
+        Assert.assertEquals(7, taken.get());
+        taken.remove();
+        cluster.shardedInteger(alias, 4).put(0); // <- the other shards are gone, so this succeeds
+    }
+
+    @Test
+    public void get_sumsConcurrentIncrements() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        cluster.shardedInteger(alias, 4).put(0);
+
+        List<CompletableFuture<Void>> writers = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; ++i) {
+            QdbShardedInteger.Selection selection = i % 2 == 0 ? QdbShardedInteger.Selection.RANDOM : QdbShardedInteger.Selection.THREAD;
+            writers.add(CompletableFuture.runAsync(() -> {
+                        QdbShardedInteger counter = cluster.shardedInteger(alias, 4);
+                        counter.setSelection(selection);
+                        for (int j = 0; j < 100; ++j) {
+                            counter.add(1);
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+
+        Assert.assertEquals(400, cluster.shardedInteger(alias, 4).get());
+    }
+
+    @Test
+    public void get_readsShardsAgain_onEachCall() {
+        QdbShardedInteger counter = Helpers.createCluster().shardedInteger(Helpers.createUniqueAlias(), 3);
+        counter.put(1);
+        Assert.assertEquals(1, counter.get());
+
+        counter.add(5);
+
+        Assert.assertEquals(6, counter.get());
+    }
+
+    @Test
+    public void remove_removesCounter_whenAShardIsAlreadyGone() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        QdbShardedInteger counter = cluster.shardedInteger(alias, 3);
+        counter.put(1);
+        cluster.integer(counter.shardAliases()[1]).remove();
+
+        counter.remove();
+
+        try {
+            cluster.shardedInteger(alias, 3).get();
+            Assert.fail("Counter " + alias + " still exists");
+        } catch (AliasNotFoundException e) {
+            // <- expected
+        }
+    }
+
+    @Test
+    public void remove_removesShards() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbShardedInteger counter = cluster.shardedInteger(Helpers.createUniqueAlias(), 3);
+        counter.put(1);
+        String[] shards = counter.shardAliases();
+
+        counter.remove();
+
+        for (String shard : shards) {
+            try {
+                cluster.integer(shard).get();
+                Assert.fail("Shard " + shard + " still exists");
+            } catch (AliasNotFoundException e) {
+                // <- expected
+            }
+        }
+    }
+}
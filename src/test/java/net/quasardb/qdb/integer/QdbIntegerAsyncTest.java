@@ -0,0 +1,32 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbIntegerAsyncTest {
+    @Test(expected = AliasNotFoundException.class)
+    public void addAsync_throwsAliasNotFound() throws Throwable {
+        QdbInteger integer = Helpers.createEmptyInteger();
+
+        try {
+            integer.addAsync(1).join();
+        } catch (CompletionException e) {
+            throw e.getCause(); // <- throws
+        }
+    }
+
+    @Test
+    public void addAsync_appliesEveryIncrement() {
+        QdbInteger integer = Helpers.createEmptyInteger();
+        integer.putAsync(0).join();
+
+        CompletableFuture<?>[] increments = new CompletableFuture<?>[100];
+        for (int i = 0; i < increments.length; ++i) {
+            increments[i] = integer.addAsync(1);
+        }
+        CompletableFuture.allOf(increments).join();
+
+        Assert.assertEquals(100, (long)integer.getAsync().join());
+    }
+}
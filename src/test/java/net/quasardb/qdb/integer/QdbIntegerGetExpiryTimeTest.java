@@ -48,4 +48,14 @@ public class QdbIntegerGetExpiryTimeTest {
 
         Assert.assertEquals(QdbExpiryTime.NEVER_EXPIRES, result);
     }
+
+    @Test
+    public void expiryTimeMillis_returnsSameValue_afterCallingPutWithExpiration() {
+        QdbInteger integer = Helpers.createEmptyInteger();
+        QdbExpiryTime expiry = QdbExpiryTime.makeMinutesFromNow(5);
+
+        integer.put(42, expiry);
+
+        Assert.assertEquals(expiry.toMillisSinceEpoch(), integer.expiryTimeMillis());
+    }
 }
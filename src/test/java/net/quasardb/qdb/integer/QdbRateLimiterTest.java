@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbRateLimiterTest {
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenLeaseIsLargerThanBucket() {
+        Helpers.createCluster().rateLimiter(Helpers.createUniqueAlias(), 10, 1000, 11); // <- throws
+    }
+
+    @Test
+    public void tryAcquire_refuses_oncePermitsAreUsed() {
+        QdbRateLimiter limiter = Helpers.createCluster().rateLimiter(Helpers.createUniqueAlias(), 100, 60000, 10);
+
+        int acquired = 0;
+        for (int i = 0; i < 150; ++i) {
+            if (limiter.tryAcquire())
+                acquired++;
+        }
+
+        Assert.assertEquals(100, acquired);
+        Assert.assertEquals(50, limiter.rejectedCount());
+        Assert.assertTrue(limiter.leaseCount() <= 11);
+    }
+
+    @Test
+    public void tryAcquire_sharesBucket_acrossClients() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        AtomicLong acquired = new AtomicLong();
+
+        List<CompletableFuture<Void>> clients = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; ++i) {
+            QdbRateLimiter limiter = cluster.rateLimiter(alias, 1000, 60000, 50);
+            clients.add(CompletableFuture.runAsync(() -> {
+                        for (int j = 0; j < 500; ++j) {
+                            if (limiter.tryAcquire())
+                                acquired.incrementAndGet();
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(clients.toArray(new CompletableFuture[0])).join();
+
+        Assert.assertTrue(acquired.get() <= 1000);
+        Assert.assertTrue(acquired.get() >= 1000 - 4 * 50);
+    }
+
+    @Test
+    public void tryAcquire_refills_inNextWindow() {
+        QdbRateLimiter limiter = Helpers.createCluster().rateLimiter(Helpers.createUniqueAlias(), 5, 500, 5);
+
+        Assert.assertTrue(limiter.tryAcquire(5));
+        Assert.assertFalse(limiter.tryAcquire());
+
+        Helpers.wait(1.0);
+
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+}
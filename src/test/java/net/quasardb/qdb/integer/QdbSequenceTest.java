@@ -0,0 +1,79 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import net.quasardb.qdb.*;
+import net.quasardb.qdb.exception.*;
+import org.junit.*;
+
+public class QdbSequenceTest {
+    @Test(expected = InvalidArgumentException.class)
+    public void throwsInvalidArgument_whenMinIsAboveMax() {
+        Helpers.createCluster().sequence(Helpers.createUniqueAlias(), 10, 5, 1000); // <- throws
+    }
+
+    @Test
+    public void next_startsAfterCurrentValue() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbInteger integer = cluster.integer(Helpers.createUniqueAlias());
+        integer.put(100);
+
+        QdbSequence sequence = cluster.sequence(integer.alias());
+
+        Assert.assertEquals(101, sequence.next());
+        Assert.assertEquals(102, sequence.next());
+    }
+
+    @Test
+    public void next_createsMissingInteger() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbSequence sequence = cluster.sequence(Helpers.createUniqueAlias());
+
+        Assert.assertEquals(1, sequence.next());
+    }
+
+    @Test
+    public void next_reservesByBlocks() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbSequence sequence = cluster.sequence(Helpers.createUniqueAlias(), 100, 100, 1000);
+
+        for (int i = 0; i < 1000; ++i) {
+            sequence.next();
+        }
+
+        Assert.assertTrue(sequence.reservationCount() <= 11);
+    }
+
+    @Test
+    public void next_growsBlocks_whenConsumedQuickly() {
+        QdbCluster cluster = Helpers.createCluster();
+        QdbSequence sequence = cluster.sequence(Helpers.createUniqueAlias(), 4, 1024, 60000);
+
+        for (int i = 0; i < 1000; ++i) {
+            sequence.next();
+        }
+
+        Assert.assertTrue(sequence.blockSize() > 4);
+    }
+
+    @Test
+    public void next_returnsUniqueIds_acrossSequences() {
+        QdbCluster cluster = Helpers.createCluster();
+        String alias = Helpers.createUniqueAlias();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        List<CompletableFuture<Void>> clients = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; ++i) {
+            QdbSequence sequence = cluster.sequence(alias, 8, 64, 1000);
+            clients.add(CompletableFuture.runAsync(() -> {
+                        for (int j = 0; j < 1000; ++j) {
+                            Assert.assertTrue(ids.add(sequence.next()));
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(clients.toArray(new CompletableFuture[0])).join();
+
+        Assert.assertEquals(4000, ids.size());
+    }
+}